@@ -0,0 +1,113 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.artifact.repository.MavenArtifactRepository;
+import org.apache.maven.artifact.repository.layout.DefaultRepositoryLayout;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.settings.Mirror;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the configuration processing at startup for large synthetic environments (many unrelated environment variables, many
+ * repositories from env and many repositories and mirrors in {@code settings.xml}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class ConfigurationProcessingBenchmark {
+
+    @Param({ "1000", "5000" })
+    int envSize;
+
+    @Param({ "10", "50" })
+    int repoCount;
+
+    private FromEnvReposConfigurationProcessor processor;
+    private Map<String, String> env;
+    private Properties systemProperties;
+    private Map<String, String> configuration;
+    private List<RepoFromEnv> reposFromEnv;
+    private File projectDir;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        processor = newProcessor();
+        env = new HashMap<>();
+        for (int i = 0; i < envSize; i++) {
+            env.put("SOME_VARIABLE_" + i, "value of variable " + i);
+        }
+        for (int i = 0; i < repoCount; i++) {
+            String keyPrefix = FromEnvReposConfigurationProcessor.KEY_PREFIX_MVN_SETTINGS_REPO + "_R" + i;
+            env.put(keyPrefix + FromEnvReposConfigurationProcessor.KEY_SUFFIX_URL, "https://repo" + i + ".example.org/maven2");
+            env.put(keyPrefix + FromEnvReposConfigurationProcessor.KEY_SUFFIX_USERNAME, "user" + i);
+            env.put(keyPrefix + FromEnvReposConfigurationProcessor.KEY_SUFFIX_PASSWORD, "password" + i);
+            env.put(keyPrefix + FromEnvReposConfigurationProcessor.KEY_SUFFIX_INCLUDES, "org.example.group" + i + ".*");
+            env.put(keyPrefix + FromEnvReposConfigurationProcessor.KEY_SUFFIX_CONNECT_TIMEOUT, "5000");
+        }
+        systemProperties = new Properties();
+        systemProperties.putAll(System.getProperties());
+        configuration = FromEnvReposConfigurationProcessor.getConfigurationProperties(env, systemProperties);
+        projectDir = new File("target");
+        reposFromEnv = processor.getReposFromConfiguration(configuration, projectDir);
+    }
+
+    @Benchmark
+    public Map<String, String> getConfigurationProperties() {
+        return FromEnvReposConfigurationProcessor.getConfigurationProperties(env, systemProperties);
+    }
+
+    @Benchmark
+    public List<RepoFromEnv> getReposFromConfiguration() {
+        return processor.getReposFromConfiguration(configuration, projectDir);
+    }
+
+    @Benchmark
+    public MavenExecutionRequest configureMavenExecution() {
+        MavenExecutionRequest request = new DefaultMavenExecutionRequest();
+        for (int i = 0; i < repoCount; i++) {
+            request.addRemoteRepository(new MavenArtifactRepository("settingsRepo" + i, "https://settings" + i + ".example.org/maven2",
+                    new DefaultRepositoryLayout(), null, null));
+            Mirror mirror = new Mirror();
+            mirror.setId("mirror" + i);
+            mirror.setUrl("https://mirror" + i + ".example.org/maven2");
+            mirror.setMirrorOf("settingsRepo" + i);
+            request.addMirror(mirror);
+        }
+        processor.configureMavenExecution(request, reposFromEnv, false);
+        return request;
+    }
+
+    static FromEnvReposConfigurationProcessor newProcessor() throws ReflectiveOperationException {
+        FromEnvReposConfigurationProcessor processor = new FromEnvReposConfigurationProcessor();
+        // the logger is injected by the container in Maven
+        Field loggerField = FromEnvReposConfigurationProcessor.class.getDeclaredField("logger");
+        loggerField.setAccessible(true);
+        loggerField.set(processor, new ConsoleLogger(Logger.LEVEL_DISABLED, "benchmark"));
+        return processor;
+    }
+}
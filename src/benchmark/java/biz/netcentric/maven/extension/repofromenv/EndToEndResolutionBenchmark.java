@@ -0,0 +1,297 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Runs Maven with the extension against local stand-in HTTP repositories (with injected latency) to resolve a synthetic dependency
+ * graph, comparing the repository order (env repositories first or last) and the mirror bypass (on or off).
+ *
+ * <p>
+ * The graph is a binary tree of poms imported via scope {@code import}, so it is resolved while building the project model and the
+ * build runs without any plugins (and with an empty local repository for every run). The stand-ins are:
+ * </p>
+ * <ul>
+ * <li>the repository from env serving the graph,</li>
+ * <li>an empty repository replacing {@code central} in {@code settings.xml},</li>
+ * <li>a mirror of all other repositories also serving the graph (with twice the latency, like a remote corporate proxy).</li>
+ * </ul>
+ *
+ * <p>
+ * The extension is activated via {@code .mvn/extensions.xml} (as {@code settings.xml} is only processed along with it in that case).
+ * Usage: {@code EndToEndResolutionBenchmark <extension groupId:artifactId:version> <extension jar> <extension pom> <maven home> [rounds]
+ * [latency in ms]}
+ * </p>
+ */
+public class EndToEndResolutionBenchmark {
+
+    static final String GROUP_ID = "org.example.synthetic";
+    static final String VERSION = "1.0";
+    static final int ARTIFACT_COUNT = 63;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 4) {
+            System.err.println("Usage: EndToEndResolutionBenchmark <extension groupId:artifactId:version> <extension jar> <extension pom> "
+                    + "<maven home> [rounds] [latency in ms]");
+            System.exit(1);
+        }
+        String[] extensionCoordinates = args[0].split(":");
+        Path extensionJar = Paths.get(args[1]);
+        Path extensionPom = Paths.get(args[2]);
+        Path mavenHome = Paths.get(args[3]);
+        int rounds = args.length > 4 ? Integer.parseInt(args[4]) : 3;
+        int latencyMs = args.length > 5 ? Integer.parseInt(args[5]) : 20;
+
+        Map<String, byte[]> graph = createSyntheticGraph();
+        Path workDir = Files.createTempDirectory("repos-from-env-benchmark");
+        boolean succeeded = false;
+        try (StandInRepository envRepository = new StandInRepository(graph, latencyMs);
+                StandInRepository centralRepository = new StandInRepository(Collections.emptyMap(), latencyMs);
+                StandInRepository mirror = new StandInRepository(graph, latencyMs * 2)) {
+            Path projectDir = createProject(workDir, extensionCoordinates);
+            Path settingsFile = createSettings(workDir, centralRepository, mirror);
+
+            System.out.println("Resolving " + ARTIFACT_COUNT + " poms with " + latencyMs + "ms latency (median of " + rounds + " rounds)");
+            System.out.println(String.format("%-10s %-8s %10s %10s %10s %10s", "env repos", "bypass", "time (ms)", "env repo", "central",
+                    "mirror"));
+            for (boolean envReposFirst : new boolean[] { true, false }) {
+                for (boolean bypassMirrors : new boolean[] { true, false }) {
+                    List<Long> timesMs = new ArrayList<>();
+                    for (StandInRepository repository : new StandInRepository[] { envRepository, centralRepository, mirror }) {
+                        repository.resetRequests();
+                    }
+                    for (int round = 0; round < rounds; round++) {
+                        Map<String, String> env = new HashMap<>();
+                        env.put(FromEnvReposConfigurationProcessor.KEY_PREFIX_MVN_SETTINGS_REPO
+                                + FromEnvReposConfigurationProcessor.KEY_SUFFIX_URL, envRepository.getUrl());
+                        env.put(FromEnvReposConfigurationProcessor.KEY_ENV_REPOS_FIRST, String.valueOf(envReposFirst));
+                        env.put(FromEnvReposConfigurationProcessor.KEY_DISABLE_BYPASS_MIRRORS, String.valueOf(!bypassMirrors));
+                        Path logFile = workDir.resolve("build-" + envReposFirst + "-" + bypassMirrors + "-" + round + ".log");
+                        Path localRepository = workDir.resolve("local-repository-" + envReposFirst + "-" + bypassMirrors + "-" + round);
+                        installExtension(localRepository, extensionCoordinates, extensionJar, extensionPom);
+                        timesMs.add(runMaven(mavenHome, projectDir, settingsFile, localRepository, env, logFile));
+                    }
+                    Collections.sort(timesMs);
+                    System.out.println(String.format("%-10s %-8s %10d %10d %10d %10d", envReposFirst ? "first" : "last",
+                            bypassMirrors ? "on" : "off", timesMs.get(timesMs.size() / 2), envRepository.getRequests() / rounds,
+                            centralRepository.getRequests() / rounds, mirror.getRequests() / rounds));
+                }
+            }
+            succeeded = true;
+        } finally {
+            if (succeeded) {
+                deleteRecursively(workDir);
+            } else {
+                System.err.println("Build logs are kept in " + workDir);
+            }
+        }
+    }
+
+    /**
+     * @return the duration of the build in ms
+     */
+    static long runMaven(Path mavenHome, Path projectDir, Path settingsFile, Path localRepository, Map<String, String> env,
+            Path logFile) throws IOException, InterruptedException {
+        boolean windows = System.getProperty("os.name").toLowerCase().startsWith("windows");
+        ProcessBuilder processBuilder = new ProcessBuilder(mavenHome.resolve("bin").resolve(windows ? "mvn.cmd" : "mvn").toString(),
+                "-B", "-s", settingsFile.toString(), "-Dmaven.repo.local=" + localRepository, "validate")
+                        .directory(projectDir.toFile())
+                        .redirectErrorStream(true)
+                        .redirectOutput(logFile.toFile());
+        // only the configuration of the scenario applies
+        processBuilder.environment().keySet().removeIf(key -> key.startsWith(FromEnvReposConfigurationProcessor.KEY_PREFIX_CONFIGURATION));
+        processBuilder.environment().putAll(env);
+
+        long startTime = System.nanoTime();
+        Process process = processBuilder.start();
+        int exitCode = process.waitFor();
+        long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        if (exitCode != 0) {
+            throw new IllegalStateException("Build failed with exit code " + exitCode + ", see " + logFile);
+        }
+        return durationMs;
+    }
+
+    /**
+     * @return the content of the repository by path, every pom imports the poms of its two children
+     */
+    static Map<String, byte[]> createSyntheticGraph() {
+        Map<String, byte[]> content = new HashMap<>();
+        for (int i = 0; i < ARTIFACT_COUNT; i++) {
+            StringBuilder imports = new StringBuilder();
+            for (int child = 2 * i + 1; child <= 2 * i + 2 && child < ARTIFACT_COUNT; child++) {
+                imports.append(importDependency(GROUP_ID, "lib-" + child, VERSION));
+            }
+            String artifactId = "lib-" + i;
+            byte[] pom = pom(GROUP_ID, artifactId, VERSION, imports.toString()).getBytes(StandardCharsets.UTF_8);
+            String path = GROUP_ID.replace('.', '/') + "/" + artifactId + "/" + VERSION + "/" + artifactId + "-" + VERSION + ".pom";
+            content.put(path, pom);
+            content.put(path + ".sha1", sha1(pom).getBytes(StandardCharsets.US_ASCII));
+        }
+        return content;
+    }
+
+    static Path createProject(Path workDir, String[] extensionCoordinates) throws IOException {
+        Path projectDir = Files.createDirectories(workDir.resolve("project"));
+        Files.write(projectDir.resolve("pom.xml"),
+                pom("org.example.benchmark", "project", "1", importDependency(GROUP_ID, "lib-0", VERSION)).getBytes(StandardCharsets.UTF_8));
+        String extensions = "<extensions>\n"
+                + "  <extension><groupId>" + extensionCoordinates[0] + "</groupId><artifactId>" + extensionCoordinates[1]
+                + "</artifactId><version>" + extensionCoordinates[2] + "</version></extension>\n"
+                + "</extensions>\n";
+        Files.write(Files.createDirectories(projectDir.resolve(".mvn")).resolve("extensions.xml"),
+                extensions.getBytes(StandardCharsets.UTF_8));
+        return projectDir;
+    }
+
+    /**
+     * Puts the extension into the (otherwise empty) local repository as if it was installed locally.
+     */
+    static void installExtension(Path localRepository, String[] extensionCoordinates, Path extensionJar, Path extensionPom)
+            throws IOException {
+        Path dir = Files.createDirectories(localRepository.resolve(extensionCoordinates[0].replace('.', '/'))
+                .resolve(extensionCoordinates[1]).resolve(extensionCoordinates[2]));
+        String baseName = extensionCoordinates[1] + "-" + extensionCoordinates[2];
+        Files.copy(extensionJar, dir.resolve(baseName + ".jar"));
+        Files.copy(extensionPom, dir.resolve(baseName + ".pom"));
+    }
+
+    static Path createSettings(Path workDir, StandInRepository centralRepository, StandInRepository mirror) throws IOException {
+        String settings = "<settings>\n"
+                + "  <mirrors>\n"
+                + "    <mirror><id>stand-in-mirror</id><url>" + mirror.getUrl() + "</url><mirrorOf>*,!central</mirrorOf></mirror>\n"
+                + "  </mirrors>\n"
+                + "  <profiles>\n"
+                + "    <profile>\n"
+                + "      <id>stand-in-central</id>\n"
+                + "      <repositories><repository><id>central</id><url>" + centralRepository.getUrl() + "</url></repository></repositories>\n"
+                + "      <pluginRepositories><pluginRepository><id>central</id><url>" + centralRepository.getUrl()
+                + "</url></pluginRepository></pluginRepositories>\n"
+                + "    </profile>\n"
+                + "  </profiles>\n"
+                + "  <activeProfiles><activeProfile>stand-in-central</activeProfile></activeProfiles>\n"
+                + "</settings>\n";
+        Path settingsFile = workDir.resolve("settings.xml");
+        Files.write(settingsFile, settings.getBytes(StandardCharsets.UTF_8));
+        return settingsFile;
+    }
+
+    private static String pom(String groupId, String artifactId, String version, String imports) {
+        return "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n"
+                + "  <modelVersion>4.0.0</modelVersion>\n"
+                + "  <groupId>" + groupId + "</groupId>\n"
+                + "  <artifactId>" + artifactId + "</artifactId>\n"
+                + "  <version>" + version + "</version>\n"
+                + "  <packaging>pom</packaging>\n"
+                + "  <dependencyManagement><dependencies>\n" + imports + "  </dependencies></dependencyManagement>\n"
+                + "</project>\n";
+    }
+
+    private static String importDependency(String groupId, String artifactId, String version) {
+        return "    <dependency><groupId>" + groupId + "</groupId><artifactId>" + artifactId + "</artifactId><version>" + version
+                + "</version><type>pom</type><scope>import</scope></dependency>\n";
+    }
+
+    private static String sha1(byte[] content) {
+        try {
+            StringBuilder hex = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-1").digest(content)) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not supported by JVM", e);
+        }
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    /**
+     * Serves fixed content (by path) via HTTP, every request is delayed by the given latency.
+     */
+    static final class StandInRepository implements Closeable {
+
+        private final HttpServer server;
+        private final ExecutorService executor = Executors.newFixedThreadPool(16);
+        private final AtomicInteger requests = new AtomicInteger();
+
+        StandInRepository(Map<String, byte[]> content, int latencyMs) throws IOException {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+            server.createContext("/", exchange -> {
+                requests.incrementAndGet();
+                try {
+                    Thread.sleep(latencyMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                byte[] body = content.get(exchange.getRequestURI().getPath().substring(1));
+                if (body == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                } else if ("HEAD".equals(exchange.getRequestMethod())) {
+                    exchange.sendResponseHeaders(200, -1);
+                } else {
+                    exchange.sendResponseHeaders(200, body.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(body);
+                    }
+                }
+                exchange.close();
+            });
+            server.setExecutor(executor);
+            server.start();
+        }
+
+        String getUrl() {
+            return "http://" + server.getAddress().getAddress().getHostAddress() + ":" + server.getAddress().getPort() + "/";
+        }
+
+        int getRequests() {
+            return requests.get();
+        }
+
+        void resetRequests() {
+            requests.set(0);
+        }
+
+        @Override
+        public void close() {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.aether.repository.MirrorSelector;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.util.repository.DefaultMirrorSelector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the mirror selection for all repositories of a build when bypassing mirrors via the {@link BypassingMirrorSelector}
+ * with the equivalent manual configuration (excluding all repositories from env in the {@code mirrorOf} of every mirror).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class MirrorBypassBenchmark {
+
+    @Param({ "10", "50" })
+    int repoCount;
+
+    @Param({ "5", "30" })
+    int mirrorCount;
+
+    private List<RemoteRepository> repositories;
+    private MirrorSelector bypassingMirrorSelector;
+    private MirrorSelector excludingMirrorSelector;
+
+    @Setup
+    public void setup() {
+        repositories = new ArrayList<>();
+        Set<String> envRepoIds = new LinkedHashSet<>();
+        for (int i = 0; i < repoCount; i++) {
+            String envRepoId = FromEnvReposConfigurationProcessor.REPO_ID_PREFIX + "R" + i;
+            envRepoIds.add(envRepoId);
+            repositories.add(new RemoteRepository.Builder(envRepoId, "default", "https://repo" + i + ".example.org/maven2").build());
+            repositories.add(new RemoteRepository.Builder("settingsRepo" + i, "default", "https://settings" + i + ".example.org/maven2")
+                    .build());
+        }
+
+        DefaultMirrorSelector mirrors = new DefaultMirrorSelector();
+        DefaultMirrorSelector mirrorsExcludingEnvRepos = new DefaultMirrorSelector();
+        String envRepoExclusions = envRepoIds.stream().map(id -> ",!" + id).reduce("", String::concat);
+        for (int i = 0; i < mirrorCount; i++) {
+            // the last mirror catches all remaining repositories
+            String mirrorOf = i == mirrorCount - 1 ? "external:*" : "settingsRepo" + i;
+            mirrors.add("mirror" + i, "https://mirror" + i + ".example.org/maven2", "default", false, mirrorOf, null);
+            mirrorsExcludingEnvRepos.add("mirror" + i, "https://mirror" + i + ".example.org/maven2", "default", false,
+                    mirrorOf + envRepoExclusions, null);
+        }
+        bypassingMirrorSelector = new BypassingMirrorSelector(envRepoIds, mirrors);
+        excludingMirrorSelector = mirrorsExcludingEnvRepos;
+    }
+
+    @Benchmark
+    public void bypassingMirrorSelector(Blackhole blackhole) {
+        for (RemoteRepository repository : repositories) {
+            blackhole.consume(bypassingMirrorSelector.getMirror(repository));
+        }
+    }
+
+    @Benchmark
+    public void excludingMirrorOf(Blackhole blackhole) {
+        for (RemoteRepository repository : repositories) {
+            blackhole.consume(excludingMirrorSelector.getMirror(repository));
+        }
+    }
+}
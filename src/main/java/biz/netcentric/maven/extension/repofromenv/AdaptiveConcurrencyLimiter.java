@@ -0,0 +1,178 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the number of concurrent downloads from one repository with AIMD (additive increase, multiplicative decrease): the limit
+ * is increased by one for every window of successful downloads and halved if the repository throttles (HTTP status 429 or 503).
+ * The limiter also provides the threads to run up to the maximum limit of downloads concurrently.
+ */
+class AdaptiveConcurrencyLimiter {
+
+    static final int MIN_LIMIT = 1;
+
+    // halving the limit again for downloads that were already in flight at the time of the last decrease would overreact
+    private static final long DECREASE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final int STATUS_TOO_MANY_REQUESTS = 429;
+    private static final int STATUS_SERVICE_UNAVAILABLE = 503;
+
+    private final int maxLimit;
+    private final ThreadPoolExecutor executor;
+
+    private double limit;
+    private int inFlight;
+    private long lastDecreaseNanos;
+
+    private int lowestLimit;
+    private int highestLimit;
+    private long downloads;
+    private long throttled;
+    private long bytes;
+    private long firstAcquireNanos;
+    private long lastReleaseNanos;
+
+    AdaptiveConcurrencyLimiter(int initialLimit, int maxLimit) {
+        this.maxLimit = Math.max(MIN_LIMIT, maxLimit);
+        this.limit = Math.max(MIN_LIMIT, Math.min(initialLimit, this.maxLimit));
+        this.lowestLimit = getLimit();
+        this.highestLimit = getLimit();
+        this.lastDecreaseNanos = System.nanoTime() - DECREASE_INTERVAL_NANOS;
+        // the number of downloads in flight never exceeds the limit, so tasks never queue for long
+        this.executor = new ThreadPoolExecutor(this.maxLimit, this.maxLimit, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "repos-from-env-adaptive-concurrency");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @return the executor to run downloads on once their permits are acquired (at most {@code maxLimit} threads)
+     */
+    ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Waits until the limit allows at least one more download.
+     *
+     * @param requested the number of downloads the caller would like to start
+     * @return the number of downloads the caller may start (between 1 and requested), to be passed to
+     *         {@link #release(int, int, int, long)} once done (or to {@link #releaseUnused(int)} if the downloads are not started)
+     * @throws InterruptedException if interrupted while waiting, no permit is granted then
+     */
+    synchronized int acquire(int requested) throws InterruptedException {
+        while (inFlight >= getLimit()) {
+            wait();
+        }
+        int granted = Math.max(1, Math.min(requested, getLimit() - inFlight));
+        if (downloads == 0 && inFlight == 0) {
+            firstAcquireNanos = System.nanoTime();
+        }
+        inFlight += granted;
+        return granted;
+    }
+
+    /**
+     * Takes up to the requested number of permits without waiting, for additional connections of a download that already holds a
+     * permit (e.g. its ranges). Those permits do not count as downloads and do not adapt the limit.
+     *
+     * @return the number of permits taken (0 if the limit is reached), to be passed to {@link #releaseAdditional(int)}
+     */
+    synchronized int tryAcquireAdditional(int requested) {
+        int granted = Math.max(0, Math.min(requested, getLimit() - inFlight));
+        inFlight += granted;
+        return granted;
+    }
+
+    synchronized void releaseAdditional(int granted) {
+        inFlight -= granted;
+        notifyAll();
+    }
+
+    /**
+     * Returns permits acquired for downloads that were never started (e.g. because the build was interrupted). Those neither count
+     * as downloads nor adapt the limit.
+     */
+    synchronized void releaseUnused(int granted) {
+        inFlight -= granted;
+        notifyAll();
+    }
+
+    synchronized void release(int granted, int succeeded, int throttledCount, long downloadedBytes) {
+        long now = System.nanoTime();
+        inFlight -= granted;
+        downloads += granted;
+        throttled += throttledCount;
+        bytes += downloadedBytes;
+        lastReleaseNanos = now;
+
+        if (throttledCount > 0) {
+            if (now - lastDecreaseNanos >= DECREASE_INTERVAL_NANOS) {
+                limit = Math.max(MIN_LIMIT, Math.floor(limit / 2));
+                lastDecreaseNanos = now;
+            }
+        } else {
+            // roughly one increment per completed window of "limit" downloads
+            limit = Math.min(maxLimit, limit + (double) succeeded / limit);
+        }
+        lowestLimit = Math.min(lowestLimit, getLimit());
+        highestLimit = Math.max(highestLimit, getLimit());
+        notifyAll();
+    }
+
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    synchronized String getSummary() {
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(lastReleaseNanos - firstAcquireNanos);
+        return "concurrency " + getLimit() + " (range " + lowestLimit + "-" + highestLimit + ", max " + maxLimit + "), "
+                + downloads + " downloads, " + throttled + " throttled"
+                + (elapsedMillis > 0 ? ", " + (bytes / elapsedMillis) + " kB/s" : "");
+    }
+
+    /**
+     * Detects throttling from the HTTP status code of the transport exception. Only the native http transport exposes the status code
+     * ({@code HttpResponseException} and {@code HttpRFC9457Exception}, both neither on the compile classpath nor part of the resolver
+     * API), the wagon transport only reports it in the message, so its downloads are not detected as throttled.
+     */
+    static boolean isThrottled(Exception exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            int statusCode = getStatusCode(cause);
+            if (statusCode == STATUS_TOO_MANY_REQUESTS || statusCode == STATUS_SERVICE_UNAVAILABLE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the status code of the given exception or -1 if it does not carry one
+     */
+    private static int getStatusCode(Throwable throwable) {
+        try {
+            Method method = throwable.getClass().getMethod("getStatusCode");
+            if (method.getReturnType() == int.class) {
+                return (int) method.invoke(throwable);
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // no status code
+        }
+        return -1;
+    }
+}
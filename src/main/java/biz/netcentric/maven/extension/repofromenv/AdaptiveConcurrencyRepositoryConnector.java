@@ -0,0 +1,199 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.spi.connector.ArtifactDownload;
+import org.eclipse.aether.spi.connector.MetadataDownload;
+import org.eclipse.aether.spi.connector.RepositoryConnector;
+import org.eclipse.aether.spi.connector.Transfer;
+import org.eclipse.aether.transfer.ArtifactTransferException;
+import org.eclipse.aether.transfer.MetadataTransferException;
+
+/**
+ * Passes downloads on to the delegate one by one, each as soon as the {@link AdaptiveConcurrencyLimiter} of the repository (shared by
+ * all connectors and threads of the build) grants a permit, running them concurrently on the threads of the limiter. Downloads that
+ * failed because the repository throttled are retried with an exponential backoff.
+ */
+class AdaptiveConcurrencyRepositoryConnector extends ForwardingRepositoryConnector {
+
+    static final int MAX_RETRIES = 3;
+    static final long INITIAL_BACKOFF_MS = 500;
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final long initialBackoffMs;
+
+    AdaptiveConcurrencyRepositoryConnector(RepositoryConnector delegate, RemoteRepository repository, AdaptiveConcurrencyLimiter limiter) {
+        this(delegate, repository, limiter, INITIAL_BACKOFF_MS);
+    }
+
+    AdaptiveConcurrencyRepositoryConnector(RepositoryConnector delegate, RemoteRepository repository, AdaptiveConcurrencyLimiter limiter,
+            long initialBackoffMs) {
+        super(delegate, repository);
+        this.limiter = limiter;
+        this.initialBackoffMs = initialBackoffMs;
+    }
+
+    @Override
+    public void get(Collection<? extends ArtifactDownload> artifactDownloads, Collection<? extends MetadataDownload> metadataDownloads) {
+        List<Transfer> pending = new ArrayList<>();
+        pending.addAll(nullToEmpty(artifactDownloads));
+        pending.addAll(nullToEmpty(metadataDownloads));
+
+        for (int attempt = 0; !pending.isEmpty(); attempt++) {
+            if (attempt > 0) {
+                if (!backOff(attempt)) {
+                    break;
+                }
+                pending.forEach(AdaptiveConcurrencyRepositoryConnector::resetException);
+            }
+            List<Transfer> throttled = getConcurrently(pending);
+            if (attempt == MAX_RETRIES) {
+                break;
+            }
+            pending = throttled;
+        }
+    }
+
+    /**
+     * @return the transfers that were throttled
+     */
+    private List<Transfer> getConcurrently(List<Transfer> transfers) {
+        if (transfers.size() == 1) {
+            try {
+                limiter.acquire(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                setInterrupted(transfers.get(0), e);
+                return Collections.emptyList();
+            }
+            return get(transfers.get(0)) ? transfers : Collections.emptyList();
+        }
+        List<Future<Boolean>> futures = new ArrayList<>();
+        // a transfer is claimed either by its task (which then releases the permit) or by the caller when cancelling it
+        List<AtomicBoolean> claims = new ArrayList<>();
+        for (Transfer transfer : transfers) {
+            try {
+                limiter.acquire(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                transfers.subList(futures.size(), transfers.size()).forEach(notStarted -> setInterrupted(notStarted, e));
+                break;
+            }
+            AtomicBoolean claimed = new AtomicBoolean();
+            claims.add(claimed);
+            futures.add(limiter.getExecutor().submit(() -> claimed.compareAndSet(false, true) && get(transfer)));
+        }
+        List<Transfer> throttled = new ArrayList<>();
+        RuntimeException failure = null;
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                if (futures.get(i).get()) {
+                    throttled.add(transfers.get(i));
+                }
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+                        : new IllegalStateException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                for (int j = i; j < futures.size(); j++) {
+                    if (claims.get(j).compareAndSet(false, true)) {
+                        // never started, so its task will not release the permit
+                        futures.get(j).cancel(false);
+                        limiter.releaseUnused(1);
+                        setInterrupted(transfers.get(j), e);
+                    } else {
+                        futures.get(j).cancel(true);
+                    }
+                }
+                break;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return throttled;
+    }
+
+    /**
+     * Performs a single transfer with an acquired permit and releases the permit.
+     *
+     * @return {@code true} if the transfer was throttled
+     */
+    private boolean get(Transfer transfer) {
+        boolean throttled = false;
+        long bytes = 0;
+        try {
+            if (transfer instanceof ArtifactDownload) {
+                delegate.get(Collections.singletonList((ArtifactDownload) transfer), Collections.emptyList());
+            } else {
+                delegate.get(Collections.emptyList(), Collections.singletonList((MetadataDownload) transfer));
+            }
+        } finally {
+            if (transfer.getException() == null) {
+                bytes = getDownloadedBytes(transfer);
+            } else {
+                throttled = AdaptiveConcurrencyLimiter.isThrottled(transfer.getException());
+            }
+            limiter.release(1, throttled ? 0 : 1, throttled ? 1 : 0, bytes);
+        }
+        return throttled;
+    }
+
+    private boolean backOff(int attempt) {
+        try {
+            Thread.sleep(initialBackoffMs << (attempt - 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static long getDownloadedBytes(Transfer transfer) {
+        if (transfer instanceof ArtifactDownload) {
+            ArtifactDownload artifactDownload = (ArtifactDownload) transfer;
+            return artifactDownload.getFile() != null && !artifactDownload.isExistenceCheck() ? artifactDownload.getFile().length() : 0;
+        } else {
+            MetadataDownload metadataDownload = (MetadataDownload) transfer;
+            return metadataDownload.getFile() != null ? metadataDownload.getFile().length() : 0;
+        }
+    }
+
+    private void setInterrupted(Transfer transfer, InterruptedException cause) {
+        if (transfer instanceof ArtifactDownload) {
+            ArtifactDownload artifactDownload = (ArtifactDownload) transfer;
+            artifactDownload.setException(new ArtifactTransferException(artifactDownload.getArtifact(), repository,
+                    "Interrupted before transferring the artifact", cause));
+        } else {
+            MetadataDownload metadataDownload = (MetadataDownload) transfer;
+            metadataDownload.setException(new MetadataTransferException(metadataDownload.getMetadata(), repository,
+                    "Interrupted before transferring the metadata", cause));
+        }
+    }
+
+    private static void resetException(Transfer transfer) {
+        if (transfer instanceof ArtifactDownload) {
+            ((ArtifactDownload) transfer).setException(null);
+        } else {
+            ((MetadataDownload) transfer).setException(null);
+        }
+    }
+}
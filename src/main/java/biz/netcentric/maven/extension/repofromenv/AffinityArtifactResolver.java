@@ -0,0 +1,125 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.impl.ArtifactResolver;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.eclipse.sisu.Priority;
+
+/**
+ * Applies the {@link RepositoryAffinity} before resolution: for release artifacts of a known groupId the preferred repository from env
+ * is moved to the front of the repositories of the {@link ArtifactRequest} (if it is one of them), so the resolver asks it first and
+ * records it as the origin of the artifact. If it does not serve the artifact, the resolver continues with the remaining repositories
+ * in their original order. The repository from env that finally served a release artifact is recorded in the affinity.
+ *
+ * Decorates the resolver's default artifact resolver, without an active {@link RepositoryAffinity} requests are passed on as is.
+ */
+@Named
+@Singleton
+@Priority(10)
+public class AffinityArtifactResolver implements ArtifactResolver {
+
+    static final String DEFAULT_ARTIFACT_RESOLVER = "org.eclipse.aether.internal.impl.DefaultArtifactResolver";
+
+    private final ArtifactResolver delegate;
+
+    @Inject
+    public AffinityArtifactResolver(@Named(DEFAULT_ARTIFACT_RESOLVER) ArtifactResolver delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public ArtifactResult resolveArtifact(RepositorySystemSession session, ArtifactRequest request) throws ArtifactResolutionException {
+        return resolveArtifacts(session, Collections.singletonList(request)).get(0);
+    }
+
+    @Override
+    public List<ArtifactResult> resolveArtifacts(RepositorySystemSession session, Collection<? extends ArtifactRequest> requests)
+            throws ArtifactResolutionException {
+        EnvReposContext context = (EnvReposContext) session.getData().get(EnvReposContext.class);
+        if (context == null || context.getRepositoryAffinity() == null) {
+            return delegate.resolveArtifacts(session, requests);
+        }
+        RepositoryAffinity affinity = context.getRepositoryAffinity();
+        List<ArtifactRequest> orderedRequests = new ArrayList<>(requests.size());
+        List<RemoteRepository> preferredRepositories = new ArrayList<>(requests.size());
+        for (ArtifactRequest request : requests) {
+            RemoteRepository preferredRepository = null;
+            if (!request.getArtifact().isSnapshot()) {
+                List<RemoteRepository> envRepositories = request.getRepositories().stream()
+                        .filter(repository -> context.getRepo(repository.getId()) != null).collect(Collectors.toList());
+                preferredRepository = affinity.getPreferredRepository(request.getArtifact().getGroupId(), envRepositories);
+            }
+            preferredRepositories.add(preferredRepository);
+            orderedRequests.add(preferredRepository != null ? preferRepository(request, preferredRepository) : request);
+        }
+
+        List<ArtifactResult> results;
+        try {
+            results = delegate.resolveArtifacts(session, orderedRequests);
+        } catch (ArtifactResolutionException e) {
+            record(context, e.getResults(), preferredRepositories);
+            throw e;
+        }
+        record(context, results, preferredRepositories);
+        return results;
+    }
+
+    /**
+     * @return a copy of the request with the preferred repository moved to the front (the request itself is not modified)
+     */
+    static ArtifactRequest preferRepository(ArtifactRequest request, RemoteRepository preferredRepository) {
+        List<RemoteRepository> repositories = new ArrayList<>(request.getRepositories().size());
+        repositories.add(preferredRepository);
+        request.getRepositories().stream().filter(repository -> repository != preferredRepository).forEach(repositories::add);
+        return new ArtifactRequest(request.getArtifact(), repositories, request.getRequestContext())
+                .setDependencyNode(request.getDependencyNode())
+                .setTrace(request.getTrace());
+    }
+
+    private static void record(EnvReposContext context, List<ArtifactResult> results, List<RemoteRepository> preferredRepositories) {
+        RepositoryAffinity affinity = context.getRepositoryAffinity();
+        for (int i = 0; i < results.size(); i++) {
+            ArtifactResult result = results.get(i);
+            RemoteRepository preferredRepository = preferredRepositories.get(i);
+            String groupId = result.getRequest().getArtifact().getGroupId();
+            // artifacts from the local repository or the workspace do not tell anything about the remote repositories
+            RemoteRepository servingRepository = result.isResolved() && result.getRepository() instanceof RemoteRepository
+                    ? (RemoteRepository) result.getRepository() : null;
+            if (preferredRepository != null) {
+                if (servingRepository == null && result.isResolved()) {
+                    continue;
+                }
+                if (servingRepository != null && preferredRepository.getId().equals(servingRepository.getId())) {
+                    affinity.recordHit();
+                } else {
+                    affinity.recordMiss();
+                    affinity.recordStale(groupId, preferredRepository);
+                }
+            }
+            if (servingRepository != null && !result.getArtifact().isSnapshot() && context.getRepo(servingRepository.getId()) != null) {
+                affinity.recordServed(groupId, servingRepository);
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+
+/**
+ * A repository (in the default Maven 2 layout) contained in a zip or jar archive. Entries are read directly from the archive via
+ * the zip file system of the JDK, the central directory of the archive is read once to build a {@link FileRepositoryIndex}.
+ */
+class ArchiveRepository implements Closeable {
+
+    /** Separates the path of the archive from the path of the repository within the archive (as in jar URLs). */
+    static final String ROOT_SEPARATOR = "!/";
+
+    private static final String[] ARCHIVE_EXTENSIONS = { ".zip", ".jar" };
+
+    private final Path archiveFile;
+    private final FileSystem fileSystem;
+    private final Path root;
+    private final FileRepositoryIndex index;
+
+    private ArchiveRepository(Path archiveFile, FileSystem fileSystem, Path root, FileRepositoryIndex index) {
+        this.archiveFile = archiveFile;
+        this.fileSystem = fileSystem;
+        this.root = root;
+        this.index = index;
+    }
+
+    /**
+     * @param rootPath the path of the repository within the archive (empty for the root of the archive)
+     */
+    static ArchiveRepository open(Path archiveFile, String rootPath) throws IOException {
+        // the class loader parameter selects the (Java 8 compatible) overload
+        FileSystem fileSystem = FileSystems.newFileSystem(archiveFile, (ClassLoader) null);
+        try {
+            Path root = fileSystem.getPath("/" + rootPath);
+            if (!Files.isDirectory(root)) {
+                throw new IOException("Path /" + rootPath + " does not exist in " + archiveFile);
+            }
+            return new ArchiveRepository(archiveFile, fileSystem, root, FileRepositoryIndex.build(root));
+        } catch (IOException | RuntimeException e) {
+            fileSystem.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return {@code true} if the URL (or plain path) points to a zip or jar file (optionally followed by {@link #ROOT_SEPARATOR} and
+     *         the path within the archive)
+     */
+    static boolean isArchiveUrl(String url) {
+        if (url.contains("://") && !url.startsWith("file:")) {
+            return false;
+        }
+        String archivePath = getArchivePath(url).toLowerCase(Locale.ROOT);
+        for (String extension : ARCHIVE_EXTENSIONS) {
+            if (archivePath.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static String getArchivePath(String url) {
+        int separatorPos = url.indexOf(ROOT_SEPARATOR);
+        return separatorPos >= 0 ? url.substring(0, separatorPos) : url;
+    }
+
+    static String getRootPath(String url) {
+        int separatorPos = url.indexOf(ROOT_SEPARATOR);
+        return separatorPos >= 0 ? url.substring(separatorPos + ROOT_SEPARATOR.length()) : "";
+    }
+
+    FileRepositoryIndex getIndex() {
+        return index;
+    }
+
+    Path getArchiveFile() {
+        return archiveFile;
+    }
+
+    /**
+     * Copies the entry with the given path (relative to the repository root) to the target file (replacing it atomically).
+     *
+     * @return the SHA-1 checksum of the copied content (as hex string)
+     */
+    String copy(String path, File targetFile) throws IOException {
+        Path target = targetFile.toPath();
+        Files.createDirectories(target.toAbsolutePath().getParent());
+        Path tmpFile = Files.createTempFile(target.toAbsolutePath().getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            MessageDigest digest = newSha1Digest();
+            try (InputStream in = new DigestInputStream(Files.newInputStream(root.resolve(path)), digest)) {
+                Files.copy(in, tmpFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(tmpFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return toHex(digest.digest());
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+    }
+
+    /**
+     * @return the SHA-1 checksum stored next to the entry with the given path or {@code null} if the archive does not contain one
+     */
+    String getSha1Checksum(String path) throws IOException {
+        Path checksumFile = root.resolve(path + ".sha1");
+        if (!Files.isRegularFile(checksumFile)) {
+            return null;
+        }
+        String content = new String(Files.readAllBytes(checksumFile), StandardCharsets.US_ASCII).trim();
+        // some tools append the file name to the checksum
+        int spacePos = content.indexOf(' ');
+        return (spacePos >= 0 ? content.substring(0, spacePos) : content).toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public void close() throws IOException {
+        fileSystem.close();
+    }
+
+    @Override
+    public String toString() {
+        return archiveFile + (root.getNameCount() > 0 ? ROOT_SEPARATOR + root.toString().substring(1) : "");
+    }
+
+    static MessageDigest newSha1Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not supported by JVM", e);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
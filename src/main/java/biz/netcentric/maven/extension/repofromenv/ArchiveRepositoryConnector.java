@@ -0,0 +1,109 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+
+import org.apache.maven.artifact.repository.ArtifactRepositoryPolicy;
+import org.codehaus.plexus.logging.Logger;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.spi.connector.ArtifactDownload;
+import org.eclipse.aether.spi.connector.ArtifactUpload;
+import org.eclipse.aether.spi.connector.MetadataDownload;
+import org.eclipse.aether.spi.connector.MetadataUpload;
+import org.eclipse.aether.spi.connector.RepositoryConnector;
+import org.eclipse.aether.transfer.ArtifactNotFoundException;
+import org.eclipse.aether.transfer.ArtifactTransferException;
+import org.eclipse.aether.transfer.MetadataNotFoundException;
+import org.eclipse.aether.transfer.MetadataTransferException;
+
+/**
+ * Serves artifacts and metadata from an {@link ArchiveRepository}, replacing the basic connector for repositories from env pointing
+ * to a zip or jar file. Content is validated against SHA-1 checksums contained in the archive (if any) according to the checksum
+ * policy. The repository is read-only.
+ */
+class ArchiveRepositoryConnector implements RepositoryConnector {
+
+    private final RemoteRepository repository;
+    private final ArchiveRepository archiveRepository;
+    private final Logger logger;
+
+    ArchiveRepositoryConnector(RemoteRepository repository, ArchiveRepository archiveRepository, Logger logger) {
+        this.repository = repository;
+        this.archiveRepository = archiveRepository;
+        this.logger = logger;
+    }
+
+    @Override
+    public void get(Collection<? extends ArtifactDownload> artifactDownloads, Collection<? extends MetadataDownload> metadataDownloads) {
+        for (ArtifactDownload download : ForwardingRepositoryConnector.nullToEmpty(artifactDownloads)) {
+            if (!archiveRepository.getIndex().contains(download.getArtifact())) {
+                download.setException(new ArtifactNotFoundException(download.getArtifact(), repository));
+            } else if (!download.isExistenceCheck()) {
+                try {
+                    copy(FileRepositoryIndex.getPath(download.getArtifact()), download.getFile(), download.getChecksumPolicy());
+                } catch (IOException e) {
+                    download.setException(new ArtifactTransferException(download.getArtifact(), repository, e));
+                }
+            }
+        }
+        for (MetadataDownload download : ForwardingRepositoryConnector.nullToEmpty(metadataDownloads)) {
+            if (!archiveRepository.getIndex().contains(download.getMetadata())) {
+                download.setException(new MetadataNotFoundException(download.getMetadata(), repository));
+            } else {
+                try {
+                    copy(FileRepositoryIndex.getPath(download.getMetadata()), download.getFile(), download.getChecksumPolicy());
+                } catch (IOException e) {
+                    download.setException(new MetadataTransferException(download.getMetadata(), repository, e));
+                }
+            }
+        }
+    }
+
+    private void copy(String path, File file, String checksumPolicy) throws IOException {
+        String actualChecksum = archiveRepository.copy(path, file);
+        if (ArtifactRepositoryPolicy.CHECKSUM_POLICY_IGNORE.equals(checksumPolicy)) {
+            return;
+        }
+        String expectedChecksum = archiveRepository.getSha1Checksum(path);
+        if (expectedChecksum != null && !expectedChecksum.equals(actualChecksum)) {
+            String message = "Checksum validation failed for " + path + " in " + archiveRepository + ", expected " + expectedChecksum
+                    + " but is " + actualChecksum;
+            if (ArtifactRepositoryPolicy.CHECKSUM_POLICY_FAIL.equals(checksumPolicy)) {
+                file.delete();
+                throw new IOException(message);
+            }
+            logger.warn(message);
+        }
+    }
+
+    @Override
+    public void put(Collection<? extends ArtifactUpload> artifactUploads, Collection<? extends MetadataUpload> metadataUploads) {
+        for (ArtifactUpload upload : ForwardingRepositoryConnector.nullToEmpty(artifactUploads)) {
+            upload.setException(new ArtifactTransferException(upload.getArtifact(), repository,
+                    "Cannot deploy to repository archive " + archiveRepository));
+        }
+        for (MetadataUpload upload : ForwardingRepositoryConnector.nullToEmpty(metadataUploads)) {
+            upload.setException(new MetadataTransferException(upload.getMetadata(), repository,
+                    "Cannot deploy to repository archive " + archiveRepository));
+        }
+    }
+
+    @Override
+    public void close() {
+        // the archive stays open for the whole session
+    }
+
+    @Override
+    public String toString() {
+        return "archive connector for " + archiveRepository;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.codehaus.plexus.logging.Logger;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+
+/**
+ * Resolves a list of artifacts into the local repository on a bounded pool of background threads, while Maven continues with
+ * building the project graph. Artifacts are resolved with the regular repository system, so the downloads go through the same
+ * connectors, authentication, checksum validation and local repository bookkeeping as the downloads of Maven itself.
+ */
+class ArtifactPrefetcher {
+
+    static final long STOP_TIMEOUT_MS = 10000;
+
+    private final RepositorySystem repositorySystem;
+    private final Logger logger;
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicInteger resolved = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private int submitted;
+
+    ArtifactPrefetcher(RepositorySystem repositorySystem, int threads, Logger logger) {
+        this.repositorySystem = repositorySystem;
+        this.logger = logger;
+        int poolSize = Math.max(1, threads);
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "repos-from-env-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    void start(RepositorySystemSession session, List<RemoteRepository> repositories, List<Artifact> artifacts) {
+        for (Artifact artifact : artifacts) {
+            submitted++;
+            executor.execute(() -> prefetch(session, repositories, artifact));
+        }
+        // no further tasks, threads terminate once the queue is drained
+        executor.shutdown();
+    }
+
+    private void prefetch(RepositorySystemSession session, List<RemoteRepository> repositories, Artifact artifact) {
+        try {
+            repositorySystem.resolveArtifact(session, new ArtifactRequest(artifact, repositories, null));
+            resolved.incrementAndGet();
+        } catch (ArtifactResolutionException | RuntimeException e) {
+            failed.incrementAndGet();
+            logger.debug("Could not prefetch " + artifact + ": " + e);
+        }
+    }
+
+    boolean awaitCompletion(long timeoutMs) throws InterruptedException {
+        return executor.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Cancels all prefetches that have not been started yet and waits for the running ones to finish (interrupting them only after
+     * {@link #STOP_TIMEOUT_MS}, as an interrupted download is wasted).
+     */
+    void stop() {
+        executor.getQueue().clear();
+        try {
+            if (!executor.awaitTermination(STOP_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    String getSummary() {
+        int done = resolved.get() + failed.get();
+        return resolved.get() + " of " + submitted + " artifacts prefetched" + (failed.get() > 0 ? ", " + failed.get() + " failed" : "")
+                + (done < submitted ? ", " + (submitted - done) + " cancelled" : "");
+    }
+}
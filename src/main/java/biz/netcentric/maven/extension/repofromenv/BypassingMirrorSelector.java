@@ -0,0 +1,39 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.aether.repository.MirrorSelector;
+import org.eclipse.aether.repository.RemoteRepository;
+
+/**
+ * Never selects a mirror for the given repository ids and asks the mirror selector it wraps for all other repositories. This has
+ * the same effect as adding {@code !id} to the {@code mirrorOf} value of every mirror but leaves the mirrors as configured in
+ * {@code settings.xml} untouched.
+ */
+class BypassingMirrorSelector implements MirrorSelector {
+
+    private final Set<String> bypassedRepositoryIds;
+    private final MirrorSelector delegate;
+
+    BypassingMirrorSelector(Set<String> bypassedRepositoryIds, MirrorSelector delegate) {
+        this.bypassedRepositoryIds = new HashSet<>(bypassedRepositoryIds);
+        this.delegate = delegate;
+    }
+
+    @Override
+    public RemoteRepository getMirror(RemoteRepository repository) {
+        if (bypassedRepositoryIds.contains(repository.getId()) || delegate == null) {
+            return null;
+        }
+        return delegate.getMirror(repository);
+    }
+}
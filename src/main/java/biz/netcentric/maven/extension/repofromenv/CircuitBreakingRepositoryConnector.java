@@ -0,0 +1,71 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import java.util.Collection;
+
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.spi.connector.ArtifactDownload;
+import org.eclipse.aether.spi.connector.MetadataDownload;
+import org.eclipse.aether.spi.connector.RepositoryConnector;
+import org.eclipse.aether.transfer.ArtifactTransferException;
+import org.eclipse.aether.transfer.MetadataTransferException;
+
+/**
+ * Fails all downloads right away while the {@link RepositoryCircuitBreaker} of the repository is open and reports the outcome of the
+ * downloads of the delegate to it otherwise. Downloads are failed with a transfer error (not as not found), so the resolver continues
+ * with the next repository and does not remember the artifacts as missing.
+ */
+class CircuitBreakingRepositoryConnector extends ForwardingRepositoryConnector {
+
+    private final RepositoryCircuitBreaker circuitBreaker;
+
+    CircuitBreakingRepositoryConnector(RepositoryConnector delegate, RemoteRepository repository,
+            RepositoryCircuitBreaker circuitBreaker) {
+        super(delegate, repository);
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    @Override
+    public void get(Collection<? extends ArtifactDownload> artifactDownloads, Collection<? extends MetadataDownload> metadataDownloads) {
+        if (nullToEmpty(artifactDownloads).isEmpty() && nullToEmpty(metadataDownloads).isEmpty()) {
+            delegate.get(artifactDownloads, metadataDownloads);
+            return;
+        }
+        if (!circuitBreaker.allowRequest()) {
+            String message = "Skipped, circuit breaker for repository " + repository.getId() + " is open";
+            nullToEmpty(artifactDownloads).forEach(
+                    download -> download.setException(new ArtifactTransferException(download.getArtifact(), repository, message)));
+            nullToEmpty(metadataDownloads).forEach(
+                    download -> download.setException(new MetadataTransferException(download.getMetadata(), repository, message)));
+            return;
+        }
+
+        boolean completed = false;
+        try {
+            delegate.get(artifactDownloads, metadataDownloads);
+            completed = true;
+        } finally {
+            if (!completed) {
+                // an outcome has to be reported in any case, otherwise a half open circuit would never be closed or opened again
+                circuitBreaker.recordFailure();
+            }
+        }
+        nullToEmpty(artifactDownloads).forEach(download -> record(download.getException()));
+        nullToEmpty(metadataDownloads).forEach(download -> record(download.getException()));
+    }
+
+    private void record(Exception exception) {
+        if (exception != null && RepositoryCircuitBreaker.isConnectionFailure(exception)) {
+            circuitBreaker.recordFailure();
+        } else {
+            circuitBreaker.recordSuccess();
+        }
+    }
+}
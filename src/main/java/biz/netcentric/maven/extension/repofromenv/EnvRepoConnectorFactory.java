@@ -0,0 +1,106 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.codehaus.plexus.logging.Logger;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.spi.connector.RepositoryConnector;
+import org.eclipse.aether.spi.connector.RepositoryConnectorFactory;
+import org.eclipse.aether.transfer.NoRepositoryConnectorException;
+
+/**
+ * Wraps the connector of the basic connector factory for repositories from env to apply the per-repository configuration at
+ * resolution time. Other repositories are only wrapped to collect {@link RepositoryMetrics} (if enabled). For all other repositories
+ * (or if the extension is not active for the session) this factory declines with a {@link NoRepositoryConnectorException}, so the
+ * default connector is used as is.
+ */
+@Named("repos-from-env")
+public class EnvRepoConnectorFactory implements RepositoryConnectorFactory {
+
+    // must be higher than the priority of the basic connector factory (0)
+    static final float PRIORITY = 10;
+
+    @Inject
+    private Logger logger;
+
+    @Inject
+    @Named("basic")
+    private RepositoryConnectorFactory basicRepositoryConnectorFactory;
+
+    @Override
+    public RepositoryConnector newInstance(RepositorySystemSession session, RemoteRepository repository)
+            throws NoRepositoryConnectorException {
+        EnvReposContext context = (EnvReposContext) session.getData().get(EnvReposContext.class);
+        if (context == null) {
+            throw new NoRepositoryConnectorException(repository, "Repositories from env not active");
+        }
+        return newConnector(session, repository, context);
+    }
+
+    private RepositoryConnector newConnector(RepositorySystemSession session, RemoteRepository repository, EnvReposContext context)
+            throws NoRepositoryConnectorException {
+        RepoFromEnv repoFromEnv = context.getRepo(repository.getId());
+        if (repoFromEnv == null) {
+            if (context.getMetrics() == null) {
+                throw new NoRepositoryConnectorException(repository, "Not a repository from env");
+            }
+            RepositoryConnector connector = basicRepositoryConnectorFactory.newInstance(session, repository);
+            if (context.getMetrics() != null) {
+                connector = new MetricsRepositoryConnector(connector, repository, context.getMetrics().getStats(repository, false));
+            }
+            return connector;
+        }
+
+        ArchiveRepository archiveRepository = context.getArchiveRepository(repository.getId());
+        RepositoryConnector connector = archiveRepository != null
+                ? new ArchiveRepositoryConnector(repository, archiveRepository, logger)
+                : basicRepositoryConnectorFactory.newInstance(session, repository);
+        // proxies of the settings are only applied by the regular transport
+        if (context.getRangedDownloader() != null && archiveRepository == null && repository.getProxy() == null
+                && ("http".equals(repository.getProtocol()) || "https".equals(repository.getProtocol()))) {
+            connector = new RangedDownloadRepositoryConnector(connector, repository, session, repoFromEnv, context.getRangedDownloader(),
+                    context.getConcurrencyLimiter(repository.getId()), logger);
+        }
+        if (context.getMetrics() != null) {
+            connector = new MetricsRepositoryConnector(connector, repository, context.getMetrics().getStats(repository, true));
+        }
+        if (context.getConcurrencyLimiter(repository.getId()) != null) {
+            connector = new AdaptiveConcurrencyRepositoryConnector(connector, repository, context.getConcurrencyLimiter(repository.getId()));
+        }
+        if (context.getCircuitBreaker(repository.getId()) != null) {
+            connector = new CircuitBreakingRepositoryConnector(connector, repository, context.getCircuitBreaker(repository.getId()));
+        }
+        if (context.getSharedArtifactCache() != null && !"file".equals(repository.getProtocol())) {
+            connector = new SharedCachingRepositoryConnector(connector, repository, session,
+                    SharedArtifactCache.getAuthIdentity(repoFromEnv), context.getSharedArtifactCache(), logger);
+        }
+        if (context.getNotFoundCache() != null && !"file".equals(repository.getProtocol())) {
+            connector = new NotFoundCachingRepositoryConnector(connector, repository, session, context.getNotFoundCache());
+        }
+        if (context.getMetadataCache() != null && !"file".equals(repository.getProtocol())) {
+            connector = new MetadataCachingRepositoryConnector(connector, repository, session, context.getMetadataCache());
+        }
+        if (context.getFileIndex(repository.getId()) != null) {
+            connector = new IndexedFileRepositoryConnector(connector, repository, context.getFileIndex(repository.getId()));
+        }
+        if (!repoFromEnv.getGroupIdFilter().isAcceptAll()) {
+            connector = new RoutingRepositoryConnector(connector, repository, repoFromEnv.getGroupIdFilter());
+        }
+        return connector;
+    }
+
+    @Override
+    public float getPriority() {
+        return PRIORITY;
+    }
+}
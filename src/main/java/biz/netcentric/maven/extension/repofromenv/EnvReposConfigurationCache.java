@@ -0,0 +1,71 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+/**
+ * Keeps the repositories parsed from a given configuration (the relevant system properties and environment variables plus the
+ * multi module project directory), so long-lived Maven processes (e.g. the Maven daemon) only parse each distinct configuration
+ * once. The cached repositories are immutable, every caller receives its own list of them (all state of one execution is kept in the
+ * {@link EnvReposContext}).
+ */
+@Named
+@Singleton
+public class EnvReposConfigurationCache {
+
+    static final int MAX_ENTRIES = 16;
+
+    private final Map<List<Object>, List<RepoFromEnv>> reposByConfiguration = new LinkedHashMap<List<Object>, List<RepoFromEnv>>(
+            MAX_ENTRIES, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<Object>, List<RepoFromEnv>> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * @param configuration the (immutable) configuration properties
+     * @param parser parses the repositories if the configuration is not cached yet (invoked outside of any lock)
+     * @return a new (modifiable) list of the repositories for the configuration
+     */
+    List<RepoFromEnv> getRepos(Map<String, String> configuration, File multiModuleProjectDirectory,
+            BiFunction<Map<String, String>, File, List<RepoFromEnv>> parser) {
+        List<Object> key = Arrays.asList(configuration, multiModuleProjectDirectory);
+        List<RepoFromEnv> repos;
+        synchronized (reposByConfiguration) {
+            repos = reposByConfiguration.get(key);
+        }
+        if (repos == null) {
+            repos = Collections.unmodifiableList(new ArrayList<>(parser.apply(configuration, multiModuleProjectDirectory)));
+            synchronized (reposByConfiguration) {
+                reposByConfiguration.put(key, repos);
+            }
+        }
+        return new ArrayList<>(repos);
+    }
+
+    int size() {
+        synchronized (reposByConfiguration) {
+            return reposByConfiguration.size();
+        }
+    }
+}
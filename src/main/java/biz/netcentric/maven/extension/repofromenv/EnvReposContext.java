@@ -0,0 +1,241 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The repositories from env as configured for one Maven execution. It is handed over from the configuration processor to the
+ * repository session (see {@link EnvReposLifecycleParticipant}) to make it available at resolution time. The (immutable) repositories
+ * may be shared between executions, all state of one execution (like opened archives) is kept here.
+ */
+class EnvReposContext {
+
+    private final Map<String, RepoFromEnv> reposById = new LinkedHashMap<>();
+
+    private final Map<String, FileRepositoryIndex> fileIndexesByRepoId = new LinkedHashMap<>();
+    private final Map<String, ArchiveRepository> archiveRepositoriesByRepoId = new LinkedHashMap<>();
+
+    private boolean bypassMirrors;
+
+    private NotFoundCache notFoundCache;
+    private MetadataCache metadataCache;
+
+    private SharedArtifactCache sharedArtifactCache;
+
+    private RangedDownloader rangedDownloader;
+
+    private PrefetchList prefetchList;
+    private int prefetchThreads;
+    private boolean recordPrefetchList;
+    private ArtifactPrefetcher prefetcher;
+
+    private Path baseLocalRepositoryDir;
+    private FileRepositoryIndex baseLocalRepositoryIndex;
+
+    private Path inPlaceRepositoryDir;
+    private FileRepositoryIndex inPlaceRepositoryIndex;
+    private InPlaceRepositoryWorkspaceReader inPlaceWorkspaceReader;
+
+    private RepositoryAffinity repositoryAffinity;
+
+    private RepositoryMetrics metrics;
+    private Path metricsReportFile;
+
+    private final Map<String, AdaptiveConcurrencyLimiter> concurrencyLimitersByRepoId = new LinkedHashMap<>();
+
+    private final Map<String, RepositoryCircuitBreaker> circuitBreakersByRepoId = new LinkedHashMap<>();
+
+    EnvReposContext(List<RepoFromEnv> reposFromEnv) {
+        reposFromEnv.forEach(repoFromEnv -> reposById.put(repoFromEnv.getId(), repoFromEnv));
+    }
+
+    RepoFromEnv getRepo(String repositoryId) {
+        return reposById.get(repositoryId);
+    }
+
+    Map<String, RepoFromEnv> getReposById() {
+        return Collections.unmodifiableMap(reposById);
+    }
+
+    /**
+     * @return the index of the file repository with the given id or {@code null} if it is not indexed
+     */
+    FileRepositoryIndex getFileIndex(String repositoryId) {
+        return fileIndexesByRepoId.get(repositoryId);
+    }
+
+    void setFileIndex(String repositoryId, FileRepositoryIndex fileIndex) {
+        fileIndexesByRepoId.put(repositoryId, fileIndex);
+    }
+
+    /**
+     * @return the opened archive of the repository with the given id or {@code null} if it is not an archive repository
+     */
+    ArchiveRepository getArchiveRepository(String repositoryId) {
+        return archiveRepositoriesByRepoId.get(repositoryId);
+    }
+
+    Map<String, ArchiveRepository> getArchiveRepositoriesByRepoId() {
+        return Collections.unmodifiableMap(archiveRepositoriesByRepoId);
+    }
+
+    void setArchiveRepository(String repositoryId, ArchiveRepository archiveRepository) {
+        archiveRepositoriesByRepoId.put(repositoryId, archiveRepository);
+    }
+
+    boolean isBypassMirrors() {
+        return bypassMirrors;
+    }
+
+    void setBypassMirrors(boolean bypassMirrors) {
+        this.bypassMirrors = bypassMirrors;
+    }
+
+    MetadataCache getMetadataCache() {
+        return metadataCache;
+    }
+
+    void setMetadataCache(MetadataCache metadataCache) {
+        this.metadataCache = metadataCache;
+    }
+
+    NotFoundCache getNotFoundCache() {
+        return notFoundCache;
+    }
+
+    void setNotFoundCache(NotFoundCache notFoundCache) {
+        this.notFoundCache = notFoundCache;
+    }
+
+    SharedArtifactCache getSharedArtifactCache() {
+        return sharedArtifactCache;
+    }
+
+    void setSharedArtifactCache(SharedArtifactCache sharedArtifactCache) {
+        this.sharedArtifactCache = sharedArtifactCache;
+    }
+
+    RangedDownloader getRangedDownloader() {
+        return rangedDownloader;
+    }
+
+    void setRangedDownloader(RangedDownloader rangedDownloader) {
+        this.rangedDownloader = rangedDownloader;
+    }
+
+    PrefetchList getPrefetchList() {
+        return prefetchList;
+    }
+
+    int getPrefetchThreads() {
+        return prefetchThreads;
+    }
+
+    boolean isRecordPrefetchList() {
+        return recordPrefetchList;
+    }
+
+    void setPrefetchList(PrefetchList prefetchList, int prefetchThreads, boolean recordPrefetchList) {
+        this.prefetchList = prefetchList;
+        this.prefetchThreads = prefetchThreads;
+        this.recordPrefetchList = recordPrefetchList;
+    }
+
+    ArtifactPrefetcher getPrefetcher() {
+        return prefetcher;
+    }
+
+    void setPrefetcher(ArtifactPrefetcher prefetcher) {
+        this.prefetcher = prefetcher;
+    }
+
+    Path getBaseLocalRepositoryDir() {
+        return baseLocalRepositoryDir;
+    }
+
+    FileRepositoryIndex getBaseLocalRepositoryIndex() {
+        return baseLocalRepositoryIndex;
+    }
+
+    void setBaseLocalRepository(Path baseLocalRepositoryDir, FileRepositoryIndex baseLocalRepositoryIndex) {
+        this.baseLocalRepositoryDir = baseLocalRepositoryDir;
+        this.baseLocalRepositoryIndex = baseLocalRepositoryIndex;
+    }
+
+    Path getInPlaceRepositoryDir() {
+        return inPlaceRepositoryDir;
+    }
+
+    FileRepositoryIndex getInPlaceRepositoryIndex() {
+        return inPlaceRepositoryIndex;
+    }
+
+    void setInPlaceRepository(Path inPlaceRepositoryDir, FileRepositoryIndex inPlaceRepositoryIndex) {
+        this.inPlaceRepositoryDir = inPlaceRepositoryDir;
+        this.inPlaceRepositoryIndex = inPlaceRepositoryIndex;
+    }
+
+    InPlaceRepositoryWorkspaceReader getInPlaceWorkspaceReader() {
+        return inPlaceWorkspaceReader;
+    }
+
+    void setInPlaceWorkspaceReader(InPlaceRepositoryWorkspaceReader inPlaceWorkspaceReader) {
+        this.inPlaceWorkspaceReader = inPlaceWorkspaceReader;
+    }
+
+    RepositoryAffinity getRepositoryAffinity() {
+        return repositoryAffinity;
+    }
+
+    void setRepositoryAffinity(RepositoryAffinity repositoryAffinity) {
+        this.repositoryAffinity = repositoryAffinity;
+    }
+
+    RepositoryMetrics getMetrics() {
+        return metrics;
+    }
+
+    Path getMetricsReportFile() {
+        return metricsReportFile;
+    }
+
+    void setMetrics(RepositoryMetrics metrics, Path metricsReportFile) {
+        this.metrics = metrics;
+        this.metricsReportFile = metricsReportFile;
+    }
+
+    AdaptiveConcurrencyLimiter getConcurrencyLimiter(String repositoryId) {
+        return concurrencyLimitersByRepoId.get(repositoryId);
+    }
+
+    Map<String, AdaptiveConcurrencyLimiter> getConcurrencyLimitersByRepoId() {
+        return Collections.unmodifiableMap(concurrencyLimitersByRepoId);
+    }
+
+    void setConcurrencyLimiter(String repositoryId, AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        concurrencyLimitersByRepoId.put(repositoryId, concurrencyLimiter);
+    }
+
+    RepositoryCircuitBreaker getCircuitBreaker(String repositoryId) {
+        return circuitBreakersByRepoId.get(repositoryId);
+    }
+
+    Map<String, RepositoryCircuitBreaker> getCircuitBreakersByRepoId() {
+        return Collections.unmodifiableMap(circuitBreakersByRepoId);
+    }
+
+    void setCircuitBreaker(String repositoryId, RepositoryCircuitBreaker circuitBreaker) {
+        circuitBreakersByRepoId.put(repositoryId, circuitBreaker);
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.apache.maven.execution.MavenExecutionRequest;
+
+/**
+ * Keeps the {@link EnvReposContext} per Maven execution request between configuration processing (before the repository session
+ * exists) and session start.
+ */
+@Named
+@Singleton
+public class EnvReposContextRegistry {
+
+    private final Map<MavenExecutionRequest, EnvReposContext> contexts = Collections.synchronizedMap(new WeakHashMap<>());
+
+    void register(MavenExecutionRequest request, EnvReposContext context) {
+        contexts.put(request, context);
+    }
+
+    EnvReposContext get(MavenExecutionRequest request) {
+        return contexts.get(request);
+    }
+
+    EnvReposContext remove(MavenExecutionRequest request) {
+        return contexts.remove(request);
+    }
+}
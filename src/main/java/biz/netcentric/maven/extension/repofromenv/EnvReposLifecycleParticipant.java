@@ -0,0 +1,234 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.apache.maven.AbstractMavenLifecycleParticipant;
+import org.apache.maven.artifact.InvalidRepositoryException;
+import org.apache.maven.execution.MavenSession;
+import org.codehaus.plexus.logging.Logger;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.util.listener.ChainedRepositoryListener;
+
+/**
+ * Makes the {@link EnvReposContext} of the current Maven execution available to {@link EnvRepoConnectorFactory} via the session
+ * data of the repository session, installs the {@link BypassingMirrorSelector}, the {@link LayeredLocalRepositoryManager} and the
+ * {@link InPlaceRepositoryWorkspaceReader},
+ * starts the {@link ArtifactPrefetcher} and persists the state (and the {@link RepositoryMetrics}) collected during the session at its
+ * end.
+ */
+@Named("repos-from-env")
+@Singleton
+public class EnvReposLifecycleParticipant extends AbstractMavenLifecycleParticipant {
+
+    @Inject
+    private Logger logger;
+
+    @Inject
+    private EnvReposContextRegistry contextRegistry;
+
+    @Inject
+    private RepositorySystem repositorySystem;
+
+    @Override
+    public void afterSessionStart(MavenSession session) {
+        EnvReposContext context = contextRegistry.get(session.getRequest());
+        if (context == null) {
+            return;
+        }
+        RepositorySystemSession repositorySession = session.getRepositorySession();
+        repositorySession.getData().set(EnvReposContext.class, context);
+        if (context.isBypassMirrors() || context.getBaseLocalRepositoryIndex() != null || context.getInPlaceRepositoryIndex() != null) {
+            configureRepositorySession(context, repositorySession);
+        }
+        if (context.getPrefetchList() != null && !context.getPrefetchList().getArtifacts().isEmpty()) {
+            startPrefetch(context, repositorySession);
+        }
+        if (context.isRecordPrefetchList()) {
+            // installed after the prefetch session has been copied, so only the artifacts resolved by the build are recorded
+            addRecordingListener(context, repositorySession);
+        }
+    }
+
+    private void addRecordingListener(EnvReposContext context, RepositorySystemSession repositorySession) {
+        if (!(repositorySession instanceof DefaultRepositorySystemSession)) {
+            logger.warn("Cannot record the prefetch list, unexpected repository session " + repositorySession.getClass());
+            return;
+        }
+        DefaultRepositorySystemSession defaultRepositorySession = (DefaultRepositorySystemSession) repositorySession;
+        RecordingRepositoryListener recordingListener = new RecordingRepositoryListener(context.getPrefetchList(),
+                context.getReposById().keySet());
+        defaultRepositorySession.setRepositoryListener(
+                ChainedRepositoryListener.newInstance(defaultRepositorySession.getRepositoryListener(), recordingListener));
+    }
+
+    private void configureRepositorySession(EnvReposContext context, RepositorySystemSession repositorySession) {
+        if (!(repositorySession instanceof DefaultRepositorySystemSession)) {
+            logger.warn("Cannot bypass mirrors, layer the base local repository or use artifacts in place, unexpected repository session "
+                    + repositorySession.getClass());
+            return;
+        }
+        DefaultRepositorySystemSession defaultRepositorySession = (DefaultRepositorySystemSession) repositorySession;
+        if (context.isBypassMirrors()) {
+            defaultRepositorySession.setMirrorSelector(
+                    new BypassingMirrorSelector(context.getReposById().keySet(), defaultRepositorySession.getMirrorSelector()));
+        }
+        if (context.getBaseLocalRepositoryIndex() != null) {
+            defaultRepositorySession.setLocalRepositoryManager(new LayeredLocalRepositoryManager(
+                    defaultRepositorySession.getLocalRepositoryManager(), context.getBaseLocalRepositoryDir(),
+                    context.getBaseLocalRepositoryIndex()));
+        }
+        if (context.getInPlaceRepositoryIndex() != null) {
+            // Maven chains the reactor in front of this workspace reader later on
+            InPlaceRepositoryWorkspaceReader workspaceReader = new InPlaceRepositoryWorkspaceReader(
+                    defaultRepositorySession.getWorkspaceReader(), context.getInPlaceRepositoryDir(), context.getInPlaceRepositoryIndex());
+            defaultRepositorySession.setWorkspaceReader(workspaceReader);
+            context.setInPlaceWorkspaceReader(workspaceReader);
+        }
+    }
+
+    private void startPrefetch(EnvReposContext context, RepositorySystemSession repositorySession) {
+        // the prefetch list does not tell which artifacts are plugins, so only the repositories for dependencies are used
+        List<RemoteRepository> repositories = toRemoteRepositories(context.getReposById().values().stream()
+                .filter(repoFromEnv -> !repoFromEnv.getUrl().startsWith("file:") && repoFromEnv.getScope().includesDependencies())
+                .collect(Collectors.toList()));
+        if (repositories.isEmpty()) {
+            return;
+        }
+        // the session is still modified by Maven while the prefetch runs, so the prefetch uses a copy of it
+        DefaultRepositorySystemSession prefetchSession = new DefaultRepositorySystemSession(repositorySession);
+        ArtifactPrefetcher prefetcher = new ArtifactPrefetcher(repositorySystem, context.getPrefetchThreads(), logger);
+        prefetcher.start(prefetchSession, repositorySystem.newResolutionRepositories(prefetchSession, repositories),
+                context.getPrefetchList().getArtifacts());
+        context.setPrefetcher(prefetcher);
+        logger.info("Prefetching " + context.getPrefetchList().getArtifacts().size() + " artifacts from repositories from env with "
+                + context.getPrefetchThreads() + " threads");
+    }
+
+    private List<RemoteRepository> toRemoteRepositories(Collection<RepoFromEnv> reposFromEnv) {
+        List<RemoteRepository> repositories = new ArrayList<>();
+        for (RepoFromEnv repoFromEnv : reposFromEnv) {
+            try {
+                repositories.add(FromEnvReposConfigurationProcessor.getRemoteRepository(repoFromEnv));
+            } catch (InvalidRepositoryException e) {
+                logger.warn("Invalid repository " + repoFromEnv.getId() + ": " + e);
+            }
+        }
+        return repositories;
+    }
+
+    @Override
+    public void afterSessionEnd(MavenSession session) {
+        EnvReposContext context = contextRegistry.remove(session.getRequest());
+        if (context == null) {
+            return;
+        }
+        if (context.getPrefetcher() != null) {
+            context.getPrefetcher().stop();
+            logger.info("Prefetch: " + context.getPrefetcher().getSummary());
+        }
+        if (context.isRecordPrefetchList()) {
+            try {
+                int pruned = context.getPrefetchList().save();
+                logger.info("Recorded " + context.getPrefetchList().getRecordedCount() + " downloaded artifacts in "
+                        + context.getPrefetchList().getFile() + ", pruned " + pruned + " artifacts not requested by the build");
+            } catch (IOException e) {
+                logger.warn("Could not save prefetch list " + context.getPrefetchList().getFile() + ": " + e, e);
+            }
+        }
+        context.getConcurrencyLimitersByRepoId().forEach((repositoryId, limiter) ->
+            logger.info("Adaptive download concurrency for repository " + repositoryId + ": " + limiter.getSummary())
+        );
+        context.getCircuitBreakersByRepoId().forEach((repositoryId, circuitBreaker) -> {
+            if (circuitBreaker.getTimesOpened() > 0) {
+                logger.info("Circuit breaker for repository " + repositoryId + ": " + circuitBreaker.getSummary());
+            }
+        });
+        if (session.getRepositorySession().getLocalRepositoryManager() instanceof LayeredLocalRepositoryManager) {
+            logger.info("Base local repository: "
+                    + ((LayeredLocalRepositoryManager) session.getRepositorySession().getLocalRepositoryManager()).getBaseHits()
+                    + " artifacts used in place");
+        }
+        if (context.getInPlaceWorkspaceReader() != null) {
+            logger.info("Implicit file repository: " + context.getInPlaceWorkspaceReader().getHits() + " artifacts used in place");
+        }
+        if (context.getMetadataCache() != null) {
+            logger.info("Metadata cache: " + context.getMetadataCache().getFetches() + " metadata fetched, "
+                    + context.getMetadataCache().getHits() + " reused, " + context.getMetadataCache().getCoalesced()
+                    + " coalesced with concurrent fetches");
+        }
+        if (context.getRangedDownloader() != null) {
+            context.getRangedDownloader().shutdown();
+            logger.info("Ranged downloads: " + context.getRangedDownloader().getSummary());
+        }
+        if (context.getSharedArtifactCache() != null) {
+            SharedArtifactCache sharedArtifactCache = context.getSharedArtifactCache();
+            // only builds that added artifacts can have exceeded the maximum size
+            if (sharedArtifactCache.getStores() > 0) {
+                try {
+                    sharedArtifactCache.evict();
+                } catch (IOException e) {
+                    logger.warn("Could not evict artifacts from shared artifact cache: " + e, e);
+                }
+            }
+            logger.info("Shared artifact cache: " + sharedArtifactCache.getHits() + " artifacts retrieved, "
+                    + sharedArtifactCache.getStores() + " artifacts added, " + sharedArtifactCache.getEvictions() + " artifacts evicted");
+        }
+        if (context.getMetrics() != null) {
+            writeMetricsReport(context);
+        }
+        if (context.getRepositoryAffinity() != null) {
+            logger.info("Repository affinity: " + context.getRepositoryAffinity().getHits() + " artifacts served by the preferred repository, "
+                    + context.getRepositoryAffinity().getMisses() + " fell back to the normal order");
+            try {
+                context.getRepositoryAffinity().save();
+            } catch (IOException e) {
+                logger.warn("Could not save repository affinity: " + e, e);
+            }
+        }
+        if (context.getNotFoundCache() != null) {
+            try {
+                context.getNotFoundCache().save();
+            } catch (IOException e) {
+                logger.warn("Could not save cache of artifacts not found in repositories from env: " + e, e);
+            }
+        }
+        for (ArchiveRepository archiveRepository : context.getArchiveRepositoriesByRepoId().values()) {
+            try {
+                archiveRepository.close();
+            } catch (IOException e) {
+                logger.warn("Could not close repository archive " + archiveRepository + ": " + e, e);
+            }
+        }
+    }
+
+    private void writeMetricsReport(EnvReposContext context) {
+        context.getMetrics().getAllStats().forEach(stats ->
+            logger.info("Metrics for repository " + stats.getRepositoryId() + " (" + stats.getUrl() + "): " + stats.getSummary())
+        );
+        try {
+            context.getMetrics().writeReport(context.getMetricsReportFile());
+            logger.info("Written repository metrics report to " + context.getMetricsReportFile());
+        } catch (IOException e) {
+            logger.warn("Could not write repository metrics report " + context.getMetricsReportFile() + ": " + e, e);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.metadata.Metadata;
+
+/**
+ * In-memory index of all files of a repository in a local directory (using the default Maven 2 layout), built with one scan of the
+ * directory. The version directories are indexed per artifact as well.
+ */
+class FileRepositoryIndex {
+
+    private final Set<String> paths;
+    // version directories by the path of their parent directory (i.e. <groupId as path>/<artifactId>)
+    private final Map<String, Set<String>> versionsByArtifactPath = new HashMap<>();
+
+    private FileRepositoryIndex(Set<String> paths) {
+        this.paths = paths;
+        for (String path : paths) {
+            int fileNameStart = path.lastIndexOf('/');
+            int versionStart = fileNameStart > 0 ? path.lastIndexOf('/', fileNameStart - 1) : -1;
+            if (versionStart > 0) {
+                versionsByArtifactPath.computeIfAbsent(path.substring(0, versionStart), key -> new TreeSet<>())
+                        .add(path.substring(versionStart + 1, fileNameStart));
+            }
+        }
+    }
+
+    static FileRepositoryIndex build(Path repositoryDir) throws IOException {
+        Set<String> paths = new HashSet<>();
+        Files.walkFileTree(repositoryDir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                paths.add(toIndexPath(repositoryDir.relativize(file)));
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return new FileRepositoryIndex(paths);
+    }
+
+    boolean contains(Artifact artifact) {
+        return paths.contains(getPath(artifact));
+    }
+
+    boolean contains(Metadata metadata) {
+        return paths.contains(getPath(metadata));
+    }
+
+    /**
+     * @param path a path relative to the repository root (separated by {@code /})
+     * @return {@code true} if the path denotes a file or a directory of the repository (the empty path denotes the root)
+     */
+    boolean containsPath(String path) {
+        String normalizedPath = path.replaceAll("^/+|/+$", "");
+        if (normalizedPath.isEmpty() || paths.contains(normalizedPath)) {
+            return true;
+        }
+        String directoryPrefix = normalizedPath + '/';
+        return paths.stream().anyMatch(indexPath -> indexPath.startsWith(directoryPrefix));
+    }
+
+    /**
+     * @return all version directories of the given artifact containing files (sorted lexicographically)
+     */
+    Set<String> getVersions(String groupId, String artifactId) {
+        Set<String> versions = versionsByArtifactPath.get(groupId.replace('.', '/') + '/' + artifactId);
+        return versions != null ? Collections.unmodifiableSet(versions) : Collections.emptySet();
+    }
+
+    int size() {
+        return paths.size();
+    }
+
+    static String getPath(Artifact artifact) {
+        StringBuilder path = new StringBuilder(128);
+        path.append(artifact.getGroupId().replace('.', '/')).append('/')
+                .append(artifact.getArtifactId()).append('/')
+                .append(artifact.getBaseVersion()).append('/')
+                .append(artifact.getArtifactId()).append('-').append(artifact.getVersion());
+        if (!artifact.getClassifier().isEmpty()) {
+            path.append('-').append(artifact.getClassifier());
+        }
+        if (!artifact.getExtension().isEmpty()) {
+            path.append('.').append(artifact.getExtension());
+        }
+        return path.toString();
+    }
+
+    static String getPath(Metadata metadata) {
+        StringBuilder path = new StringBuilder(128);
+        if (!metadata.getGroupId().isEmpty()) {
+            path.append(metadata.getGroupId().replace('.', '/')).append('/');
+            if (!metadata.getArtifactId().isEmpty()) {
+                path.append(metadata.getArtifactId()).append('/');
+                if (!metadata.getVersion().isEmpty()) {
+                    path.append(metadata.getVersion()).append('/');
+                }
+            }
+        }
+        return path.append(metadata.getType()).toString();
+    }
+
+    private static String toIndexPath(Path relativePath) {
+        StringBuilder path = new StringBuilder(128);
+        for (Path segment : relativePath) {
+            if (path.length() > 0) {
+                path.append('/');
+            }
+            path.append(segment.toString());
+        }
+        return path.toString();
+    }
+}
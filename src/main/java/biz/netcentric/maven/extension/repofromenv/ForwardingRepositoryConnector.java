@@ -0,0 +1,93 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.spi.connector.ArtifactDownload;
+import org.eclipse.aether.spi.connector.ArtifactUpload;
+import org.eclipse.aether.spi.connector.MetadataDownload;
+import org.eclipse.aether.spi.connector.MetadataUpload;
+import org.eclipse.aether.spi.connector.RepositoryConnector;
+import org.eclipse.aether.transfer.ArtifactNotFoundException;
+import org.eclipse.aether.transfer.MetadataNotFoundException;
+
+/**
+ * Base class for connectors that add behaviour on top of the connector they wrap. Forwards all calls to the delegate by default.
+ */
+abstract class ForwardingRepositoryConnector implements RepositoryConnector {
+
+    protected final RepositoryConnector delegate;
+    protected final RemoteRepository repository;
+
+    ForwardingRepositoryConnector(RepositoryConnector delegate, RemoteRepository repository) {
+        this.delegate = delegate;
+        this.repository = repository;
+    }
+
+    @Override
+    public void get(Collection<? extends ArtifactDownload> artifactDownloads, Collection<? extends MetadataDownload> metadataDownloads) {
+        delegate.get(artifactDownloads, metadataDownloads);
+    }
+
+    @Override
+    public void put(Collection<? extends ArtifactUpload> artifactUploads, Collection<? extends MetadataUpload> metadataUploads) {
+        delegate.put(artifactUploads, metadataUploads);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    /**
+     * Marks all artifact downloads not matching the given predicate as not found (without contacting the repository).
+     *
+     * @return the artifact downloads to be passed on to the delegate
+     */
+    protected List<ArtifactDownload> rejectArtifactsNotMatching(Collection<? extends ArtifactDownload> artifactDownloads,
+            Predicate<ArtifactDownload> predicate) {
+        List<ArtifactDownload> acceptedDownloads = new ArrayList<>();
+        for (ArtifactDownload artifactDownload : nullToEmpty(artifactDownloads)) {
+            if (predicate.test(artifactDownload)) {
+                acceptedDownloads.add(artifactDownload);
+            } else {
+                artifactDownload.setException(new ArtifactNotFoundException(artifactDownload.getArtifact(), repository));
+            }
+        }
+        return acceptedDownloads;
+    }
+
+    /**
+     * Marks all metadata downloads not matching the given predicate as not found (without contacting the repository).
+     *
+     * @return the metadata downloads to be passed on to the delegate
+     */
+    protected List<MetadataDownload> rejectMetadataNotMatching(Collection<? extends MetadataDownload> metadataDownloads,
+            Predicate<MetadataDownload> predicate) {
+        List<MetadataDownload> acceptedDownloads = new ArrayList<>();
+        for (MetadataDownload metadataDownload : nullToEmpty(metadataDownloads)) {
+            if (predicate.test(metadataDownload)) {
+                acceptedDownloads.add(metadataDownload);
+            } else {
+                metadataDownload.setException(new MetadataNotFoundException(metadataDownload.getMetadata(), repository));
+            }
+        }
+        return acceptedDownloads;
+    }
+
+    protected static <T> Collection<T> nullToEmpty(Collection<T> collection) {
+        return collection != null ? collection : Collections.emptyList();
+    }
+}
@@ -9,17 +9,33 @@
 package biz.netcentric.maven.extension.repofromenv;
 
 import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 
-import org.apache.commons.collections4.map.CompositeMap;
+import org.apache.maven.RepositoryUtils;
+import org.apache.maven.artifact.InvalidRepositoryException;
 import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.repository.ArtifactRepositoryPolicy;
+import org.apache.maven.bridge.MavenRepositorySystem;
 import org.apache.maven.cli.CliRequest;
 import org.apache.maven.cli.MavenCli;
 import org.apache.maven.cli.configuration.ConfigurationProcessor;
@@ -30,6 +46,9 @@ import org.apache.maven.model.RepositoryPolicy;
 import org.apache.maven.settings.Mirror;
 import org.apache.maven.settings.Server;
 import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.eclipse.aether.ConfigurationProperties;
+import org.eclipse.aether.repository.RemoteRepository;
 
 /**
  * <p>
@@ -45,10 +64,25 @@ import org.codehaus.plexus.logging.Logger;
 @Named("configuration-processor")
 public class FromEnvReposConfigurationProcessor implements ConfigurationProcessor {
 
+    /** Common prefix of all configuration keys, only system properties and environment variables with it are considered. */
+    static final String KEY_PREFIX_CONFIGURATION = "MVN_";
     static final String KEY_PREFIX_MVN_SETTINGS_REPO = "MVN_SETTINGS_REPO";
     static final String KEY_SUFFIX_URL = "_URL";
     static final String KEY_SUFFIX_USERNAME = "_USERNAME";
     static final String KEY_SUFFIX_PASSWORD = "_PASSWORD";
+    static final String KEY_SUFFIX_TOKEN = "_TOKEN";
+    static final String KEY_SUFFIX_PREEMPTIVE_AUTH = "_PREEMPTIVE_AUTH";
+    static final String KEY_SUFFIX_INCLUDES = "_INCLUDES";
+    static final String KEY_SUFFIX_EXCLUDES = "_EXCLUDES";
+    static final String KEY_SUFFIX_RELEASES = "_RELEASES";
+    static final String KEY_SUFFIX_SNAPSHOTS = "_SNAPSHOTS";
+    static final String KEY_SUFFIX_UPDATE_POLICY = "_UPDATE_POLICY";
+    static final String KEY_SUFFIX_CHECKSUM_POLICY = "_CHECKSUM_POLICY";
+    static final String KEY_SUFFIX_CONNECT_TIMEOUT = "_CONNECT_TIMEOUT";
+    static final String KEY_SUFFIX_READ_TIMEOUT = "_READ_TIMEOUT";
+    static final String KEY_SUFFIX_RETRIES = "_RETRIES";
+    static final String KEY_SUFFIX_MAX_CONNECTIONS = "_MAX_CONNECTIONS";
+    static final String KEY_SUFFIX_SCOPE = "_SCOPE";
 
     static final String PROFILE_ID_REPOSITORIES_FROM_ENV = "repositoriesFromSysEnv";
     static final String REPO_ID_PREFIX = "sysEnvRepo";
@@ -59,30 +93,214 @@ public class FromEnvReposConfigurationProcessor implements ConfigurationProcesso
     static final String VAR_EXPR_MULTIMODULE_PROJECT_DIR = "${"+MavenCli.MULTIMODULE_PROJECT_DIRECTORY+"}";
     static final String IMPLICIT_FILE_REPO_PATH = ".mvn/repository";
     static final String IMPLICIT_FILE_REPO_ID = "repository-in-mvn-ext-folder";
+    static final String KEY_IMPLICIT_FILE_REPO_IN_PLACE = "MVN_SETTINGS_REPO_IMPLICIT_IN_PLACE";
     
     static final String KEY_DISABLE_BYPASS_MIRRORS = "MVN_DISABLE_BYPASS_MIRRORS";
 
+    static final String KEY_PROBE_LATENCY = "MVN_SETTINGS_REPO_PROBE_LATENCY";
+    static final String KEY_PROBE_TIMEOUT = "MVN_SETTINGS_REPO_PROBE_TIMEOUT";
+    static final String KEY_PROBE_PATH = "MVN_SETTINGS_REPO_PROBE_PATH";
+    static final String KEY_PROBE_DROP_UNREACHABLE = "MVN_SETTINGS_REPO_PROBE_DROP_UNREACHABLE";
+    static final int DEFAULT_PROBE_TIMEOUT_MS = 2000;
+
+    static final String KEY_NOT_FOUND_CACHE = "MVN_SETTINGS_REPO_NOT_FOUND_CACHE";
+    static final String KEY_NOT_FOUND_CACHE_DIR = "MVN_SETTINGS_REPO_NOT_FOUND_CACHE_DIR";
+    static final String KEY_NOT_FOUND_CACHE_TTL = "MVN_SETTINGS_REPO_NOT_FOUND_CACHE_TTL";
+    static final String KEY_NOT_FOUND_CACHE_MAX_ENTRIES = "MVN_SETTINGS_REPO_NOT_FOUND_CACHE_MAX_ENTRIES";
+    static final int DEFAULT_NOT_FOUND_CACHE_TTL_MINUTES = 24 * 60;
+    static final int DEFAULT_NOT_FOUND_CACHE_MAX_ENTRIES = 10000;
+
+    static final String KEY_METADATA_CACHE = "MVN_SETTINGS_REPO_METADATA_CACHE";
+    static final String KEY_METADATA_CACHE_TTL = "MVN_SETTINGS_REPO_METADATA_CACHE_TTL";
+    static final int DEFAULT_METADATA_CACHE_TTL_SECONDS = 300;
+
+    static final String KEY_RANGED_DOWNLOAD_MIN_SIZE = "MVN_SETTINGS_REPO_RANGED_DOWNLOAD_MIN_SIZE";
+    static final String KEY_RANGED_DOWNLOAD_CHUNKS = "MVN_SETTINGS_REPO_RANGED_DOWNLOAD_CHUNKS";
+    static final int DEFAULT_RANGED_DOWNLOAD_CHUNKS = 4;
+    static final String KEY_RANGED_DOWNLOAD_THREADS = "MVN_SETTINGS_REPO_RANGED_DOWNLOAD_THREADS";
+    static final int DEFAULT_RANGED_DOWNLOAD_THREADS = 8;
+
+    static final String KEY_AFFINITY = "MVN_SETTINGS_REPO_AFFINITY";
+    static final String KEY_AFFINITY_DIR = "MVN_SETTINGS_REPO_AFFINITY_DIR";
+    static final String KEY_AFFINITY_TTL = "MVN_SETTINGS_REPO_AFFINITY_TTL";
+    static final int DEFAULT_AFFINITY_TTL_MINUTES = 7 * 24 * 60;
+
+    static final String KEY_CACHE_DIR = "MVN_SETTINGS_REPO_CACHE_DIR";
+    static final String KEY_CACHE_MAX_SIZE = "MVN_SETTINGS_REPO_CACHE_MAX_SIZE";
+    static final int DEFAULT_CACHE_MAX_SIZE_MB = 10 * 1024;
+
+    static final String KEY_BASE_LOCAL_REPO = "MVN_SETTINGS_REPO_BASE_LOCAL";
+
+    static final String KEY_PREFETCH_FILE = "MVN_SETTINGS_REPO_PREFETCH_FILE";
+    static final String KEY_PREFETCH_THREADS = "MVN_SETTINGS_REPO_PREFETCH_THREADS";
+    static final String KEY_PREFETCH_RECORD = "MVN_SETTINGS_REPO_PREFETCH_RECORD";
+    static final String DEFAULT_PREFETCH_FILE_PATH = ".mvn/prefetch.txt";
+    static final int DEFAULT_PREFETCH_THREADS = 8;
+
+    static final String KEY_ADAPTIVE_CONCURRENCY = "MVN_SETTINGS_REPO_ADAPTIVE_CONCURRENCY";
+    static final String KEY_ADAPTIVE_CONCURRENCY_INITIAL = "MVN_SETTINGS_REPO_ADAPTIVE_CONCURRENCY_INITIAL";
+    static final String KEY_ADAPTIVE_CONCURRENCY_MAX = "MVN_SETTINGS_REPO_ADAPTIVE_CONCURRENCY_MAX";
+    static final int DEFAULT_ADAPTIVE_CONCURRENCY_INITIAL = 4;
+    static final int DEFAULT_ADAPTIVE_CONCURRENCY_MAX = 32;
+
+    static final String KEY_CIRCUIT_BREAKER = "MVN_SETTINGS_REPO_CIRCUIT_BREAKER";
+    static final String KEY_CIRCUIT_BREAKER_FAILURES = "MVN_SETTINGS_REPO_CIRCUIT_BREAKER_FAILURES";
+    static final String KEY_CIRCUIT_BREAKER_WINDOW = "MVN_SETTINGS_REPO_CIRCUIT_BREAKER_WINDOW";
+    static final String KEY_CIRCUIT_BREAKER_PROBE_INTERVAL = "MVN_SETTINGS_REPO_CIRCUIT_BREAKER_PROBE_INTERVAL";
+    static final int DEFAULT_CIRCUIT_BREAKER_FAILURES = 3;
+    static final int DEFAULT_CIRCUIT_BREAKER_WINDOW_SECONDS = 60;
+    static final int DEFAULT_CIRCUIT_BREAKER_PROBE_INTERVAL_SECONDS = 60;
+
+    static final String KEY_METRICS_FILE = "MVN_SETTINGS_REPO_METRICS_FILE";
+
+    static final Path DEFAULT_STATE_DIR = Paths.get(System.getProperty("user.home"), ".m2", "repos-from-env");
+
+    // configuration properties of the resolver's http transport (not yet defined in the aether version of the oldest supported Maven)
+    static final String CONFIG_PROP_RETRY_COUNT = "aether.connector.http.retryHandler.count";
+    static final String CONFIG_PROP_MAX_CONNECTIONS_PER_ROUTE = "aether.connector.http.maxConnectionsPerRoute";
+    static final String CONFIG_PROP_PREEMPTIVE_AUTH = "aether.connector.http.preemptiveAuth";
+
+    private static final Pattern UPDATE_POLICY_PATTERN = Pattern.compile(ArtifactRepositoryPolicy.UPDATE_POLICY_ALWAYS + "|"
+            + ArtifactRepositoryPolicy.UPDATE_POLICY_DAILY + "|" + ArtifactRepositoryPolicy.UPDATE_POLICY_NEVER + "|"
+            + ArtifactRepositoryPolicy.UPDATE_POLICY_INTERVAL + ":\\d+");
+    private static final Pattern SCOPE_PATTERN = Pattern.compile("dependencies|plugins|both");
+    private static final Pattern CHECKSUM_POLICY_PATTERN = Pattern.compile(ArtifactRepositoryPolicy.CHECKSUM_POLICY_FAIL + "|"
+            + ArtifactRepositoryPolicy.CHECKSUM_POLICY_WARN + "|" + ArtifactRepositoryPolicy.CHECKSUM_POLICY_IGNORE);
+
     @Inject
     private Logger logger;
 
-    private boolean isVerbose;
+    @Inject
+    private EnvReposContextRegistry contextRegistry;
+
+    @Inject
+    private EnvReposConfigurationCache configurationCache;
+
+    // per build, as one instance may process multiple builds concurrently (e.g. in the Maven daemon)
+    private final ThreadLocal<Boolean> verbose = ThreadLocal.withInitial(() -> Boolean.FALSE);
 
     @Override
     public void process(CliRequest cliRequest) throws Exception {
-        Map<String, String> systemProperties = System.getProperties().entrySet().stream().collect(Collectors.toMap(e -> (String) e.getKey(), e -> (String) e.getValue()));
-        CompositeMap<String, String> configurationMap = new CompositeMap<>(systemProperties, System.getenv());
-        isVerbose = Boolean.parseBoolean(configurationMap.get(KEY_MVN_SETTINGS_REPO_VERBOSE));
+        Map<String, String> configurationMap = getConfigurationProperties(System.getenv(), System.getProperties());
+        verbose.set(Boolean.parseBoolean(configurationMap.get(KEY_MVN_SETTINGS_REPO_VERBOSE)));
+        try {
+            process(cliRequest, configurationMap);
+        } finally {
+            verbose.remove();
+        }
+    }
+
+    /**
+     * @return the immutable configuration properties from the environment variables and system properties (the latter take
+     *         precedence)
+     */
+    static Map<String, String> getConfigurationProperties(Map<String, String> env, Properties systemProperties) {
+        Map<String, String> configurationProperties = new TreeMap<>();
+        env.forEach((key, value) -> {
+            if (key.startsWith(KEY_PREFIX_CONFIGURATION)) {
+                configurationProperties.put(key, value);
+            }
+        });
+        // returns a snapshot, the system properties may be modified concurrently
+        for (String key : systemProperties.stringPropertyNames()) {
+            if (key.startsWith(KEY_PREFIX_CONFIGURATION)) {
+                configurationProperties.put(key, systemProperties.getProperty(key));
+            }
+        }
+        return Collections.unmodifiableMap(configurationProperties);
+    }
+
+    private void process(CliRequest cliRequest, Map<String, String> configurationMap) {
         boolean envReposFirst = Boolean.parseBoolean(configurationMap.get(KEY_ENV_REPOS_FIRST));
         boolean disableBypassMirrors = Boolean.parseBoolean(configurationMap.get(KEY_DISABLE_BYPASS_MIRRORS));
-        List<RepoFromEnv> reposFromEnv = getReposFromConfiguration(configurationMap, cliRequest.getMultiModuleProjectDirectory());
-        
-        addImplicitFileRepo(reposFromEnv, cliRequest.getMultiModuleProjectDirectory());
-
-        configureMavenExecution(cliRequest.getRequest(), reposFromEnv, disableBypassMirrors, envReposFirst);
+        List<RepoFromEnv> reposFromEnv = configurationCache.getRepos(configurationMap, cliRequest.getMultiModuleProjectDirectory(),
+                this::getReposFromConfiguration);
+        reposFromEnv.forEach(repoFromEnv ->
+            // minimal line that we always log directly (regardless of MVN_SETTINGS_REPO_LOG_VERBOSE or -X parameter)
+            logger.info("Repository added from system properties or environment variables: " + repoFromEnv.getUrl()  + " (id: " + repoFromEnv.getId() + (repoFromEnv.getUsername() != null ? " user: " + repoFromEnv.getUsername() : "") + (repoFromEnv.getToken() != null ? " with token" : "") + ")")
+        );
+        Map<String, ArchiveRepository> archiveRepositories = openArchiveRepositories(reposFromEnv,
+                cliRequest.getMultiModuleProjectDirectory());
+
+        if (Boolean.parseBoolean(configurationMap.get(KEY_PROBE_LATENCY))) {
+            int probeTimeout = getIntValue(configurationMap, KEY_PROBE_TIMEOUT, DEFAULT_PROBE_TIMEOUT_MS);
+            RepoLatencyProber prober = new RepoLatencyProber(probeTimeout, configurationMap.get(KEY_PROBE_PATH), archiveRepositories);
+            reposFromEnv = orderByLatency(prober.probe(reposFromEnv),
+                    Boolean.parseBoolean(configurationMap.get(KEY_PROBE_DROP_UNREACHABLE)));
+        }
 
+        FileRepositoryIndex implicitFileRepoIndex = addImplicitFileRepo(reposFromEnv, cliRequest.getMultiModuleProjectDirectory());
+
+        // MavenCli replaces the user properties of the request with the ones of the CLI request after all configuration processors ran,
+        // so properties set on the request are only effective if passed back to the CLI request
+        cliRequest.getRequest().setUserProperties(cliRequest.getUserProperties());
+        configureMavenExecution(cliRequest.getRequest(), reposFromEnv, envReposFirst);
+        cliRequest.getUserProperties().putAll(cliRequest.getRequest().getUserProperties());
+
+        boolean hasBaseLocalRepository = !isBlank(configurationMap.get(KEY_BASE_LOCAL_REPO));
+        boolean hasMetrics = !isBlank(configurationMap.get(KEY_METRICS_FILE));
+        if (!reposFromEnv.isEmpty() || hasBaseLocalRepository || hasMetrics) {
+            EnvReposContext context = new EnvReposContext(reposFromEnv);
+            archiveRepositories.forEach(context::setArchiveRepository);
+            if (implicitFileRepoIndex != null) {
+                context.setFileIndex(IMPLICIT_FILE_REPO_ID, implicitFileRepoIndex);
+            }
+            if (!disableBypassMirrors && !reposFromEnv.isEmpty()) {
+                context.setBypassMirrors(true);
+                logMessage("Mirrors are bypassed for repositories " + String.join(",", context.getReposById().keySet()));
+            }
+            if (Boolean.parseBoolean(configurationMap.get(KEY_NOT_FOUND_CACHE))) {
+                context.setNotFoundCache(getNotFoundCache(configurationMap));
+            }
+            if (Boolean.parseBoolean(configurationMap.get(KEY_METADATA_CACHE))) {
+                int ttlSeconds = getIntValue(configurationMap, KEY_METADATA_CACHE_TTL, DEFAULT_METADATA_CACHE_TTL_SECONDS);
+                context.setMetadataCache(new MetadataCache(TimeUnit.SECONDS.toNanos(ttlSeconds)));
+                logMessage("Metadata of repositories from env is fetched once per " + ttlSeconds + "s for the whole build");
+            }
+            if (!isBlank(configurationMap.get(KEY_RANGED_DOWNLOAD_MIN_SIZE)) && !reposFromEnv.isEmpty()) {
+                int minSizeMb = getIntValue(configurationMap, KEY_RANGED_DOWNLOAD_MIN_SIZE, 0);
+                int chunks = getIntValue(configurationMap, KEY_RANGED_DOWNLOAD_CHUNKS, DEFAULT_RANGED_DOWNLOAD_CHUNKS);
+                int threads = getIntValue(configurationMap, KEY_RANGED_DOWNLOAD_THREADS, DEFAULT_RANGED_DOWNLOAD_THREADS);
+                context.setRangedDownloader(new RangedDownloader(minSizeMb * 1024L * 1024L, chunks, threads));
+                logMessage("Artifacts of at least " + minSizeMb + " MB are downloaded from repositories from env in up to " + chunks
+                        + " parallel ranges (using up to " + threads + " threads)");
+            }
+            if (Boolean.parseBoolean(configurationMap.get(KEY_AFFINITY)) && !reposFromEnv.isEmpty()) {
+                context.setRepositoryAffinity(getRepositoryAffinity(configurationMap));
+            }
+            if (!isBlank(configurationMap.get(KEY_CACHE_DIR))) {
+                int maxSizeMb = getIntValue(configurationMap, KEY_CACHE_MAX_SIZE, DEFAULT_CACHE_MAX_SIZE_MB);
+                context.setSharedArtifactCache(new SharedArtifactCache(Paths.get(configurationMap.get(KEY_CACHE_DIR).trim()),
+                        maxSizeMb * 1024L * 1024L));
+                logMessage("Release artifacts of repositories from env are cached in " + configurationMap.get(KEY_CACHE_DIR).trim()
+                        + " (up to " + maxSizeMb + " MB)");
+            }
+            if (Boolean.parseBoolean(configurationMap.get(KEY_ADAPTIVE_CONCURRENCY))) {
+                addConcurrencyLimiters(context, configurationMap);
+            }
+            if (Boolean.parseBoolean(configurationMap.get(KEY_CIRCUIT_BREAKER))) {
+                addCircuitBreakers(context, configurationMap);
+            }
+            if (!reposFromEnv.isEmpty()) {
+                setPrefetchList(context, configurationMap, cliRequest.getMultiModuleProjectDirectory());
+            }
+            if (Boolean.parseBoolean(configurationMap.get(KEY_IMPLICIT_FILE_REPO_IN_PLACE))) {
+                setInPlaceRepository(context);
+            }
+            if (hasBaseLocalRepository) {
+                setBaseLocalRepository(context, Paths.get(configurationMap.get(KEY_BASE_LOCAL_REPO).trim()));
+            }
+            if (hasMetrics) {
+                Path metricsReportFile = cliRequest.getMultiModuleProjectDirectory().toPath()
+                        .resolve(configurationMap.get(KEY_METRICS_FILE).trim());
+                context.setMetrics(new RepositoryMetrics(), metricsReportFile);
+                logMessage("Collecting download metrics of all repositories, report is written to " + metricsReportFile);
+            }
+            contextRegistry.register(cliRequest.getRequest(), context);
+        }
     }
 
-    void configureMavenExecution(MavenExecutionRequest request, List<RepoFromEnv> reposFromEnv, boolean disableBypassMirrors, boolean envReposFirst) {
+    void configureMavenExecution(MavenExecutionRequest request, List<RepoFromEnv> reposFromEnv, boolean envReposFirst) {
         if (!reposFromEnv.isEmpty()) {
 
             logRepositoriesAndMirrors(request);
@@ -92,13 +310,19 @@ public class FromEnvReposConfigurationProcessor implements ConfigurationProcesso
             // add the maven repos 
             for (RepoFromEnv repoFromEnv : reposFromEnv) {
 
-                repositoriesFromEnv.addRepository(getRepository(repoFromEnv));
-
-                repositoriesFromEnv.addPluginRepository(getRepository(repoFromEnv));
+                if (repoFromEnv.getScope().includesDependencies()) {
+                    repositoriesFromEnv.addRepository(getRepository(repoFromEnv));
+                }
+                if (repoFromEnv.getScope().includesPlugins()) {
+                    repositoriesFromEnv.addPluginRepository(getRepository(repoFromEnv));
+                }
 
-                if (repoFromEnv.getUsername() != null) {
+                if (repoFromEnv.hasCredentials() || repoFromEnv.hasTransportSettings()) {
                     request.addServer(getServer(repoFromEnv));
                 }
+                if (repoFromEnv.hasTransportSettings() || repoFromEnv.isPreemptiveAuth()) {
+                    addTransportProperties(request, repoFromEnv);
+                }
             }
 
             // activate profile
@@ -112,25 +336,130 @@ public class FromEnvReposConfigurationProcessor implements ConfigurationProcesso
             }
             
             request.addActiveProfile(PROFILE_ID_REPOSITORIES_FROM_ENV);
-            
-            if (!disableBypassMirrors) {
-                bypassMirrorsForRepositoryIds(request, reposFromEnv.stream().map(RepoFromEnv::getId).collect(Collectors.toList()));
-            }
         }
     }
 
-    private void bypassMirrorsForRepositoryIds(MavenExecutionRequest request, List<String> repositoryIds) {
-        String mirrorOfSuffix = repositoryIds.stream().map(id -> "!" + id).collect(Collectors.joining(","));
-        for (Mirror mirror : request.getMirrors()) {
-            String mirrorOf = mirror.getMirrorOf() != null ? mirror.getMirrorOf() + "," : "";
-            mirrorOf += mirrorOfSuffix;
-            mirror.setMirrorOf(mirrorOf);
-            logMessage("Reconfigured mirror " + mirror.getId() + " to only act as mirror of " + mirrorOf);
+    void setPrefetchList(EnvReposContext context, Map<String, String> configMap, File multiModuleProjectDirectory) {
+        String prefetchFilePath = configMap.get(KEY_PREFETCH_FILE);
+        Path prefetchFile = multiModuleProjectDirectory.toPath()
+                .resolve(isBlank(prefetchFilePath) ? DEFAULT_PREFETCH_FILE_PATH : prefetchFilePath.trim());
+        boolean record = Boolean.parseBoolean(configMap.get(KEY_PREFETCH_RECORD));
+        if (!Files.isRegularFile(prefetchFile) && !record) {
+            return;
+        }
+        try {
+            PrefetchList prefetchList = PrefetchList.load(prefetchFile);
+            context.setPrefetchList(prefetchList, getIntValue(configMap, KEY_PREFETCH_THREADS, DEFAULT_PREFETCH_THREADS), record);
+            logMessage("Loaded " + prefetchList.getArtifacts().size() + " artifacts to prefetch from " + prefetchFile
+                    + (record ? " (recording downloaded artifacts)" : ""));
+        } catch (IOException e) {
+            logger.warn("Could not load prefetch list " + prefetchFile + " (not prefetching): " + e, e);
         }
     }
- 
+
+    void setInPlaceRepository(EnvReposContext context) {
+        RepoFromEnv implicitFileRepo = context.getRepo(IMPLICIT_FILE_REPO_ID);
+        if (implicitFileRepo == null || context.getFileIndex(IMPLICIT_FILE_REPO_ID) == null) {
+            logger.warn("No (indexed) directory " + IMPLICIT_FILE_REPO_PATH + ", ignoring " + KEY_IMPLICIT_FILE_REPO_IN_PLACE);
+            return;
+        }
+        context.setInPlaceRepository(Paths.get(URI.create(implicitFileRepo.getUrl())), context.getFileIndex(IMPLICIT_FILE_REPO_ID));
+        logMessage("Artifacts in " + IMPLICIT_FILE_REPO_PATH + " are used in place");
+    }
+
+    void setBaseLocalRepository(EnvReposContext context, Path baseLocalRepositoryDir) {
+        if (!Files.isDirectory(baseLocalRepositoryDir)) {
+            logger.warn("Base local repository " + baseLocalRepositoryDir + " (" + KEY_BASE_LOCAL_REPO + ") does not exist, ignoring it");
+            return;
+        }
+        try {
+            long startTime = System.currentTimeMillis();
+            context.setBaseLocalRepository(baseLocalRepositoryDir, FileRepositoryIndex.build(baseLocalRepositoryDir));
+            logger.info("Using base local repository " + baseLocalRepositoryDir + " underneath the local repository (indexed "
+                    + context.getBaseLocalRepositoryIndex().size() + " files in " + (System.currentTimeMillis() - startTime) + "ms)");
+        } catch (IOException e) {
+            logger.warn("Could not index base local repository " + baseLocalRepositoryDir + " (ignoring it): " + e, e);
+        }
+    }
+
+    void addConcurrencyLimiters(EnvReposContext context, Map<String, String> configMap) {
+        int initialLimit = getIntValue(configMap, KEY_ADAPTIVE_CONCURRENCY_INITIAL, DEFAULT_ADAPTIVE_CONCURRENCY_INITIAL);
+        int maxLimit = getIntValue(configMap, KEY_ADAPTIVE_CONCURRENCY_MAX, DEFAULT_ADAPTIVE_CONCURRENCY_MAX);
+        context.getReposById().values().stream()
+                .filter(repoFromEnv -> !repoFromEnv.getUrl().startsWith("file:"))
+                .forEach(repoFromEnv -> {
+                    // the connections per route of the transport bound the concurrency anyway
+                    int repoMaxLimit = repoFromEnv.getMaxConnections() != null && repoFromEnv.getMaxConnections() > 0
+                            ? Math.min(maxLimit, repoFromEnv.getMaxConnections()) : maxLimit;
+                    context.setConcurrencyLimiter(repoFromEnv.getId(), new AdaptiveConcurrencyLimiter(initialLimit, repoMaxLimit));
+                    logMessage("Adaptive download concurrency for repository " + repoFromEnv.getId() + " starting at "
+                            + Math.min(initialLimit, repoMaxLimit) + " (max " + repoMaxLimit + ")");
+                });
+    }
+
+    void addCircuitBreakers(EnvReposContext context, Map<String, String> configMap) {
+        int failureThreshold = getIntValue(configMap, KEY_CIRCUIT_BREAKER_FAILURES, DEFAULT_CIRCUIT_BREAKER_FAILURES);
+        long failureWindowMs = TimeUnit.SECONDS.toMillis(
+                getIntValue(configMap, KEY_CIRCUIT_BREAKER_WINDOW, DEFAULT_CIRCUIT_BREAKER_WINDOW_SECONDS));
+        long probeIntervalMs = TimeUnit.SECONDS.toMillis(
+                getIntValue(configMap, KEY_CIRCUIT_BREAKER_PROBE_INTERVAL, DEFAULT_CIRCUIT_BREAKER_PROBE_INTERVAL_SECONDS));
+        context.getReposById().values().stream()
+                .filter(repoFromEnv -> !repoFromEnv.getUrl().startsWith("file:"))
+                .forEach(repoFromEnv -> {
+                    context.setCircuitBreaker(repoFromEnv.getId(), new RepositoryCircuitBreaker(repoFromEnv.getId(), failureThreshold,
+                            failureWindowMs, probeIntervalMs, logger));
+                    logMessage("Circuit breaker for repository " + repoFromEnv.getId() + " opens after " + failureThreshold
+                            + " connection failures");
+                });
+    }
+
+    NotFoundCache getNotFoundCache(Map<String, String> configMap) {
+        String cacheDir = configMap.get(KEY_NOT_FOUND_CACHE_DIR);
+        NotFoundCache notFoundCache = new NotFoundCache(isBlank(cacheDir) ? DEFAULT_STATE_DIR : Paths.get(cacheDir),
+                TimeUnit.MINUTES.toMillis(getIntValue(configMap, KEY_NOT_FOUND_CACHE_TTL, DEFAULT_NOT_FOUND_CACHE_TTL_MINUTES)),
+                getIntValue(configMap, KEY_NOT_FOUND_CACHE_MAX_ENTRIES, DEFAULT_NOT_FOUND_CACHE_MAX_ENTRIES));
+        try {
+            notFoundCache.load();
+            logMessage("Loaded cache of artifacts not found in repositories from env with " + notFoundCache.size() + " entries");
+            return notFoundCache;
+        } catch (IOException e) {
+            logger.warn("Could not load cache of artifacts not found in repositories from env (continuing without it): " + e, e);
+            return null;
+        }
+    }
+
+    RepositoryAffinity getRepositoryAffinity(Map<String, String> configMap) {
+        String affinityDir = configMap.get(KEY_AFFINITY_DIR);
+        RepositoryAffinity repositoryAffinity = new RepositoryAffinity(isBlank(affinityDir) ? DEFAULT_STATE_DIR : Paths.get(affinityDir),
+                TimeUnit.MINUTES.toMillis(getIntValue(configMap, KEY_AFFINITY_TTL, DEFAULT_AFFINITY_TTL_MINUTES)));
+        try {
+            repositoryAffinity.load();
+            logMessage("Loaded repository affinity with " + repositoryAffinity.size() + " groupIds");
+            return repositoryAffinity;
+        } catch (IOException e) {
+            logger.warn("Could not load repository affinity (continuing without it): " + e, e);
+            return null;
+        }
+    }
+
+    List<RepoFromEnv> orderByLatency(Map<RepoFromEnv, Long> latencies, boolean dropUnreachable) {
+        latencies.forEach((repoFromEnv, latency) -> logMessage("Probed repository " + repoFromEnv.getId() + " (" + repoFromEnv.getUrl()
+                + "): " + (latency == RepoLatencyProber.UNREACHABLE ? "unreachable" : latency + "ms")));
+
+        List<RepoFromEnv> orderedRepos = latencies.entrySet().stream()
+                .filter(entry -> !dropUnreachable || entry.getValue() != RepoLatencyProber.UNREACHABLE)
+                // stable sort, unreachable repositories are demoted to the end
+                .sorted(Comparator.comparingLong(
+                        (Map.Entry<RepoFromEnv, Long> entry) -> entry.getValue() == RepoLatencyProber.UNREACHABLE ? Long.MAX_VALUE : entry.getValue()))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+        logMessage("Repositories ordered by latency " + (dropUnreachable ? "(unreachable ones dropped)" : "(unreachable ones last)")
+                + ": " + orderedRepos.stream().map(RepoFromEnv::getId).collect(Collectors.joining(",")));
+        return orderedRepos;
+    }
+
     private void logMessage(String msg) {
-        if (isVerbose) {
+        if (verbose.get()) {
             logger.info(msg);
         } else {
             logger.debug(msg);
@@ -160,28 +489,105 @@ public class FromEnvReposConfigurationProcessor implements ConfigurationProcesso
 
     }
 
-    private Repository getRepository(RepoFromEnv repoFromEnv) {
+    /**
+     * @return the resolver repository for the given repository from env, with the same policies as the one added to the profile by
+     *         {@link #configureMavenExecution(MavenExecutionRequest, List, boolean)} (authentication, proxies and mirrors are applied by
+     *         the repository system from the servers and settings of the session)
+     */
+    static RemoteRepository getRemoteRepository(RepoFromEnv repoFromEnv) throws InvalidRepositoryException {
+        return RepositoryUtils.toRepo(MavenRepositorySystem.buildArtifactRepository(getRepository(repoFromEnv)));
+    }
+
+    private static Repository getRepository(RepoFromEnv repoFromEnv) {
         Repository repository = new Repository();
         repository.setId(repoFromEnv.getId());
         repository.setUrl(repoFromEnv.getUrl());
 
-        RepositoryPolicy repositoryPolicyReleases = new RepositoryPolicy();
-        repositoryPolicyReleases.setEnabled(true);
-        repository.setReleases(repositoryPolicyReleases);
-        RepositoryPolicy repositoryPolicySnapshots = new RepositoryPolicy();
-        repositoryPolicySnapshots.setEnabled(true);
-        repository.setSnapshots(repositoryPolicySnapshots);
+        repository.setReleases(getRepositoryPolicy(repoFromEnv.isReleasesEnabled(), repoFromEnv));
+        repository.setSnapshots(getRepositoryPolicy(repoFromEnv.isSnapshotsEnabled(), repoFromEnv));
         return repository;
     }
 
+    private static RepositoryPolicy getRepositoryPolicy(boolean enabled, RepoFromEnv repoFromEnv) {
+        RepositoryPolicy repositoryPolicy = new RepositoryPolicy();
+        repositoryPolicy.setEnabled(enabled);
+        if (repoFromEnv.getUpdatePolicy() != null) {
+            repositoryPolicy.setUpdatePolicy(repoFromEnv.getUpdatePolicy());
+        }
+        if (repoFromEnv.getChecksumPolicy() != null) {
+            repositoryPolicy.setChecksumPolicy(repoFromEnv.getChecksumPolicy());
+        }
+        return repositoryPolicy;
+    }
+
     private Server getServer(RepoFromEnv repoFromEnv) {
         Server server = new Server();
         server.setId(repoFromEnv.getId());
         server.setUsername(repoFromEnv.getUsername());
         server.setPassword(repoFromEnv.getPassword());
+        if (repoFromEnv.hasTransportSettings() || repoFromEnv.getToken() != null || repoFromEnv.isPreemptiveAuth()) {
+            server.setConfiguration(getServerConfiguration(repoFromEnv));
+        }
         return server;
     }
 
+    private Xpp3Dom getServerConfiguration(RepoFromEnv repoFromEnv) {
+        Xpp3Dom configuration = new Xpp3Dom("configuration");
+        // timeouts as understood by the native http transport (Maven 3.9+)
+        addChild(configuration, "connectTimeout", repoFromEnv.getConnectTimeout());
+        addChild(configuration, "requestTimeout", repoFromEnv.getReadTimeout());
+        // timeouts and preemptive authentication as understood by the wagon http transport (the native http transport is configured via
+        // user properties for preemptive authentication)
+        if (repoFromEnv.getConnectTimeout() != null || repoFromEnv.getReadTimeout() != null || repoFromEnv.isPreemptiveAuth()) {
+            Xpp3Dom all = new Xpp3Dom("all");
+            addChild(all, "connectionTimeout", repoFromEnv.getConnectTimeout());
+            addChild(all, "readTimeout", repoFromEnv.getReadTimeout());
+            if (repoFromEnv.isPreemptiveAuth()) {
+                addChild(all, "usePreemptive", Boolean.TRUE);
+            }
+            Xpp3Dom httpConfiguration = new Xpp3Dom("httpConfiguration");
+            httpConfiguration.addChild(all);
+            configuration.addChild(httpConfiguration);
+        }
+        // the bearer token is sent with every request by both transports
+        if (repoFromEnv.getToken() != null) {
+            Xpp3Dom property = new Xpp3Dom("property");
+            addChild(property, "name", "Authorization");
+            addChild(property, "value", "Bearer " + repoFromEnv.getToken());
+            Xpp3Dom httpHeaders = new Xpp3Dom("httpHeaders");
+            httpHeaders.addChild(property);
+            configuration.addChild(httpHeaders);
+        }
+        return configuration;
+    }
+
+    private void addChild(Xpp3Dom parent, String name, Object value) {
+        if (value != null) {
+            Xpp3Dom child = new Xpp3Dom(name);
+            child.setValue(String.valueOf(value));
+            parent.addChild(child);
+        }
+    }
+
+    private void addTransportProperties(MavenExecutionRequest request, RepoFromEnv repoFromEnv) {
+        // all properties are suffixed with the repository id to only apply to the given repository
+        Properties userProperties = request.getUserProperties();
+        setProperty(userProperties, ConfigurationProperties.CONNECT_TIMEOUT + "." + repoFromEnv.getId(), repoFromEnv.getConnectTimeout());
+        setProperty(userProperties, ConfigurationProperties.REQUEST_TIMEOUT + "." + repoFromEnv.getId(), repoFromEnv.getReadTimeout());
+        setProperty(userProperties, CONFIG_PROP_RETRY_COUNT + "." + repoFromEnv.getId(), repoFromEnv.getRetries());
+        setProperty(userProperties, CONFIG_PROP_MAX_CONNECTIONS_PER_ROUTE + "." + repoFromEnv.getId(), repoFromEnv.getMaxConnections());
+        if (repoFromEnv.isPreemptiveAuth()) {
+            setProperty(userProperties, CONFIG_PROP_PREEMPTIVE_AUTH + "." + repoFromEnv.getId(), Boolean.TRUE);
+        }
+    }
+
+    private void setProperty(Properties properties, String key, Object value) {
+        if (value != null && !properties.containsKey(key)) {
+            properties.setProperty(key, String.valueOf(value));
+            logMessage("Set " + key + "=" + value);
+        }
+    }
+
     List<RepoFromEnv> getReposFromConfiguration(Map<String, String> configMap, File reactorRootDir) {
 
         List<RepoFromEnv> reposFromEnv = configMap.keySet().stream()
@@ -202,8 +608,12 @@ public class FromEnvReposConfigurationProcessor implements ConfigurationProcesso
                         throw new IllegalArgumentException("If property " + usernameKey + " is set, password property " + passwordKey
                                 + " also has to be set along with it");
                     }
+                    String tokenKey = KEY_PREFIX_MVN_SETTINGS_REPO + repoEnvNameInKey + KEY_SUFFIX_TOKEN;
+                    if (!isBlank(username) && !isBlank(configMap.get(tokenKey))) {
+                        throw new IllegalArgumentException("Properties " + usernameKey + " and " + tokenKey + " must not both be set");
+                    }
                     if (!isBlank(url)) {
-                        if (isBlank(username)) {
+                        if (isBlank(username) && isBlank(configMap.get(tokenKey))) {
                             logMessage("Repository " + url + " has NOT configured credentials (env variables " + usernameKey + " and "
                                     + passwordKey + " are missing)");
                         }
@@ -212,8 +622,26 @@ public class FromEnvReposConfigurationProcessor implements ConfigurationProcesso
                             url = url.replace(VAR_EXPR_MULTIMODULE_PROJECT_DIR, reactorRootDirPath);
                             logMessage("Replaced "+VAR_EXPR_MULTIMODULE_PROJECT_DIR+" in url with "+reactorRootDirPath);
                         }
-                        
-                        return new RepoFromEnv(id, url, username, password);
+
+                        if (ArchiveRepository.isArchiveUrl(url)) {
+                            // the archive itself is opened per session
+                            String rootPath = ArchiveRepository.getRootPath(url);
+                            url = getArchiveFile(url, reactorRootDir).toUri().toString()
+                                    + (rootPath.isEmpty() ? "" : ArchiveRepository.ROOT_SEPARATOR + rootPath);
+                        }
+
+                        RepoFromEnv.Builder repoFromEnv = new RepoFromEnv.Builder(id, url, username, password);
+                        GroupIdFilter groupIdFilter = GroupIdFilter.parse(getRepoValue(configMap, repoEnvNameInKey, KEY_SUFFIX_INCLUDES),
+                                getRepoValue(configMap, repoEnvNameInKey, KEY_SUFFIX_EXCLUDES));
+                        repoFromEnv.setGroupIdFilter(groupIdFilter);
+                        if (!groupIdFilter.isAcceptAll()) {
+                            logMessage("Repository " + id + " is only queried for groupIds matching " + groupIdFilter);
+                        }
+                        configureRepositoryPolicies(repoFromEnv, id, configMap, repoEnvNameInKey);
+                        configureScope(repoFromEnv, id, configMap, repoEnvNameInKey);
+                        configureTransport(repoFromEnv, id, configMap, repoEnvNameInKey);
+                        configureAuthentication(repoFromEnv, id, url, username, configMap, repoEnvNameInKey);
+                        return repoFromEnv.build();
                     } else {
                         logMessage("Property/Variable " + urlKey + " is configured but blank, not adding a repository");
                         return null;
@@ -221,23 +649,172 @@ public class FromEnvReposConfigurationProcessor implements ConfigurationProcesso
                 })
                 .filter(Objects::nonNull)
                 .collect(Collectors.toList());
-        
-        reposFromEnv.stream().forEach(repoFromEnv -> 
-            // minimal line that we always log directly (regardless of MVN_SETTINGS_REPO_LOG_VERBOSE or -X parameter)
-            logger.info("Repository added from system properties or environment variables: " + repoFromEnv.getUrl()  + " (id: " + repoFromEnv.getId() + (repoFromEnv.getUsername() != null ? " user: " + repoFromEnv.getUsername() : "") + ")")
-        );
-        
+
         return reposFromEnv;
 
     }
 
 
-    void addImplicitFileRepo(List<RepoFromEnv> reposFromEnv, File multiModuleProjectDirectory) {
+    /**
+     * @return the opened archives of the archive repositories by repository id
+     */
+    Map<String, ArchiveRepository> openArchiveRepositories(List<RepoFromEnv> reposFromEnv, File reactorRootDir) {
+        Map<String, ArchiveRepository> archiveRepositories = new LinkedHashMap<>();
+        for (RepoFromEnv repoFromEnv : reposFromEnv) {
+            if (ArchiveRepository.isArchiveUrl(repoFromEnv.getUrl())) {
+                archiveRepositories.put(repoFromEnv.getId(), openArchiveRepository(repoFromEnv.getUrl(), reactorRootDir));
+            }
+        }
+        return archiveRepositories;
+    }
+
+    private Path getArchiveFile(String url, File reactorRootDir) {
+        String archivePath = ArchiveRepository.getArchivePath(url);
+        return archivePath.startsWith("file:") ? Paths.get(URI.create(archivePath)) : reactorRootDir.toPath().resolve(archivePath);
+    }
+
+    ArchiveRepository openArchiveRepository(String url, File reactorRootDir) {
+        try {
+            long startTime = System.currentTimeMillis();
+            ArchiveRepository archiveRepository = ArchiveRepository.open(getArchiveFile(url, reactorRootDir),
+                    ArchiveRepository.getRootPath(url));
+            logMessage("Indexed " + archiveRepository.getIndex().size() + " files in repository archive " + archiveRepository + " in "
+                    + (System.currentTimeMillis() - startTime) + "ms");
+            return archiveRepository;
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalArgumentException("Could not open repository archive " + url + ": " + e, e);
+        }
+    }
+
+    /**
+     * @return the index of the implicit file repository or {@code null} if there is none (or it could not be indexed)
+     */
+    FileRepositoryIndex addImplicitFileRepo(List<RepoFromEnv> reposFromEnv, File multiModuleProjectDirectory) {
         File implicitRepo = new File(multiModuleProjectDirectory, IMPLICIT_FILE_REPO_PATH);
+        FileRepositoryIndex fileIndex = null;
         if(implicitRepo.exists()) {
-            reposFromEnv.add(0, new RepoFromEnv(IMPLICIT_FILE_REPO_ID, implicitRepo.toURI().toString(), null, null));
+            RepoFromEnv implicitFileRepo = new RepoFromEnv(IMPLICIT_FILE_REPO_ID, implicitRepo.toURI().toString(), null, null);
+            try {
+                long startTime = System.currentTimeMillis();
+                fileIndex = FileRepositoryIndex.build(implicitRepo.toPath());
+                logMessage("Indexed " + fileIndex.size() + " files in " + IMPLICIT_FILE_REPO_PATH + " in "
+                        + (System.currentTimeMillis() - startTime) + "ms");
+            } catch (IOException e) {
+                logger.warn("Could not index " + IMPLICIT_FILE_REPO_PATH + " (every artifact will be looked up there): " + e, e);
+            }
+            reposFromEnv.add(0, implicitFileRepo);
             logger.info("Implicit file repository added for directory " + IMPLICIT_FILE_REPO_PATH);
         }
+        return fileIndex;
+    }
+
+    private void configureRepositoryPolicies(RepoFromEnv.Builder repoFromEnv, String id, Map<String, String> configMap,
+            String repoEnvNameInKey) {
+        boolean releasesEnabled = getBooleanValue(configMap, KEY_PREFIX_MVN_SETTINGS_REPO + repoEnvNameInKey + KEY_SUFFIX_RELEASES, true);
+        boolean snapshotsEnabled = getBooleanValue(configMap, KEY_PREFIX_MVN_SETTINGS_REPO + repoEnvNameInKey + KEY_SUFFIX_SNAPSHOTS, true);
+        if (!releasesEnabled && !snapshotsEnabled) {
+            throw new IllegalArgumentException("Properties " + KEY_PREFIX_MVN_SETTINGS_REPO + repoEnvNameInKey + KEY_SUFFIX_RELEASES + " and "
+                    + KEY_PREFIX_MVN_SETTINGS_REPO + repoEnvNameInKey + KEY_SUFFIX_SNAPSHOTS + " must not both be false");
+        }
+        String updatePolicy = getPatternValue(configMap, KEY_PREFIX_MVN_SETTINGS_REPO + repoEnvNameInKey + KEY_SUFFIX_UPDATE_POLICY,
+                UPDATE_POLICY_PATTERN);
+        String checksumPolicy = getPatternValue(configMap,
+                KEY_PREFIX_MVN_SETTINGS_REPO + repoEnvNameInKey + KEY_SUFFIX_CHECKSUM_POLICY, CHECKSUM_POLICY_PATTERN);
+        repoFromEnv.setReleasesEnabled(releasesEnabled).setSnapshotsEnabled(snapshotsEnabled).setUpdatePolicy(updatePolicy)
+                .setChecksumPolicy(checksumPolicy);
+        logMessage("Repository " + id + " policies: releases:" + releasesEnabled + ",snapshots:" + snapshotsEnabled + ",updatePolicy:"
+                + updatePolicy + ",checksumPolicy:" + checksumPolicy);
+    }
+
+    private void configureScope(RepoFromEnv.Builder repoFromEnv, String id, Map<String, String> configMap, String repoEnvNameInKey) {
+        String scope = getPatternValue(configMap, KEY_PREFIX_MVN_SETTINGS_REPO + repoEnvNameInKey + KEY_SUFFIX_SCOPE, SCOPE_PATTERN);
+        if (scope != null) {
+            RepoFromEnv.Scope parsedScope = RepoFromEnv.Scope.valueOf(scope.toUpperCase(Locale.ROOT));
+            repoFromEnv.setScope(parsedScope);
+            if (parsedScope != RepoFromEnv.Scope.BOTH) {
+                logMessage("Repository " + id + " is only used for " + scope);
+            }
+        }
+    }
+
+    private void configureTransport(RepoFromEnv.Builder repoFromEnv, String id, Map<String, String> configMap, String repoEnvNameInKey) {
+        Integer connectTimeout = getNonNegativeIntValue(configMap,
+                KEY_PREFIX_MVN_SETTINGS_REPO + repoEnvNameInKey + KEY_SUFFIX_CONNECT_TIMEOUT);
+        Integer readTimeout = getNonNegativeIntValue(configMap, KEY_PREFIX_MVN_SETTINGS_REPO + repoEnvNameInKey + KEY_SUFFIX_READ_TIMEOUT);
+        Integer retries = getNonNegativeIntValue(configMap, KEY_PREFIX_MVN_SETTINGS_REPO + repoEnvNameInKey + KEY_SUFFIX_RETRIES);
+        Integer maxConnections = getNonNegativeIntValue(configMap,
+                KEY_PREFIX_MVN_SETTINGS_REPO + repoEnvNameInKey + KEY_SUFFIX_MAX_CONNECTIONS);
+        repoFromEnv.setConnectTimeout(connectTimeout).setReadTimeout(readTimeout).setRetries(retries).setMaxConnections(maxConnections);
+        if (connectTimeout != null || readTimeout != null || retries != null || maxConnections != null) {
+            logMessage("Repository " + id + " transport: connectTimeout:" + connectTimeout + ",readTimeout:" + readTimeout + ",retries:"
+                    + retries + ",maxConnections:" + maxConnections);
+        }
+    }
+
+    private void configureAuthentication(RepoFromEnv.Builder repoFromEnv, String id, String url, String username,
+            Map<String, String> configMap, String repoEnvNameInKey) {
+        String token = getRepoValue(configMap, repoEnvNameInKey, KEY_SUFFIX_TOKEN);
+        if (!isBlank(token)) {
+            repoFromEnv.setToken(token.trim());
+        }
+        if (username != null) {
+            // sending credentials without challenge is only safe by default if they are encrypted in transit
+            boolean preemptiveAuth = getBooleanValue(configMap,
+                    KEY_PREFIX_MVN_SETTINGS_REPO + repoEnvNameInKey + KEY_SUFFIX_PREEMPTIVE_AUTH, url.startsWith("https:"));
+            repoFromEnv.setPreemptiveAuth(preemptiveAuth);
+            logMessage("Repository " + id + " authentication: user " + username + (preemptiveAuth ? " (preemptive)" : " (on challenge)"));
+        } else if (!isBlank(token)) {
+            logMessage("Repository " + id + " authentication: bearer token (preemptive)");
+        }
+    }
+
+    private String getRepoValue(Map<String, String> configMap, String repoEnvNameInKey, String keySuffix) {
+        return configMap.get(KEY_PREFIX_MVN_SETTINGS_REPO + repoEnvNameInKey + keySuffix);
+    }
+
+    private boolean getBooleanValue(Map<String, String> configMap, String key, boolean defaultValue) {
+        String value = configMap.get(key);
+        if (isBlank(value)) {
+            return defaultValue;
+        }
+        if (!value.trim().equalsIgnoreCase("true") && !value.trim().equalsIgnoreCase("false")) {
+            throw new IllegalArgumentException("Property " + key + " has to be true or false but is '" + value + "'");
+        }
+        return Boolean.parseBoolean(value.trim());
+    }
+
+    private String getPatternValue(Map<String, String> configMap, String key, Pattern pattern) {
+        String value = configMap.get(key);
+        if (isBlank(value)) {
+            return null;
+        }
+        if (!pattern.matcher(value.trim()).matches()) {
+            throw new IllegalArgumentException("Property " + key + " has to match " + pattern + " but is '" + value + "'");
+        }
+        return value.trim();
+    }
+
+    private int getIntValue(Map<String, String> configMap, String key, int defaultValue) {
+        String value = configMap.get(key);
+        if (isBlank(value)) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Property " + key + " has to be a number but is '" + value + "'", e);
+        }
+    }
+
+    private Integer getNonNegativeIntValue(Map<String, String> configMap, String key) {
+        if (isBlank(configMap.get(key))) {
+            return null;
+        }
+        int value = getIntValue(configMap, key, 0);
+        if (value < 0) {
+            throw new IllegalArgumentException("Property " + key + " must not be negative but is '" + value + "'");
+        }
+        return value;
     }
 
     private boolean isBlank(String str) {
@@ -0,0 +1,91 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Decides based on include and exclude patterns if a groupId may be requested from a repository.
+ *
+ * A pattern without wildcard matches the given groupId and all groupIds below it (e.g. {@code com.vendor} matches {@code com.vendor}
+ * and {@code com.vendor.lib} but not {@code com.vendorlib}), the wildcard {@code *} matches any sequence of characters. Excludes
+ * take precedence over includes, if no includes are given all groupIds not excluded are accepted.
+ */
+class GroupIdFilter {
+
+    static final GroupIdFilter ACCEPT_ALL = new GroupIdFilter(Collections.emptyList(), Collections.emptyList());
+
+    private final List<String> includes;
+    private final List<String> excludes;
+    private final List<Pattern> includePatterns;
+    private final List<Pattern> excludePatterns;
+
+    private GroupIdFilter(List<String> includes, List<String> excludes) {
+        this.includes = includes;
+        this.excludes = excludes;
+        this.includePatterns = includes.stream().map(GroupIdFilter::toRegex).collect(Collectors.toList());
+        this.excludePatterns = excludes.stream().map(GroupIdFilter::toRegex).collect(Collectors.toList());
+    }
+
+    /**
+     * @param includes comma-separated include patterns or {@code null}
+     * @param excludes comma-separated exclude patterns or {@code null}
+     * @return the filter
+     */
+    static GroupIdFilter parse(String includes, String excludes) {
+        List<String> includePatterns = splitPatterns(includes);
+        List<String> excludePatterns = splitPatterns(excludes);
+        if (includePatterns.isEmpty() && excludePatterns.isEmpty()) {
+            return ACCEPT_ALL;
+        }
+        return new GroupIdFilter(includePatterns, excludePatterns);
+    }
+
+    private static List<String> splitPatterns(String patterns) {
+        if (patterns == null) {
+            return Collections.emptyList();
+        }
+        return Arrays.stream(patterns.split(","))
+                .map(String::trim)
+                .filter(pattern -> !pattern.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    private static Pattern toRegex(String pattern) {
+        String regex = Arrays.stream(pattern.split("\\*", -1)).map(Pattern::quote).collect(Collectors.joining(".*"));
+        if (!pattern.contains("*")) {
+            regex += "(\\..*)?";
+        }
+        return Pattern.compile(regex);
+    }
+
+    boolean isAcceptAll() {
+        return this == ACCEPT_ALL;
+    }
+
+    boolean accepts(String groupId) {
+        if (groupId == null || groupId.isEmpty()) {
+            // repository level metadata
+            return true;
+        }
+        if (excludePatterns.stream().anyMatch(pattern -> pattern.matcher(groupId).matches())) {
+            return false;
+        }
+        return includePatterns.isEmpty() || includePatterns.stream().anyMatch(pattern -> pattern.matcher(groupId).matches());
+    }
+
+    @Override
+    public String toString() {
+        return "includes: " + String.join(",", includes) + " excludes: " + String.join(",", excludes);
+    }
+}
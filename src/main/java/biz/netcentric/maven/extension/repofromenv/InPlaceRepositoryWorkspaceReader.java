@@ -0,0 +1,80 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.repository.WorkspaceReader;
+import org.eclipse.aether.repository.WorkspaceRepository;
+
+/**
+ * Resolves artifacts directly from a directory in the default Maven 2 layout (as indexed in its {@link FileRepositoryIndex}), so the
+ * artifacts are used in place instead of being copied to the local repository. The workspace reader that was configured before
+ * (if any) takes precedence.
+ */
+class InPlaceRepositoryWorkspaceReader implements WorkspaceReader {
+
+    static final String WORKSPACE_REPOSITORY_CONTENT_TYPE = "repos-from-env-in-place";
+
+    private final WorkspaceReader delegate;
+    private final Path repositoryDir;
+    private final FileRepositoryIndex index;
+    private final WorkspaceRepository workspaceRepository;
+
+    private final AtomicInteger hits = new AtomicInteger();
+
+    InPlaceRepositoryWorkspaceReader(WorkspaceReader delegate, Path repositoryDir, FileRepositoryIndex index) {
+        this.delegate = delegate;
+        this.repositoryDir = repositoryDir;
+        this.index = index;
+        this.workspaceRepository = new WorkspaceRepository(WORKSPACE_REPOSITORY_CONTENT_TYPE,
+                delegate != null ? Arrays.asList(delegate.getRepository().getKey(), repositoryDir) : repositoryDir);
+    }
+
+    @Override
+    public WorkspaceRepository getRepository() {
+        return workspaceRepository;
+    }
+
+    @Override
+    public File findArtifact(Artifact artifact) {
+        File file = delegate != null ? delegate.findArtifact(artifact) : null;
+        if (file == null && index.contains(artifact)) {
+            hits.incrementAndGet();
+            file = repositoryDir.resolve(FileRepositoryIndex.getPath(artifact)).toFile();
+        }
+        return file;
+    }
+
+    @Override
+    public List<String> findVersions(Artifact artifact) {
+        Set<String> versions = new LinkedHashSet<>();
+        if (delegate != null) {
+            versions.addAll(delegate.findVersions(artifact));
+        }
+        for (String version : index.getVersions(artifact.getGroupId(), artifact.getArtifactId())) {
+            if (index.contains(artifact.setVersion(version))) {
+                versions.add(version);
+            }
+        }
+        return new ArrayList<>(versions);
+    }
+
+    int getHits() {
+        return hits.get();
+    }
+}
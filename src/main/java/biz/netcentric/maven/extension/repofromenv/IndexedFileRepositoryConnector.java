@@ -0,0 +1,37 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import java.util.Collection;
+
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.spi.connector.ArtifactDownload;
+import org.eclipse.aether.spi.connector.MetadataDownload;
+import org.eclipse.aether.spi.connector.RepositoryConnector;
+
+/**
+ * Skips the file system access for artifacts and metadata that are not contained in the {@link FileRepositoryIndex} of a file
+ * repository.
+ */
+class IndexedFileRepositoryConnector extends ForwardingRepositoryConnector {
+
+    private final FileRepositoryIndex index;
+
+    IndexedFileRepositoryConnector(RepositoryConnector delegate, RemoteRepository repository, FileRepositoryIndex index) {
+        super(delegate, repository);
+        this.index = index;
+    }
+
+    @Override
+    public void get(Collection<? extends ArtifactDownload> artifactDownloads, Collection<? extends MetadataDownload> metadataDownloads) {
+        delegate.get(
+                rejectArtifactsNotMatching(artifactDownloads, download -> index.contains(download.getArtifact())),
+                rejectMetadataNotMatching(metadataDownloads, download -> index.contains(download.getMetadata())));
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.metadata.Metadata;
+import org.eclipse.aether.repository.LocalArtifactRegistration;
+import org.eclipse.aether.repository.LocalArtifactRequest;
+import org.eclipse.aether.repository.LocalArtifactResult;
+import org.eclipse.aether.repository.LocalMetadataRegistration;
+import org.eclipse.aether.repository.LocalMetadataRequest;
+import org.eclipse.aether.repository.LocalMetadataResult;
+import org.eclipse.aether.repository.LocalRepository;
+import org.eclipse.aether.repository.LocalRepositoryManager;
+import org.eclipse.aether.repository.RemoteRepository;
+
+/**
+ * Layers a read-only base local repository underneath the (writable) local repository of the build: release artifacts that are not
+ * available in the local repository but contained in the {@link FileRepositoryIndex} of the base repository are used in place from
+ * the base repository. All writes and all metadata go to the local repository only.
+ */
+class LayeredLocalRepositoryManager implements LocalRepositoryManager {
+
+    private final LocalRepositoryManager delegate;
+    private final Path baseRepositoryDir;
+    private final FileRepositoryIndex baseRepositoryIndex;
+
+    private final AtomicInteger baseHits = new AtomicInteger();
+
+    LayeredLocalRepositoryManager(LocalRepositoryManager delegate, Path baseRepositoryDir, FileRepositoryIndex baseRepositoryIndex) {
+        this.delegate = delegate;
+        this.baseRepositoryDir = baseRepositoryDir;
+        this.baseRepositoryIndex = baseRepositoryIndex;
+    }
+
+    @Override
+    public LocalArtifactResult find(RepositorySystemSession session, LocalArtifactRequest request) {
+        LocalArtifactResult result = delegate.find(session, request);
+        Artifact artifact = request.getArtifact();
+        // snapshots in the base repository would never be updated
+        if (!result.isAvailable() && !artifact.isSnapshot() && baseRepositoryIndex.contains(artifact)) {
+            File baseFile = baseRepositoryDir.resolve(FileRepositoryIndex.getPath(artifact)).toFile();
+            baseHits.incrementAndGet();
+            return new LocalArtifactResult(request).setFile(baseFile).setAvailable(true);
+        }
+        return result;
+    }
+
+    int getBaseHits() {
+        return baseHits.get();
+    }
+
+    @Override
+    public LocalRepository getRepository() {
+        return delegate.getRepository();
+    }
+
+    @Override
+    public String getPathForLocalArtifact(Artifact artifact) {
+        return delegate.getPathForLocalArtifact(artifact);
+    }
+
+    @Override
+    public String getPathForRemoteArtifact(Artifact artifact, RemoteRepository repository, String context) {
+        return delegate.getPathForRemoteArtifact(artifact, repository, context);
+    }
+
+    @Override
+    public String getPathForLocalMetadata(Metadata metadata) {
+        return delegate.getPathForLocalMetadata(metadata);
+    }
+
+    @Override
+    public String getPathForRemoteMetadata(Metadata metadata, RemoteRepository repository, String context) {
+        return delegate.getPathForRemoteMetadata(metadata, repository, context);
+    }
+
+    @Override
+    public void add(RepositorySystemSession session, LocalArtifactRegistration request) {
+        delegate.add(session, request);
+    }
+
+    @Override
+    public LocalMetadataResult find(RepositorySystemSession session, LocalMetadataRequest request) {
+        return delegate.find(session, request);
+    }
+
+    @Override
+    public void add(RepositorySystemSession session, LocalMetadataRegistration request) {
+        delegate.add(session, request);
+    }
+
+    @Override
+    public String toString() {
+        return delegate + " (layered over " + baseRepositoryDir + ")";
+    }
+}
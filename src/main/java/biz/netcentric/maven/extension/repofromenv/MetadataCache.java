@@ -0,0 +1,120 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Session-scoped cache of metadata ({@code maven-metadata.xml}) fetched from repositories from env. Concurrent requests for the same
+ * metadata (as issued by the modules of a parallel build) are coalesced into a single fetch: the first caller fetches the metadata,
+ * all others wait for and reuse its result. Results (the content or the information that the metadata does not exist) are reused
+ * for the configured time to live, failed fetches are never cached.
+ */
+class MetadataCache {
+
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+
+    private final ConcurrentMap<String, CompletableFuture<Entry>> entries = new ConcurrentHashMap<>();
+
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger coalesced = new AtomicInteger();
+    private final AtomicInteger fetches = new AtomicInteger();
+
+    MetadataCache(long ttlNanos) {
+        this(ttlNanos, System::nanoTime);
+    }
+
+    MetadataCache(long ttlNanos, LongSupplier nanoClock) {
+        this.ttlNanos = ttlNanos;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * @return {@code null} if the caller is responsible for fetching the metadata (and has to call {@link #complete(String, Entry)}
+     *         afterwards in any case), otherwise the (possibly already completed) result of the fetch of another caller which
+     *         completes with {@code null} if that fetch failed
+     */
+    CompletableFuture<Entry> reserve(String key) {
+        CompletableFuture<Entry> reservation = new CompletableFuture<>();
+        while (true) {
+            CompletableFuture<Entry> existing = entries.putIfAbsent(key, reservation);
+            if (existing == null) {
+                fetches.incrementAndGet();
+                return null;
+            }
+            if (!existing.isDone()) {
+                coalesced.incrementAndGet();
+                return existing;
+            }
+            Entry entry = existing.getNow(null);
+            if (entry != null && nanoClock.getAsLong() - entry.fetched < ttlNanos) {
+                hits.incrementAndGet();
+                return existing;
+            }
+            if (entries.replace(key, existing, reservation)) {
+                fetches.incrementAndGet();
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Completes the fetch reserved with {@link #reserve(String)}.
+     *
+     * @param entry the result of the fetch or {@code null} if it failed
+     */
+    void complete(String key, Entry entry) {
+        CompletableFuture<Entry> reservation = entries.get(key);
+        if (reservation == null || reservation.isDone()) {
+            return;
+        }
+        if (entry == null) {
+            entries.remove(key, reservation);
+        }
+        reservation.complete(entry);
+    }
+
+    Entry newEntry(byte[] content) {
+        return new Entry(content, nanoClock.getAsLong());
+    }
+
+    int getHits() {
+        return hits.get();
+    }
+
+    int getCoalesced() {
+        return coalesced.get();
+    }
+
+    int getFetches() {
+        return fetches.get();
+    }
+
+    static final class Entry {
+        private final byte[] content;
+        private final long fetched;
+
+        private Entry(byte[] content, long fetched) {
+            this.content = content;
+            this.fetched = fetched;
+        }
+
+        /**
+         * @return the content of the metadata or {@code null} if it does not exist in the repository
+         */
+        byte[] getContent() {
+            return content;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.repository.RepositoryPolicy;
+import org.eclipse.aether.spi.connector.ArtifactDownload;
+import org.eclipse.aether.spi.connector.MetadataDownload;
+import org.eclipse.aether.spi.connector.RepositoryConnector;
+import org.eclipse.aether.transfer.MetadataNotFoundException;
+import org.eclipse.aether.transfer.MetadataTransferException;
+import org.eclipse.aether.transfer.TransferCancelledException;
+import org.eclipse.aether.transfer.TransferEvent;
+import org.eclipse.aether.transfer.TransferListener;
+import org.eclipse.aether.transfer.TransferResource;
+
+/**
+ * Serves metadata downloads from the {@link MetadataCache}, so metadata requested by multiple modules of a (parallel) build is only
+ * fetched once from the repository. Downloads that wait for a fetch of another thread which failed are passed on to the delegate.
+ * Only fetches with the same checksum policy are shared, downloads served from the cache fire the transfer events of a download.
+ * With the update policy {@code always} (i.e. {@code -U}) the cache is bypassed.
+ */
+class MetadataCachingRepositoryConnector extends ForwardingRepositoryConnector {
+
+    private final RepositorySystemSession session;
+    private final MetadataCache metadataCache;
+
+    MetadataCachingRepositoryConnector(RepositoryConnector delegate, RemoteRepository repository, RepositorySystemSession session,
+            MetadataCache metadataCache) {
+        super(delegate, repository);
+        this.session = session;
+        this.metadataCache = metadataCache;
+    }
+
+    @Override
+    public void get(Collection<? extends ArtifactDownload> artifactDownloads, Collection<? extends MetadataDownload> metadataDownloads) {
+        if (RepositoryPolicy.UPDATE_POLICY_ALWAYS.equals(session.getUpdatePolicy())) {
+            delegate.get(artifactDownloads, metadataDownloads);
+            return;
+        }
+        List<MetadataDownload> downloadsToPerform = new ArrayList<>();
+        Map<MetadataDownload, CompletableFuture<MetadataCache.Entry>> downloadsToWaitFor = new LinkedHashMap<>();
+        for (MetadataDownload download : nullToEmpty(metadataDownloads)) {
+            CompletableFuture<MetadataCache.Entry> fetch = metadataCache.reserve(getKey(download));
+            if (fetch == null) {
+                downloadsToPerform.add(download);
+            } else {
+                downloadsToWaitFor.put(download, fetch);
+            }
+        }
+
+        boolean performed = false;
+        try {
+            delegate.get(artifactDownloads, downloadsToPerform);
+            performed = true;
+        } finally {
+            // always complete the reservations, other threads are waiting for them
+            for (MetadataDownload download : downloadsToPerform) {
+                metadataCache.complete(getKey(download), performed ? toEntry(download) : null);
+            }
+        }
+
+        List<MetadataDownload> failedDownloads = new ArrayList<>();
+        downloadsToWaitFor.forEach((download, fetch) -> {
+            MetadataCache.Entry entry = fetch.join();
+            if (entry == null) {
+                failedDownloads.add(download);
+            } else {
+                apply(entry, download);
+            }
+        });
+        if (!failedDownloads.isEmpty()) {
+            delegate.get(null, failedDownloads);
+        }
+    }
+
+    private String getKey(MetadataDownload download) {
+        // a fetch validated less strictly must not serve downloads with a stricter checksum policy
+        return repository.getId() + " " + repository.getUrl() + " " + FileRepositoryIndex.getPath(download.getMetadata()) + " "
+                + download.getChecksumPolicy();
+    }
+
+    private MetadataCache.Entry toEntry(MetadataDownload download) {
+        if (download.getException() instanceof MetadataNotFoundException) {
+            return metadataCache.newEntry(null);
+        }
+        if (download.getException() != null) {
+            return null;
+        }
+        try {
+            return metadataCache.newEntry(Files.readAllBytes(download.getFile().toPath()));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void apply(MetadataCache.Entry entry, MetadataDownload download) {
+        TransferResource resource = new TransferResource(repository.getUrl(), FileRepositoryIndex.getPath(download.getMetadata()),
+                download.getFile(), download.getTrace());
+        TransferEvent.Builder eventBuilder = new TransferEvent.Builder(session, resource);
+        TransferListener listener = download.getListener();
+        try {
+            if (listener != null) {
+                listener.transferInitiated(eventBuilder.resetType(TransferEvent.EventType.INITIATED).build());
+            }
+            if (entry.getContent() == null) {
+                download.setException(new MetadataNotFoundException(download.getMetadata(), repository));
+                if (listener != null) {
+                    listener.transferFailed(eventBuilder.resetType(TransferEvent.EventType.FAILED).setException(download.getException())
+                            .build());
+                }
+                return;
+            }
+            resource.setContentLength(entry.getContent().length);
+            if (listener != null) {
+                listener.transferStarted(eventBuilder.resetType(TransferEvent.EventType.STARTED).build());
+            }
+            write(download.getFile().toPath(), entry.getContent());
+            if (listener != null) {
+                listener.transferSucceeded(eventBuilder.resetType(TransferEvent.EventType.SUCCEEDED)
+                        .setTransferredBytes(entry.getContent().length).build());
+            }
+        } catch (TransferCancelledException e) {
+            download.setException(new MetadataTransferException(download.getMetadata(), repository, e));
+        } catch (IOException e) {
+            download.setException(new MetadataTransferException(download.getMetadata(), repository, e));
+            if (listener != null) {
+                listener.transferFailed(eventBuilder.resetType(TransferEvent.EventType.FAILED).setException(e).build());
+            }
+        }
+    }
+
+    /**
+     * Writes the file via a unique temp file, so concurrent readers (or builds sharing the local repository) never see partial content.
+     */
+    private static void write(Path file, byte[] content) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path tmpFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(tmpFile, content);
+            Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+    }
+}
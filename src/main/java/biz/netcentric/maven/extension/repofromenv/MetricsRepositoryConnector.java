@@ -0,0 +1,152 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.spi.connector.ArtifactDownload;
+import org.eclipse.aether.spi.connector.MetadataDownload;
+import org.eclipse.aether.spi.connector.RepositoryConnector;
+import org.eclipse.aether.transfer.ArtifactNotFoundException;
+import org.eclipse.aether.transfer.MetadataNotFoundException;
+import org.eclipse.aether.transfer.TransferCancelledException;
+import org.eclipse.aether.transfer.TransferEvent;
+import org.eclipse.aether.transfer.TransferListener;
+
+/**
+ * Records the outcome, the transferred bytes and the latency of every download of the delegate in the {@link RepositoryMetrics}. The
+ * latency of a single download is measured via its transfer listener (from initiating the transfer until it succeeded or failed), as
+ * the delegate performs the downloads of one call in parallel.
+ */
+class MetricsRepositoryConnector extends ForwardingRepositoryConnector {
+
+    private final RepositoryMetrics.RepositoryStats stats;
+
+    MetricsRepositoryConnector(RepositoryConnector delegate, RemoteRepository repository, RepositoryMetrics.RepositoryStats stats) {
+        super(delegate, repository);
+        this.stats = stats;
+    }
+
+    @Override
+    public void get(Collection<? extends ArtifactDownload> artifactDownloads, Collection<? extends MetadataDownload> metadataDownloads) {
+        List<TimingTransferListener> artifactListeners = new ArrayList<>();
+        for (ArtifactDownload download : nullToEmpty(artifactDownloads)) {
+            TimingTransferListener listener = new TimingTransferListener(download.getListener());
+            download.setListener(listener);
+            artifactListeners.add(listener);
+        }
+        List<TimingTransferListener> metadataListeners = new ArrayList<>();
+        for (MetadataDownload download : nullToEmpty(metadataDownloads)) {
+            TimingTransferListener listener = new TimingTransferListener(download.getListener());
+            download.setListener(listener);
+            metadataListeners.add(listener);
+        }
+
+        long startTime = System.nanoTime();
+        try {
+            delegate.get(artifactDownloads, metadataDownloads);
+        } finally {
+            long endTime = System.nanoTime();
+            int i = 0;
+            for (ArtifactDownload download : nullToEmpty(artifactDownloads)) {
+                TimingTransferListener listener = artifactListeners.get(i++);
+                download.setListener(listener.delegate);
+                record(stats.getArtifacts(), download.getException(), download.getException() instanceof ArtifactNotFoundException,
+                        listener, startTime, endTime);
+            }
+            i = 0;
+            for (MetadataDownload download : nullToEmpty(metadataDownloads)) {
+                TimingTransferListener listener = metadataListeners.get(i++);
+                download.setListener(listener.delegate);
+                record(stats.getMetadata(), download.getException(), download.getException() instanceof MetadataNotFoundException,
+                        listener, startTime, endTime);
+            }
+        }
+    }
+
+    private static void record(RepositoryMetrics.TransferStats transferStats, Exception exception, boolean notFound,
+            TimingTransferListener listener, long startTime, long endTime) {
+        // transfers that never got initiated (e.g. failed early) are accounted with the duration of the whole call
+        long latencyMs = TimeUnit.NANOSECONDS.toMillis(
+                (listener.endTime != 0 ? listener.endTime : endTime) - (listener.startTime != 0 ? listener.startTime : startTime));
+        if (exception == null) {
+            transferStats.recordHit(latencyMs, listener.transferredBytes);
+        } else if (notFound) {
+            transferStats.recordNotFound(latencyMs);
+        } else {
+            transferStats.recordError(latencyMs);
+        }
+    }
+
+    /**
+     * Takes the time of a single transfer and forwards all events to the original listener of the transfer (if any).
+     */
+    static class TimingTransferListener implements TransferListener {
+
+        private final TransferListener delegate;
+
+        private volatile long startTime;
+        private volatile long endTime;
+        private volatile long transferredBytes;
+
+        TimingTransferListener(TransferListener delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void transferInitiated(TransferEvent event) throws TransferCancelledException {
+            startTime = System.nanoTime();
+            if (delegate != null) {
+                delegate.transferInitiated(event);
+            }
+        }
+
+        @Override
+        public void transferStarted(TransferEvent event) throws TransferCancelledException {
+            if (delegate != null) {
+                delegate.transferStarted(event);
+            }
+        }
+
+        @Override
+        public void transferProgressed(TransferEvent event) throws TransferCancelledException {
+            if (delegate != null) {
+                delegate.transferProgressed(event);
+            }
+        }
+
+        @Override
+        public void transferCorrupted(TransferEvent event) throws TransferCancelledException {
+            if (delegate != null) {
+                delegate.transferCorrupted(event);
+            }
+        }
+
+        @Override
+        public void transferSucceeded(TransferEvent event) {
+            endTime = System.nanoTime();
+            transferredBytes = event.getTransferredBytes();
+            if (delegate != null) {
+                delegate.transferSucceeded(event);
+            }
+        }
+
+        @Override
+        public void transferFailed(TransferEvent event) {
+            endTime = System.nanoTime();
+            if (delegate != null) {
+                delegate.transferFailed(event);
+            }
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.repository.RepositoryPolicy;
+
+/**
+ * On-disk cache of artifacts that were not found in a remote repository, keyed by repository id, repository URL and artifact
+ * coordinates. Entries expire after a configurable time to live or earlier if the update policy requires a recheck (like Maven's own
+ * {@code .lastUpdated} files), the number of entries is capped with least-recently-used eviction.
+ *
+ * The cache is loaded once at startup and merged back into the cache file at the end of the session, so multiple builds can share one
+ * cache directory concurrently.
+ */
+class NotFoundCache {
+
+    static final String CACHE_FILE_NAME = "not-found-cache.txt";
+    static final String LOCK_FILE_NAME = "not-found-cache.lock";
+
+    private final Path cacheFile;
+    private final Path lockFile;
+    private final long ttlMs;
+    private final int maxEntries;
+
+    // keys in access order (least recently used first)
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // keys of entries removed in this session (artifact found again) with the time of removal
+    private final Map<String, Long> removedEntries = new HashMap<>();
+    private boolean modified = false;
+
+    NotFoundCache(Path cacheDir, long ttlMs, int maxEntries) {
+        this.cacheFile = cacheDir.resolve(CACHE_FILE_NAME);
+        this.lockFile = cacheDir.resolve(LOCK_FILE_NAME);
+        this.ttlMs = ttlMs;
+        this.maxEntries = maxEntries;
+    }
+
+    synchronized void load() throws IOException {
+        entries.clear();
+        readEntries(System.currentTimeMillis()).forEach(entries::put);
+    }
+
+    synchronized boolean isNotFound(RemoteRepository repository, Artifact artifact) {
+        return isNotFound(repository, artifact, RepositoryPolicy.UPDATE_POLICY_NEVER);
+    }
+
+    /**
+     * @param updatePolicy the update policy in effect for the artifact, an entry recorded before the last point in time the policy
+     *            requires a recheck is treated as expired
+     */
+    synchronized boolean isNotFound(RemoteRepository repository, Artifact artifact, String updatePolicy) {
+        String key = getKey(repository, artifact);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        if (isExpired(entry, now) || isUpdateRequired(entry.recorded, updatePolicy, now)) {
+            entries.remove(key);
+            return false;
+        }
+        entry.lastAccessed = now;
+        modified = true;
+        return true;
+    }
+
+    synchronized void recordNotFound(RemoteRepository repository, Artifact artifact) {
+        long now = System.currentTimeMillis();
+        String key = getKey(repository, artifact);
+        entries.put(key, new Entry(now, now));
+        removedEntries.remove(key);
+        modified = true;
+        evict(entries);
+    }
+
+    /**
+     * Removes the entry of an artifact that has been found (again), also from the cache file on {@link #save()}.
+     */
+    synchronized void removeNotFound(RemoteRepository repository, Artifact artifact) {
+        String key = getKey(repository, artifact);
+        if (entries.remove(key) != null) {
+            removedEntries.put(key, System.currentTimeMillis());
+            modified = true;
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Merges the entries of this session with the current content of the cache file (that might have been updated by concurrent
+     * builds in the meantime) and writes the result back atomically.
+     */
+    synchronized void save() throws IOException {
+        if (!modified) {
+            return;
+        }
+        Files.createDirectories(cacheFile.getParent());
+        try (FileChannel lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                FileLock lock = lockChannel.lock()) {
+            long now = System.currentTimeMillis();
+            Map<String, Entry> mergedEntries = readEntries(now);
+            entries.forEach((key, entry) -> mergedEntries.merge(key, entry,
+                    (entryOnDisk, entryInMemory) -> new Entry(Math.max(entryOnDisk.recorded, entryInMemory.recorded),
+                            Math.max(entryOnDisk.lastAccessed, entryInMemory.lastAccessed))));
+            // entries recorded by concurrent builds after the removal are kept
+            removedEntries.forEach((key, removed) -> mergedEntries.computeIfPresent(key,
+                    (entryKey, entryOnDisk) -> entryOnDisk.recorded > removed ? entryOnDisk : null));
+
+            List<Map.Entry<String, Entry>> sortedEntries = new ArrayList<>(mergedEntries.entrySet());
+            sortedEntries.removeIf(entry -> isExpired(entry.getValue(), now));
+            sortedEntries.sort(Comparator.comparingLong(entry -> entry.getValue().lastAccessed));
+            LinkedHashMap<String, Entry> entriesToWrite = new LinkedHashMap<>();
+            sortedEntries.forEach(entry -> entriesToWrite.put(entry.getKey(), entry.getValue()));
+            evict(entriesToWrite);
+
+            Path tempFile = Files.createTempFile(cacheFile.getParent(), CACHE_FILE_NAME, ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.US_ASCII)) {
+                for (Map.Entry<String, Entry> entry : entriesToWrite.entrySet()) {
+                    writer.write(entry.getValue().recorded + " " + entry.getValue().lastAccessed + " " + entry.getKey());
+                    writer.newLine();
+                }
+            }
+            Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            removedEntries.clear();
+            modified = false;
+        }
+    }
+
+    /**
+     * @return the non-expired entries from the cache file in least-recently-used order
+     */
+    private LinkedHashMap<String, Entry> readEntries(long now) throws IOException {
+        LinkedHashMap<String, Entry> result = new LinkedHashMap<>();
+        if (!Files.exists(cacheFile)) {
+            return result;
+        }
+        List<Map.Entry<String, Entry>> sortedEntries = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(cacheFile, StandardCharsets.US_ASCII)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(" ");
+                if (parts.length != 3) {
+                    continue; // ignore corrupt lines
+                }
+                try {
+                    Entry entry = new Entry(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+                    if (!isExpired(entry, now)) {
+                        sortedEntries.add(new SimpleEntry<>(parts[2], entry));
+                    }
+                } catch (NumberFormatException e) {
+                    // ignore corrupt lines
+                }
+            }
+        }
+        sortedEntries.sort(Comparator.comparingLong(entry -> entry.getValue().lastAccessed));
+        sortedEntries.forEach(entry -> result.put(entry.getKey(), entry.getValue()));
+        return result;
+    }
+
+    private void evict(LinkedHashMap<String, Entry> entriesInLruOrder) {
+        while (entriesInLruOrder.size() > maxEntries) {
+            String eldestKey = entriesInLruOrder.keySet().iterator().next();
+            entriesInLruOrder.remove(eldestKey);
+        }
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return now - entry.recorded > ttlMs;
+    }
+
+    /**
+     * Evaluates the update policy the same way the resolver does for its {@code .lastUpdated} files (unknown policies are treated as
+     * {@code daily}).
+     */
+    static boolean isUpdateRequired(long recorded, String updatePolicy, long now) {
+        if (RepositoryPolicy.UPDATE_POLICY_NEVER.equals(updatePolicy)) {
+            return false;
+        } else if (RepositoryPolicy.UPDATE_POLICY_ALWAYS.equals(updatePolicy)) {
+            return true;
+        } else if (updatePolicy != null && updatePolicy.startsWith(RepositoryPolicy.UPDATE_POLICY_INTERVAL)) {
+            try {
+                int minutes = Integer.parseInt(updatePolicy.substring(RepositoryPolicy.UPDATE_POLICY_INTERVAL.length() + 1));
+                return recorded < now - TimeUnit.MINUTES.toMillis(minutes);
+            } catch (RuntimeException e) {
+                // fall through to daily
+            }
+        }
+        Calendar midnight = Calendar.getInstance();
+        midnight.setTimeInMillis(now);
+        midnight.set(Calendar.HOUR_OF_DAY, 0);
+        midnight.set(Calendar.MINUTE, 0);
+        midnight.set(Calendar.SECOND, 0);
+        midnight.set(Calendar.MILLISECOND, 0);
+        return recorded < midnight.getTimeInMillis();
+    }
+
+    static String getKey(RemoteRepository repository, Artifact artifact) {
+        String key = repository.getId() + "|" + repository.getUrl() + "|" + artifact.getGroupId() + ":" + artifact.getArtifactId() + ":"
+                + artifact.getExtension() + ":" + artifact.getClassifier() + ":" + artifact.getVersion();
+        try {
+            // the hash keeps the cache file compact
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not supported by JVM", e);
+        }
+    }
+
+    private static final class Entry {
+        private final long recorded;
+        private long lastAccessed;
+
+        private Entry(long recorded, long lastAccessed) {
+            this.recorded = recorded;
+            this.lastAccessed = lastAccessed;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.spi.connector.ArtifactDownload;
+import org.eclipse.aether.spi.connector.MetadataDownload;
+import org.eclipse.aether.spi.connector.RepositoryConnector;
+import org.eclipse.aether.transfer.ArtifactNotFoundException;
+
+/**
+ * Answers artifact requests that are known to be missing in the repository from the {@link NotFoundCache} and records new misses.
+ * Snapshots are never cached as they are expected to appear at any time. Entries are only used as long as the release update policy of
+ * the repository (or the one of the session, e.g. {@code always} for {@code -U}) does not require a recheck, rechecked artifacts refresh
+ * their entries.
+ */
+class NotFoundCachingRepositoryConnector extends ForwardingRepositoryConnector {
+
+    private final RepositorySystemSession session;
+    private final NotFoundCache notFoundCache;
+
+    NotFoundCachingRepositoryConnector(RepositoryConnector delegate, RemoteRepository repository, RepositorySystemSession session,
+            NotFoundCache notFoundCache) {
+        super(delegate, repository);
+        this.session = session;
+        this.notFoundCache = notFoundCache;
+    }
+
+    @Override
+    public void get(Collection<? extends ArtifactDownload> artifactDownloads, Collection<? extends MetadataDownload> metadataDownloads) {
+        String updatePolicy = getUpdatePolicy();
+        List<ArtifactDownload> downloadsToPerform = rejectArtifactsNotMatching(artifactDownloads,
+                download -> download.getArtifact().isSnapshot()
+                        || !notFoundCache.isNotFound(repository, download.getArtifact(), updatePolicy));
+
+        delegate.get(downloadsToPerform, metadataDownloads);
+
+        for (ArtifactDownload download : downloadsToPerform) {
+            if (download.getArtifact().isSnapshot()) {
+                continue;
+            }
+            if (download.getException() instanceof ArtifactNotFoundException) {
+                notFoundCache.recordNotFound(repository, download.getArtifact());
+            } else if (download.getException() == null) {
+                notFoundCache.removeNotFound(repository, download.getArtifact());
+            }
+        }
+    }
+
+    private String getUpdatePolicy() {
+        String sessionUpdatePolicy = session.getUpdatePolicy();
+        return sessionUpdatePolicy != null ? sessionUpdatePolicy : repository.getPolicy(false).getUpdatePolicy();
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+
+/**
+ * List of artifacts to prefetch, one coordinate {@code <groupId>:<artifactId>:<extension>[:<classifier>]:<version>} per line (lines
+ * starting with {@code #} are ignored). Artifacts resolved during the build can be recorded to regenerate the list.
+ */
+class PrefetchList {
+
+    static final String COMMENT_PREFIX = "#";
+
+    private final Path file;
+    private final List<Artifact> artifacts;
+    private final Set<String> recorded = Collections.synchronizedSet(new TreeSet<>());
+    private final Set<String> requested = Collections.synchronizedSet(new TreeSet<>());
+
+    private PrefetchList(Path file, List<Artifact> artifacts) {
+        this.file = file;
+        this.artifacts = artifacts;
+    }
+
+    static PrefetchList load(Path file) throws IOException {
+        List<Artifact> artifacts = new ArrayList<>();
+        if (Files.isRegularFile(file)) {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String coordinates = line.trim();
+                if (coordinates.isEmpty() || coordinates.startsWith(COMMENT_PREFIX)) {
+                    continue;
+                }
+                try {
+                    artifacts.add(new DefaultArtifact(coordinates));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Invalid coordinates '" + coordinates + "' in " + file, e);
+                }
+            }
+        }
+        return new PrefetchList(file, artifacts);
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    List<Artifact> getArtifacts() {
+        return Collections.unmodifiableList(artifacts);
+    }
+
+    void record(Artifact artifact) {
+        if (!artifact.isSnapshot()) {
+            recorded.add(toCoordinates(artifact));
+        }
+    }
+
+    /**
+     * Records an artifact requested by the build, it is only kept if it is already listed.
+     */
+    void recordRequested(Artifact artifact) {
+        requested.add(toCoordinates(artifact));
+    }
+
+    int getRecordedCount() {
+        return recorded.size();
+    }
+
+    /**
+     * Writes the loaded artifacts requested by the build along with all recorded artifacts back to the file (sorted, without
+     * duplicates), loaded artifacts not requested by the build are pruned.
+     *
+     * @return the number of pruned artifacts
+     */
+    int save() throws IOException {
+        Set<String> lines = new TreeSet<>();
+        int pruned = 0;
+        for (Artifact artifact : artifacts) {
+            String coordinates = toCoordinates(artifact);
+            if (requested.contains(coordinates) || recorded.contains(coordinates)) {
+                lines.add(coordinates);
+            } else {
+                pruned++;
+            }
+        }
+        synchronized (recorded) {
+            lines.addAll(recorded);
+        }
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        // unique per build, as concurrent builds may record the same list
+        Path tmpFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(tmpFile, StandardCharsets.UTF_8)) {
+                writer.write(COMMENT_PREFIX + " artifacts prefetched from the repositories from env, generated by maven-ext-repos-from-env");
+                writer.newLine();
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.newLine();
+                }
+            }
+            Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+        return pruned;
+    }
+
+    static String toCoordinates(Artifact artifact) {
+        return artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getExtension()
+                + (artifact.getClassifier().isEmpty() ? "" : ":" + artifact.getClassifier()) + ":" + artifact.getVersion();
+    }
+}
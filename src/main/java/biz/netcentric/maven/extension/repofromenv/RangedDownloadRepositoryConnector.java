@@ -0,0 +1,309 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.maven.artifact.repository.ArtifactRepositoryPolicy;
+import org.codehaus.plexus.logging.Logger;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.spi.connector.ArtifactDownload;
+import org.eclipse.aether.spi.connector.MetadataDownload;
+import org.eclipse.aether.spi.connector.RepositoryConnector;
+import org.eclipse.aether.transfer.ArtifactTransferException;
+import org.eclipse.aether.transfer.ChecksumFailureException;
+import org.eclipse.aether.transfer.TransferCancelledException;
+import org.eclipse.aether.transfer.TransferEvent;
+import org.eclipse.aether.transfer.TransferListener;
+import org.eclipse.aether.transfer.TransferResource;
+
+/**
+ * Downloads large artifacts of an HTTP repository from env with the {@link RangedDownloader} (in parallel ranges) into a temporary
+ * file, validates it against the SHA-1 checksum of the repository according to the checksum policy and only then moves it to its
+ * target in the local repository. Artifacts the downloader declines (small, unknown size or no range support on the server) and
+ * artifacts whose ranged download failed are downloaded by the delegate as a single stream. Metadata is always left to the delegate.
+ *
+ * The additional connections of the ranges are bounded by the maximum connections of the repository and take permits of its
+ * {@link AdaptiveConcurrencyLimiter} (if any), if none are available the artifact is downloaded as a single stream.
+ */
+class RangedDownloadRepositoryConnector extends ForwardingRepositoryConnector {
+
+    static final int DEFAULT_CONNECT_TIMEOUT_MS = 10 * 1000;
+    static final int DEFAULT_READ_TIMEOUT_MS = 30 * 60 * 1000;
+
+    private final RepositorySystemSession session;
+    private final RepoFromEnv repoFromEnv;
+    private final RangedDownloader downloader;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final Logger logger;
+
+    /**
+     * @param concurrencyLimiter the limiter of the repository or {@code null}
+     */
+    RangedDownloadRepositoryConnector(RepositoryConnector delegate, RemoteRepository repository, RepositorySystemSession session,
+            RepoFromEnv repoFromEnv, RangedDownloader downloader, AdaptiveConcurrencyLimiter concurrencyLimiter, Logger logger) {
+        super(delegate, repository);
+        this.session = session;
+        this.repoFromEnv = repoFromEnv;
+        this.downloader = downloader;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.logger = logger;
+    }
+
+    @Override
+    public void get(Collection<? extends ArtifactDownload> artifactDownloads, Collection<? extends MetadataDownload> metadataDownloads) {
+        List<ArtifactDownload> downloadsToPerform = new ArrayList<>();
+        for (ArtifactDownload download : nullToEmpty(artifactDownloads)) {
+            if (download.isExistenceCheck() || !downloadInRanges(download)) {
+                downloadsToPerform.add(download);
+            }
+        }
+        delegate.get(downloadsToPerform, metadataDownloads);
+    }
+
+    /**
+     * @return {@code true} if the download was handled (successfully or with an exception set), {@code false} if it has to be performed
+     *         by the delegate
+     */
+    private boolean downloadInRanges(ArtifactDownload download) {
+        String path = FileRepositoryIndex.getPath(download.getArtifact());
+        Path target = download.getFile().toPath().toAbsolutePath();
+        TransferResource resource = new TransferResource(repository.getUrl(), path, download.getFile(), download.getTrace());
+        TransferEvent.Builder eventBuilder = new TransferEvent.Builder(session, resource);
+        TransferListener listener = download.getListener();
+        Path tmpFile = null;
+        try {
+            URL url = new URL(getBaseUrl() + path);
+            Files.createDirectories(target.getParent());
+            tmpFile = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+            long size = downloader.download(url, getHeaders(), getHeadersOnChallenge(), getConnectTimeout(), getReadTimeout(), tmpFile,
+                    connectionPermits, new TransferEventsListener(listener, eventBuilder, resource));
+            if (size == RangedDownloader.NOT_DOWNLOADED) {
+                return false;
+            }
+            validateChecksum(url, tmpFile, download.getChecksumPolicy());
+            Files.move(tmpFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (listener != null) {
+                listener.transferSucceeded(eventBuilder.resetType(TransferEvent.EventType.SUCCEEDED).setTransferredBytes(size).build());
+            }
+            return true;
+        } catch (ChecksumFailureException e) {
+            download.setException(new ArtifactTransferException(download.getArtifact(), repository, e));
+            if (listener != null) {
+                listener.transferFailed(eventBuilder.resetType(TransferEvent.EventType.FAILED).setException(e).build());
+            }
+            return true;
+        } catch (IOException e) {
+            if (e.getCause() instanceof TransferCancelledException) {
+                download.setException(new ArtifactTransferException(download.getArtifact(), repository, e.getCause()));
+                return true;
+            }
+            logger.debug("Ranged download of " + path + " from " + repository.getId() + " failed, falling back to a single stream: " + e);
+            downloader.recordFallback();
+            // the content length is only set once the download has been started in ranges
+            if (resource.getContentLength() >= 0 && listener != null) {
+                listener.transferFailed(eventBuilder.resetType(TransferEvent.EventType.FAILED).setException(e).build());
+            }
+            return false;
+        } finally {
+            deleteQuietly(tmpFile);
+        }
+    }
+
+    /**
+     * Fires the events the basic connector fires during a download (the cancellation of the transfer by the listener is passed on as
+     * cause of an {@link IOException}). The progress events are fired per completed range and carry no data buffer.
+     */
+    private static class TransferEventsListener implements RangedDownloader.ProgressListener {
+
+        private final TransferListener listener;
+        private final TransferEvent.Builder eventBuilder;
+        private final TransferResource resource;
+
+        TransferEventsListener(TransferListener listener, TransferEvent.Builder eventBuilder, TransferResource resource) {
+            this.listener = listener;
+            this.eventBuilder = eventBuilder;
+            this.resource = resource;
+        }
+
+        @Override
+        public void downloadStarted(long size) throws IOException {
+            resource.setContentLength(size);
+            if (listener == null) {
+                return;
+            }
+            try {
+                listener.transferInitiated(eventBuilder.resetType(TransferEvent.EventType.INITIATED).build());
+                listener.transferStarted(eventBuilder.resetType(TransferEvent.EventType.STARTED).build());
+            } catch (TransferCancelledException e) {
+                throw new IOException("Transfer of " + resource.getResourceName() + " cancelled", e);
+            }
+        }
+
+        @Override
+        public void rangeCompleted(long transferredBytes) throws IOException {
+            if (listener == null) {
+                return;
+            }
+            try {
+                listener.transferProgressed(eventBuilder.resetType(TransferEvent.EventType.PROGRESSED)
+                        .setTransferredBytes(transferredBytes).build());
+            } catch (TransferCancelledException e) {
+                throw new IOException("Transfer of " + resource.getResourceName() + " cancelled", e);
+            }
+        }
+    }
+
+    private final RangedDownloader.ConnectionPermits connectionPermits = new RangedDownloader.ConnectionPermits() {
+        @Override
+        public int tryAcquire(int requested) {
+            Integer maxConnections = repoFromEnv.getMaxConnections();
+            int permitted = maxConnections != null && maxConnections > 0 ? Math.min(requested, maxConnections - 1) : requested;
+            return concurrencyLimiter != null ? concurrencyLimiter.tryAcquireAdditional(permitted) : permitted;
+        }
+
+        @Override
+        public void release(int acquired) {
+            if (concurrencyLimiter != null) {
+                concurrencyLimiter.releaseAdditional(acquired);
+            }
+        }
+    };
+
+    private void validateChecksum(URL url, Path file, String checksumPolicy) throws IOException, ChecksumFailureException {
+        if (ArtifactRepositoryPolicy.CHECKSUM_POLICY_IGNORE.equals(checksumPolicy)) {
+            return;
+        }
+        String expectedChecksum = getExpectedSha1Checksum(new URL(url + ".sha1"));
+        String actualChecksum = getSha1Checksum(file);
+        String message = null;
+        if (expectedChecksum == null) {
+            message = "No SHA-1 checksum available for " + url;
+        } else if (!expectedChecksum.equals(actualChecksum)) {
+            message = "Checksum validation failed for " + url + ", expected " + expectedChecksum + " but is " + actualChecksum;
+        }
+        if (message != null) {
+            if (ArtifactRepositoryPolicy.CHECKSUM_POLICY_FAIL.equals(checksumPolicy)) {
+                throw new ChecksumFailureException(message);
+            }
+            logger.warn(message);
+        }
+    }
+
+    /**
+     * @return the checksum or {@code null} if the repository does not provide one
+     */
+    private String getExpectedSha1Checksum(URL checksumUrl) throws IOException {
+        HttpURLConnection connection = openChecksumConnection(checksumUrl, getHeaders());
+        try {
+            if (connection.getResponseCode() == HttpURLConnection.HTTP_UNAUTHORIZED && !getHeadersOnChallenge().isEmpty()) {
+                connection.disconnect();
+                connection = openChecksumConnection(checksumUrl, getHeadersOnChallenge());
+            }
+            if (connection.getResponseCode() == HttpURLConnection.HTTP_NOT_FOUND) {
+                return null;
+            }
+            String content;
+            try (InputStream in = connection.getInputStream()) {
+                content = new String(readFully(in), StandardCharsets.US_ASCII).trim();
+            } catch (FileNotFoundException e) {
+                return null;
+            }
+            // some tools append the file name to the checksum
+            int spacePos = content.indexOf(' ');
+            return (spacePos >= 0 ? content.substring(0, spacePos) : content).toLowerCase(Locale.ROOT);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private HttpURLConnection openChecksumConnection(URL checksumUrl, Map<String, String> headers) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) checksumUrl.openConnection();
+        connection.setConnectTimeout(getConnectTimeout());
+        connection.setReadTimeout(getReadTimeout());
+        headers.forEach(connection::setRequestProperty);
+        return connection;
+    }
+
+    private static String getSha1Checksum(Path file) throws IOException {
+        MessageDigest digest = ArchiveRepository.newSha1Digest();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            byte[] buffer = new byte[64 * 1024];
+            while (in.read(buffer) >= 0) {
+                // only digesting
+            }
+        }
+        return ArchiveRepository.toHex(digest.digest());
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private String getBaseUrl() {
+        return repository.getUrl().endsWith("/") ? repository.getUrl() : repository.getUrl() + "/";
+    }
+
+    private Map<String, String> getHeaders() {
+        return repoFromEnv.sendsCredentialsPreemptively()
+                ? Collections.singletonMap("Authorization", repoFromEnv.getAuthorizationHeader()) : Collections.emptyMap();
+    }
+
+    /**
+     * @return the headers to repeat a request with after the server answered {@code 401} (as the regular transport does for
+     *         repositories without preemptive authentication)
+     */
+    private Map<String, String> getHeadersOnChallenge() {
+        return repoFromEnv.hasCredentials() && !repoFromEnv.sendsCredentialsPreemptively()
+                ? Collections.singletonMap("Authorization", repoFromEnv.getAuthorizationHeader()) : Collections.emptyMap();
+    }
+
+    private int getConnectTimeout() {
+        return repoFromEnv.getConnectTimeout() != null ? repoFromEnv.getConnectTimeout() : DEFAULT_CONNECT_TIMEOUT_MS;
+    }
+
+    private int getReadTimeout() {
+        return repoFromEnv.getReadTimeout() != null ? repoFromEnv.getReadTimeout() : DEFAULT_READ_TIMEOUT_MS;
+    }
+
+    private void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.debug("Could not delete temporary file " + file + ": " + e);
+        }
+    }
+}
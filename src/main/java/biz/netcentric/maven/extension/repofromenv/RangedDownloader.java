@@ -0,0 +1,287 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Downloads large files as a number of HTTP range requests in parallel, each writing its chunk directly at its offset of a file
+ * preallocated to the full size. Files below the minimum size and files of servers not announcing support for byte ranges are not
+ * downloaded at all, so the caller can fall back to a regular (single stream) download.
+ *
+ * The calling thread downloads the first range itself, the other ranges run on a pool with a fixed number of threads (shared by all
+ * downloads). Each range besides the first requires a {@link ConnectionPermits permit} for an additional connection.
+ */
+class RangedDownloader {
+
+    static final long NOT_DOWNLOADED = -1;
+
+    /** Notified on the calling thread about the progress of a download in ranges. */
+    interface ProgressListener {
+        /**
+         * Called once it is clear the file is downloaded in ranges (before the first range is requested).
+         */
+        void downloadStarted(long size) throws IOException;
+
+        /**
+         * Called whenever a range is completely written to the file (in the order the ranges complete).
+         *
+         * @param transferredBytes the bytes of all ranges completed so far
+         */
+        void rangeCompleted(long transferredBytes) throws IOException;
+    }
+
+    /** Limits the connections a download may open in addition to the one of the calling thread. */
+    interface ConnectionPermits {
+        /**
+         * @return the number of additional connections granted without waiting (between 0 and requested)
+         */
+        int tryAcquire(int requested);
+
+        void release(int acquired);
+    }
+
+    static final ConnectionPermits UNLIMITED = new ConnectionPermits() {
+        @Override
+        public int tryAcquire(int requested) {
+            return requested;
+        }
+
+        @Override
+        public void release(int acquired) {
+            // nothing to release
+        }
+    };
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final long minSize;
+    private final int chunks;
+    private final ExecutorService executor;
+
+    private final AtomicInteger downloads = new AtomicInteger();
+    private final AtomicLong downloadedBytes = new AtomicLong();
+    private final AtomicInteger fallbacks = new AtomicInteger();
+
+    /**
+     * @param chunks the maximum number of ranges per download
+     * @param maxThreads the number of threads for the ranges besides the first one of each download (shared by all downloads)
+     */
+    RangedDownloader(long minSize, int chunks, int maxThreads) {
+        if (chunks < 2) {
+            throw new IllegalArgumentException("At least two chunks are required for ranged downloads: " + chunks);
+        }
+        if (maxThreads < 1) {
+            throw new IllegalArgumentException("At least one thread is required for ranged downloads: " + maxThreads);
+        }
+        this.minSize = minSize;
+        this.chunks = chunks;
+        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(maxThreads, maxThreads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "repos-from-env-ranged-download");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+        this.executor = threadPoolExecutor;
+    }
+
+    /**
+     * Downloads the given URL to the given file in parallel chunks. The file is overwritten.
+     *
+     * @param headers additional request headers (e.g. for preemptive authorization)
+     * @param headersOnChallenge headers added to all requests once the server answered {@code 401} to the {@code HEAD} request (which
+     *            is repeated with them then), e.g. for authorization on challenge
+     * @param permits the permits for the connections besides the first one, held until the download is complete
+     * @param progressListener notified before the ranges are requested and after each completed range (not notified if the file is
+     *            not downloaded in ranges)
+     * @return the size of the downloaded file or {@link #NOT_DOWNLOADED} if the file is smaller than the minimum size, its size is
+     *         unknown, the server does not support range requests or no additional connection is permitted (the file is not touched
+     *         then)
+     * @throws IOException if the server responds with an error or a chunk cannot be downloaded completely (the file is incomplete then)
+     */
+    long download(URL url, Map<String, String> headers, Map<String, String> headersOnChallenge, int connectTimeoutMs, int readTimeoutMs,
+            Path file, ConnectionPermits permits, ProgressListener progressListener) throws IOException {
+        HttpURLConnection headConnection = openConnection(url, headers, connectTimeoutMs, readTimeoutMs);
+        long size;
+        boolean acceptsRanges;
+        try {
+            headConnection.setRequestMethod("HEAD");
+            if (headConnection.getResponseCode() == HttpURLConnection.HTTP_UNAUTHORIZED && !headersOnChallenge.isEmpty()) {
+                headConnection.disconnect();
+                Map<String, String> challengedHeaders = new LinkedHashMap<>(headers);
+                challengedHeaders.putAll(headersOnChallenge);
+                headers = challengedHeaders;
+                headConnection = openConnection(url, headers, connectTimeoutMs, readTimeoutMs);
+                headConnection.setRequestMethod("HEAD");
+            }
+            if (headConnection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                // let the regular download report not found, unauthorized etc.
+                return NOT_DOWNLOADED;
+            }
+            size = headConnection.getContentLengthLong();
+            acceptsRanges = "bytes".equalsIgnoreCase(headConnection.getHeaderField("Accept-Ranges"));
+        } finally {
+            headConnection.disconnect();
+        }
+        if (size < minSize || size < chunks) {
+            return NOT_DOWNLOADED;
+        }
+        if (!acceptsRanges) {
+            fallbacks.incrementAndGet();
+            return NOT_DOWNLOADED;
+        }
+
+        int additionalConnections = permits.tryAcquire(chunks - 1);
+        try {
+            if (additionalConnections < 1) {
+                return NOT_DOWNLOADED;
+            }
+            downloadRanges(url, headers, connectTimeoutMs, readTimeoutMs, file, size, additionalConnections + 1, progressListener);
+        } finally {
+            permits.release(additionalConnections);
+        }
+        downloads.incrementAndGet();
+        downloadedBytes.addAndGet(size);
+        return size;
+    }
+
+    private void downloadRanges(URL url, Map<String, String> headers, int connectTimeoutMs, int readTimeoutMs, Path file, long size,
+            int ranges, ProgressListener progressListener) throws IOException {
+        progressListener.downloadStarted(size);
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "rw")) {
+            randomAccessFile.setLength(size);
+        }
+        long chunkSize = (size + ranges - 1) / ranges;
+        CompletionService<Long> completionService = new ExecutorCompletionService<>(executor);
+        List<Future<Long>> futures = new ArrayList<>();
+        try {
+            for (long start = chunkSize; start < size; start += chunkSize) {
+                long rangeStart = start;
+                long rangeEnd = Math.min(start + chunkSize, size) - 1;
+                futures.add(completionService.submit(() -> {
+                    downloadRange(url, headers, connectTimeoutMs, readTimeoutMs, file, rangeStart, rangeEnd);
+                    return rangeEnd + 1 - rangeStart;
+                }));
+            }
+            long transferredBytes = Math.min(chunkSize, size);
+            downloadRange(url, headers, connectTimeoutMs, readTimeoutMs, file, 0, transferredBytes - 1);
+            progressListener.rangeCompleted(transferredBytes);
+            for (int i = 0; i < futures.size(); i++) {
+                transferredBytes += completionService.take().get();
+                progressListener.rangeCompleted(transferredBytes);
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while downloading " + url);
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private void downloadRange(URL url, Map<String, String> headers, int connectTimeoutMs, int readTimeoutMs, Path file, long start,
+            long end) throws IOException {
+        HttpURLConnection connection = openConnection(url, headers, connectTimeoutMs, readTimeoutMs);
+        try {
+            connection.setRequestProperty("Range", "bytes=" + start + "-" + end);
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_PARTIAL) {
+                throw new IOException("Range request for " + url + " answered with HTTP " + connection.getResponseCode());
+            }
+            long position = start;
+            try (InputStream in = connection.getInputStream();
+                    FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while (position <= end && (read = in.read(buffer, 0, (int) Math.min(buffer.length, end + 1 - position))) >= 0) {
+                    ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+                    while (byteBuffer.hasRemaining()) {
+                        position += channel.write(byteBuffer, position);
+                    }
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedIOException("Interrupted while downloading " + url);
+                    }
+                }
+            }
+            if (position != end + 1) {
+                throw new IOException("Incomplete range " + start + "-" + end + " of " + url + ", received " + (position - start)
+                        + " bytes");
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static HttpURLConnection openConnection(URL url, Map<String, String> headers, int connectTimeoutMs, int readTimeoutMs)
+            throws IOException {
+        URLConnection connection = url.openConnection();
+        if (!(connection instanceof HttpURLConnection)) {
+            throw new IOException("Not an HTTP URL: " + url);
+        }
+        HttpURLConnection httpConnection = (HttpURLConnection) connection;
+        httpConnection.setConnectTimeout(connectTimeoutMs);
+        httpConnection.setReadTimeout(readTimeoutMs);
+        httpConnection.setUseCaches(false);
+        headers.forEach(httpConnection::setRequestProperty);
+        return httpConnection;
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    int getDownloads() {
+        return downloads.get();
+    }
+
+    long getDownloadedBytes() {
+        return downloadedBytes.get();
+    }
+
+    /**
+     * Records a download that was started in ranges but had to be repeated as a single stream.
+     */
+    void recordFallback() {
+        fallbacks.incrementAndGet();
+    }
+
+    int getFallbacks() {
+        return fallbacks.get();
+    }
+
+    String getSummary() {
+        return downloads.get() + " artifacts (" + downloadedBytes.get() / (1024 * 1024) + " MB) downloaded in up to " + chunks
+                + " parallel ranges, " + fallbacks.get() + " fell back to a single stream";
+    }
+}
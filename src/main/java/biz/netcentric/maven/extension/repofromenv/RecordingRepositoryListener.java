@@ -0,0 +1,46 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import java.util.Set;
+
+import org.eclipse.aether.AbstractRepositoryListener;
+import org.eclipse.aether.RepositoryEvent;
+import org.eclipse.aether.repository.ArtifactRepository;
+import org.eclipse.aether.repository.RemoteRepository;
+
+/**
+ * Records all artifacts resolved by the build in the {@link PrefetchList}: artifacts downloaded from a (non-file) repository from env
+ * are added to the list, artifacts already listed are kept no matter where they were resolved from (usually the local repository,
+ * as they have been prefetched).
+ */
+class RecordingRepositoryListener extends AbstractRepositoryListener {
+
+    private final PrefetchList prefetchList;
+    private final Set<String> repositoryIds;
+
+    RecordingRepositoryListener(PrefetchList prefetchList, Set<String> repositoryIds) {
+        this.prefetchList = prefetchList;
+        this.repositoryIds = repositoryIds;
+    }
+
+    @Override
+    public void artifactResolved(RepositoryEvent event) {
+        if (event.getArtifact() == null || event.getArtifact().getFile() == null) {
+            return;
+        }
+        ArtifactRepository repository = event.getRepository();
+        if (repository instanceof RemoteRepository && repositoryIds.contains(repository.getId())
+                && !"file".equals(((RemoteRepository) repository).getProtocol())) {
+            prefetchList.record(event.getArtifact());
+        } else {
+            prefetchList.recordRequested(event.getArtifact());
+        }
+    }
+}
@@ -8,18 +8,65 @@
  */
 package biz.netcentric.maven.extension.repofromenv;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
 class RepoFromEnv {
 
+    /** Where a repository is registered: as repository for dependencies, as plugin repository or as both. */
+    enum Scope {
+        DEPENDENCIES, PLUGINS, BOTH;
+
+        boolean includesDependencies() {
+            return this != PLUGINS;
+        }
+
+        boolean includesPlugins() {
+            return this != DEPENDENCIES;
+        }
+    }
+
     private final String id;
     private final String url;
     private final String username;
     private final String password;
+    private final String token;
+    private final boolean preemptiveAuth;
+    private final GroupIdFilter groupIdFilter;
+    private final Scope scope;
+    private final boolean releasesEnabled;
+    private final boolean snapshotsEnabled;
+    private final String updatePolicy;
+    private final String checksumPolicy;
+    private final Integer connectTimeout;
+    private final Integer readTimeout;
+    private final Integer retries;
+    private final Integer maxConnections;
 
+    /**
+     * Creates a repository with the default settings, use a {@link Builder} for anything else.
+     */
     public RepoFromEnv(String id, String url, String username, String password) {
-        this.id = id;
-        this.url = url;
-        this.username = username;
-        this.password = password;
+        this(new Builder(id, url, username, password));
+    }
+
+    private RepoFromEnv(Builder builder) {
+        this.id = builder.id;
+        this.url = builder.url;
+        this.username = builder.username;
+        this.password = builder.password;
+        this.token = builder.token;
+        this.preemptiveAuth = builder.preemptiveAuth;
+        this.groupIdFilter = builder.groupIdFilter;
+        this.scope = builder.scope;
+        this.releasesEnabled = builder.releasesEnabled;
+        this.snapshotsEnabled = builder.snapshotsEnabled;
+        this.updatePolicy = builder.updatePolicy;
+        this.checksumPolicy = builder.checksumPolicy;
+        this.connectTimeout = builder.connectTimeout;
+        this.readTimeout = builder.readTimeout;
+        this.retries = builder.retries;
+        this.maxConnections = builder.maxConnections;
     }
 
     public String getId() {
@@ -38,4 +85,180 @@ class RepoFromEnv {
         return password;
     }
 
-}
\ No newline at end of file
+    /**
+     * @return the bearer token used instead of username and password (if any)
+     */
+    public String getToken() {
+        return token;
+    }
+
+    public boolean isPreemptiveAuth() {
+        return preemptiveAuth;
+    }
+
+    public boolean hasCredentials() {
+        return username != null || token != null;
+    }
+
+    /**
+     * @return the value of the HTTP {@code Authorization} header for the credentials of this repository or {@code null} if it has none
+     */
+    public String getAuthorizationHeader() {
+        if (token != null) {
+            return "Bearer " + token;
+        }
+        if (username != null) {
+            String credentials = username + ":" + password;
+            return "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+        }
+        return null;
+    }
+
+    /**
+     * @return {@code true} if the credentials are sent with every request, {@code false} if only after a challenge of the server (a
+     *         bearer token is always sent preemptively)
+     */
+    public boolean sendsCredentialsPreemptively() {
+        return token != null || (username != null && preemptiveAuth);
+    }
+
+    public GroupIdFilter getGroupIdFilter() {
+        return groupIdFilter;
+    }
+
+    public Scope getScope() {
+        return scope;
+    }
+
+    public boolean isReleasesEnabled() {
+        return releasesEnabled;
+    }
+
+    public boolean isSnapshotsEnabled() {
+        return snapshotsEnabled;
+    }
+
+    public String getUpdatePolicy() {
+        return updatePolicy;
+    }
+
+    public String getChecksumPolicy() {
+        return checksumPolicy;
+    }
+
+    public Integer getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public Integer getReadTimeout() {
+        return readTimeout;
+    }
+
+    public Integer getRetries() {
+        return retries;
+    }
+
+    public Integer getMaxConnections() {
+        return maxConnections;
+    }
+
+    public boolean hasTransportSettings() {
+        return connectTimeout != null || readTimeout != null || retries != null || maxConnections != null;
+    }
+
+    /**
+     * Collects the settings of a repository, the built repository is immutable and can be shared between builds (see
+     * {@link EnvReposConfigurationCache}).
+     */
+    static class Builder {
+
+        private final String id;
+        private final String url;
+        private final String username;
+        private final String password;
+
+        private String token;
+        private boolean preemptiveAuth;
+        private GroupIdFilter groupIdFilter = GroupIdFilter.ACCEPT_ALL;
+        private Scope scope = Scope.BOTH;
+        private boolean releasesEnabled = true;
+        private boolean snapshotsEnabled = true;
+        private String updatePolicy;
+        private String checksumPolicy;
+        private Integer connectTimeout;
+        private Integer readTimeout;
+        private Integer retries;
+        private Integer maxConnections;
+
+        Builder(String id, String url, String username, String password) {
+            this.id = id;
+            this.url = url;
+            this.username = username;
+            this.password = password;
+        }
+
+        Builder setToken(String token) {
+            this.token = token;
+            return this;
+        }
+
+        Builder setPreemptiveAuth(boolean preemptiveAuth) {
+            this.preemptiveAuth = preemptiveAuth;
+            return this;
+        }
+
+        Builder setGroupIdFilter(GroupIdFilter groupIdFilter) {
+            this.groupIdFilter = groupIdFilter;
+            return this;
+        }
+
+        Builder setScope(Scope scope) {
+            this.scope = scope;
+            return this;
+        }
+
+        Builder setReleasesEnabled(boolean releasesEnabled) {
+            this.releasesEnabled = releasesEnabled;
+            return this;
+        }
+
+        Builder setSnapshotsEnabled(boolean snapshotsEnabled) {
+            this.snapshotsEnabled = snapshotsEnabled;
+            return this;
+        }
+
+        Builder setUpdatePolicy(String updatePolicy) {
+            this.updatePolicy = updatePolicy;
+            return this;
+        }
+
+        Builder setChecksumPolicy(String checksumPolicy) {
+            this.checksumPolicy = checksumPolicy;
+            return this;
+        }
+
+        Builder setConnectTimeout(Integer connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        Builder setReadTimeout(Integer readTimeout) {
+            this.readTimeout = readTimeout;
+            return this;
+        }
+
+        Builder setRetries(Integer retries) {
+            this.retries = retries;
+            return this;
+        }
+
+        Builder setMaxConnections(Integer maxConnections) {
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        RepoFromEnv build() {
+            return new RepoFromEnv(this);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Measures the latency of the repositories from env by issuing one HEAD request per repository (all in parallel) within a strict time
+ * budget. File and archive repositories are checked for the canary path locally.
+ */
+class RepoLatencyProber {
+
+    static final long UNREACHABLE = -1;
+
+    private final int timeoutMs;
+    private final String canaryPath;
+    private final Map<String, ArchiveRepository> archiveRepositoriesByRepoId;
+
+    RepoLatencyProber(int timeoutMs, String canaryPath) {
+        this(timeoutMs, canaryPath, Collections.emptyMap());
+    }
+
+    /**
+     * @param archiveRepositoriesByRepoId the opened archives of the archive repositories (by repository id)
+     */
+    RepoLatencyProber(int timeoutMs, String canaryPath, Map<String, ArchiveRepository> archiveRepositoriesByRepoId) {
+        this.timeoutMs = timeoutMs;
+        this.canaryPath = canaryPath != null ? canaryPath.replaceFirst("^/+", "") : "";
+        this.archiveRepositoriesByRepoId = archiveRepositoriesByRepoId;
+    }
+
+    /**
+     * @param repos the repositories to probe
+     * @return the latency in ms per repository (in the order of the given list) or {@link #UNREACHABLE} if the repository did not
+     *         respond within the time budget
+     */
+    Map<RepoFromEnv, Long> probe(List<RepoFromEnv> repos) {
+        Map<RepoFromEnv, Long> latencies = new LinkedHashMap<>();
+        if (repos.isEmpty()) {
+            return latencies;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(repos.size(), runnable -> {
+            Thread thread = new Thread(runnable, "repos-from-env-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Long>> futures = executor.invokeAll(
+                    repos.stream().map(repo -> (Callable<Long>) () -> probe(repo)).collect(Collectors.toList()),
+                    timeoutMs, TimeUnit.MILLISECONDS);
+            for (int i = 0; i < repos.size(); i++) {
+                latencies.put(repos.get(i), getLatency(futures.get(i)));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            repos.forEach(repo -> latencies.putIfAbsent(repo, UNREACHABLE));
+        } finally {
+            executor.shutdownNow();
+        }
+        return latencies;
+    }
+
+    long probe(RepoFromEnv repo) {
+        String baseUrl = repo.getUrl().endsWith("/") ? repo.getUrl() : repo.getUrl() + "/";
+        long start = System.nanoTime();
+        try {
+            ArchiveRepository archiveRepository = archiveRepositoriesByRepoId.get(repo.getId());
+            if (archiveRepository != null) {
+                return archiveRepository.getIndex().containsPath(canaryPath) ? elapsedMs(start) : UNREACHABLE;
+            }
+            if (ArchiveRepository.isArchiveUrl(repo.getUrl())) {
+                // the archive could not be opened
+                return UNREACHABLE;
+            }
+            if (baseUrl.startsWith("file:")) {
+                return new File(URI.create(baseUrl).resolve(canaryPath)).exists() ? elapsedMs(start) : UNREACHABLE;
+            }
+            URLConnection connection = new URL(baseUrl + canaryPath).openConnection();
+            if (!(connection instanceof HttpURLConnection)) {
+                return UNREACHABLE;
+            }
+            HttpURLConnection httpConnection = (HttpURLConnection) connection;
+            httpConnection.setRequestMethod("HEAD");
+            httpConnection.setConnectTimeout(timeoutMs);
+            httpConnection.setReadTimeout(timeoutMs);
+            httpConnection.setInstanceFollowRedirects(false);
+            // a challenge (401) proves the server is reachable as well, so credentials are never sent on challenge
+            if (repo.sendsCredentialsPreemptively()) {
+                httpConnection.setRequestProperty("Authorization", repo.getAuthorizationHeader());
+            }
+            try {
+                // any response below 500 (including 401 or 404) proves the server is up and serving
+                return httpConnection.getResponseCode() < 500 ? elapsedMs(start) : UNREACHABLE;
+            } finally {
+                httpConnection.disconnect();
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            return UNREACHABLE;
+        }
+    }
+
+    private long getLatency(Future<Long> future) {
+        try {
+            return future.get();
+        } catch (CancellationException | ExecutionException e) {
+            return UNREACHABLE;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return UNREACHABLE;
+        }
+    }
+
+    private long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.aether.repository.RemoteRepository;
+
+/**
+ * On-disk routing table that maps a groupId to the remote repository (by id and URL) that last served a release artifact of it.
+ * Entries expire after a configurable time to live. Only repositories the current resolution would ask anyway (see
+ * {@link #getPreferredRepository(String, Collection)}) are ever returned as preferred repository, the
+ * {@link AffinityArtifactResolver} only passes and records repositories from env.
+ *
+ * The table is loaded once at startup and merged back into the file at the end of the session, so multiple builds can share one
+ * directory concurrently.
+ */
+class RepositoryAffinity {
+
+    static final String AFFINITY_FILE_NAME = "repo-affinity.txt";
+    static final String LOCK_FILE_NAME = "repo-affinity.lock";
+
+    private final Path affinityFile;
+    private final Path lockFile;
+    private final long ttlMs;
+
+    private final Map<String, Entry> entriesByGroupId = new HashMap<>();
+    // time of removal of stale entries, to not resurrect them when merging with the file
+    private final Map<String, Long> removedByGroupId = new HashMap<>();
+    private boolean modified = false;
+
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    RepositoryAffinity(Path affinityDir, long ttlMs) {
+        this.affinityFile = affinityDir.resolve(AFFINITY_FILE_NAME);
+        this.lockFile = affinityDir.resolve(LOCK_FILE_NAME);
+        this.ttlMs = ttlMs;
+    }
+
+    synchronized void load() throws IOException {
+        entriesByGroupId.clear();
+        entriesByGroupId.putAll(readEntries(System.currentTimeMillis()));
+    }
+
+    /**
+     * @param candidates the repositories of the current resolution
+     * @return the candidate that last served the given groupId (matched by id and URL) or {@code null}
+     */
+    synchronized RemoteRepository getPreferredRepository(String groupId, Collection<RemoteRepository> candidates) {
+        Entry entry = entriesByGroupId.get(groupId);
+        if (entry == null) {
+            return null;
+        }
+        if (isExpired(entry, System.currentTimeMillis())) {
+            entriesByGroupId.remove(groupId);
+            return null;
+        }
+        for (RemoteRepository candidate : candidates) {
+            if (candidate.getId().equals(entry.repositoryId) && candidate.getUrl().equals(entry.url)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    synchronized void recordServed(String groupId, RemoteRepository repository) {
+        entriesByGroupId.put(groupId, new Entry(System.currentTimeMillis(), repository.getId(), repository.getUrl()));
+        removedByGroupId.remove(groupId);
+        modified = true;
+    }
+
+    /**
+     * Removes the entry for the groupId if it (still) points to the given repository.
+     */
+    synchronized void recordStale(String groupId, RemoteRepository repository) {
+        Entry entry = entriesByGroupId.get(groupId);
+        if (entry != null && entry.repositoryId.equals(repository.getId())) {
+            entriesByGroupId.remove(groupId);
+            removedByGroupId.put(groupId, System.currentTimeMillis());
+            modified = true;
+        }
+    }
+
+    void recordHit() {
+        hits.incrementAndGet();
+    }
+
+    void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    int getHits() {
+        return hits.get();
+    }
+
+    int getMisses() {
+        return misses.get();
+    }
+
+    synchronized int size() {
+        return entriesByGroupId.size();
+    }
+
+    /**
+     * Merges the entries of this session with the current content of the file (that might have been updated by concurrent builds in
+     * the meantime, the more recent entry wins) and writes the result back atomically.
+     */
+    synchronized void save() throws IOException {
+        if (!modified) {
+            return;
+        }
+        Files.createDirectories(affinityFile.getParent());
+        try (FileChannel lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                FileLock lock = lockChannel.lock()) {
+            Map<String, Entry> mergedEntries = readEntries(System.currentTimeMillis());
+            removedByGroupId.forEach((groupId, removed) -> {
+                Entry entryOnDisk = mergedEntries.get(groupId);
+                if (entryOnDisk != null && entryOnDisk.recorded <= removed) {
+                    mergedEntries.remove(groupId);
+                }
+            });
+            entriesByGroupId.forEach((groupId, entry) -> mergedEntries.merge(groupId, entry,
+                    (entryOnDisk, entryInMemory) -> entryOnDisk.recorded > entryInMemory.recorded ? entryOnDisk : entryInMemory));
+
+            Path tempFile = Files.createTempFile(affinityFile.getParent(), AFFINITY_FILE_NAME, ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, Entry> entry : mergedEntries.entrySet()) {
+                    writer.write(entry.getValue().recorded + " " + entry.getKey() + " " + entry.getValue().repositoryId + " "
+                            + entry.getValue().url);
+                    writer.newLine();
+                }
+            }
+            Files.move(tempFile, affinityFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            modified = false;
+        }
+    }
+
+    /**
+     * @return the non-expired entries from the file sorted by groupId
+     */
+    private Map<String, Entry> readEntries(long now) throws IOException {
+        Map<String, Entry> result = new TreeMap<>();
+        if (!Files.exists(affinityFile)) {
+            return result;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(affinityFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(" ");
+                if (parts.length != 4) {
+                    continue; // ignore corrupt lines
+                }
+                try {
+                    Entry entry = new Entry(Long.parseLong(parts[0]), parts[2], parts[3]);
+                    if (!isExpired(entry, now)) {
+                        result.put(parts[1], entry);
+                    }
+                } catch (NumberFormatException e) {
+                    // ignore corrupt lines
+                }
+            }
+        }
+        return result;
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return now - entry.recorded > ttlMs;
+    }
+
+    private static final class Entry {
+        private final long recorded;
+        private final String repositoryId;
+        private final String url;
+
+        private Entry(long recorded, String repositoryId, String url) {
+            this.recorded = recorded;
+            this.repositoryId = repositoryId;
+            this.url = url;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.codehaus.plexus.logging.Logger;
+
+/**
+ * Stops sending requests to a repository that is not reachable: the circuit opens after a number of consecutive connection failures
+ * (or timeouts) within a time window. While open, all requests are rejected right away. After the probe interval one request is let
+ * through (half open), it closes the circuit again if the repository responds and reopens it otherwise.
+ */
+class RepositoryCircuitBreaker {
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String repositoryId;
+    private final int failureThreshold;
+    private final long failureWindowNanos;
+    private final long probeIntervalNanos;
+    private final Logger logger;
+    private final LongSupplier nanoClock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long firstFailureNanos;
+    private long openedNanos;
+
+    private int timesOpened;
+    private long rejected;
+
+    RepositoryCircuitBreaker(String repositoryId, int failureThreshold, long failureWindowMs, long probeIntervalMs, Logger logger) {
+        this(repositoryId, failureThreshold, failureWindowMs, probeIntervalMs, logger, System::nanoTime);
+    }
+
+    RepositoryCircuitBreaker(String repositoryId, int failureThreshold, long failureWindowMs, long probeIntervalMs, Logger logger,
+            LongSupplier nanoClock) {
+        this.repositoryId = repositoryId;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.failureWindowNanos = TimeUnit.MILLISECONDS.toNanos(failureWindowMs);
+        this.probeIntervalNanos = TimeUnit.MILLISECONDS.toNanos(probeIntervalMs);
+        this.logger = logger;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * @return {@code true} if a request may be sent to the repository (if the circuit is half open, only the first caller gets
+     *         {@code true} and has to report the outcome via {@link #recordSuccess()} or {@link #recordFailure()})
+     */
+    synchronized boolean allowRequest() {
+        if (state == State.OPEN && nanoClock.getAsLong() - openedNanos >= probeIntervalNanos) {
+            state = State.HALF_OPEN;
+            logger.info("Circuit breaker for repository " + repositoryId + " is half open, probing the repository");
+            return true;
+        }
+        if (state != State.CLOSED) {
+            rejected++;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Records a response of the repository (a not found response counts as success as well).
+     */
+    synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        if (state != State.CLOSED) {
+            state = State.CLOSED;
+            logger.info("Circuit breaker for repository " + repositoryId + " is closed again, the repository responds");
+        }
+    }
+
+    synchronized void recordFailure() {
+        long now = nanoClock.getAsLong();
+        if (state == State.HALF_OPEN) {
+            open(now, "the probe failed");
+            return;
+        }
+        if (state == State.OPEN) {
+            return;
+        }
+        if (consecutiveFailures == 0 || now - firstFailureNanos > failureWindowNanos) {
+            consecutiveFailures = 0;
+            firstFailureNanos = now;
+        }
+        consecutiveFailures++;
+        if (consecutiveFailures >= failureThreshold) {
+            open(now, consecutiveFailures + " consecutive connection failures");
+        }
+    }
+
+    private void open(long now, String reason) {
+        state = State.OPEN;
+        openedNanos = now;
+        consecutiveFailures = 0;
+        timesOpened++;
+        logger.warn("Circuit breaker for repository " + repositoryId + " is open (" + reason + "), skipping the repository for "
+                + TimeUnit.NANOSECONDS.toSeconds(probeIntervalNanos) + "s");
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+
+    synchronized int getTimesOpened() {
+        return timesOpened;
+    }
+
+    synchronized String getSummary() {
+        return state + ", opened " + timesOpened + " times, " + rejected + " requests skipped";
+    }
+
+    /**
+     * @return {@code true} if the exception indicates that the repository could not be reached (as opposed to an error response)
+     */
+    static boolean isConnectionFailure(Exception exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            // SocketException covers refused/reset connections and unreachable hosts, the name check the connect timeouts of http
+            // clients that are not a SocketTimeoutException
+            if (cause instanceof SocketException || cause instanceof SocketTimeoutException || cause instanceof UnknownHostException
+                    || cause.getClass().getSimpleName().equals("ConnectTimeoutException")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.eclipse.aether.repository.RemoteRepository;
+
+/**
+ * Collects request counts, outcomes, transferred bytes and latencies of all downloads per remote repository (see
+ * {@link MetricsRepositoryConnector}) and writes them as JSON report.
+ */
+class RepositoryMetrics {
+
+    /** Upper bounds (inclusive) of the latency histogram buckets in milliseconds, the last bucket is unbounded. */
+    static final long[] LATENCY_BUCKET_BOUNDS_MS = { 10, 50, 100, 250, 500, 1000, 2500, 5000, 10000 };
+
+    private final Map<String, RepositoryStats> statsByRepoId = new ConcurrentHashMap<>();
+
+    RepositoryStats getStats(RemoteRepository repository, boolean fromEnv) {
+        return statsByRepoId.computeIfAbsent(repository.getId(), id -> new RepositoryStats(id, repository.getUrl(), fromEnv));
+    }
+
+    List<RepositoryStats> getAllStats() {
+        List<RepositoryStats> allStats = new ArrayList<>(statsByRepoId.values());
+        allStats.sort((stats1, stats2) -> stats1.getRepositoryId().compareTo(stats2.getRepositoryId()));
+        return allStats;
+    }
+
+    void writeReport(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        // unique per writer, concurrent builds sharing the report location must not write into the same temp file
+        Path tmpFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(tmpFile, StandardCharsets.UTF_8)) {
+                writer.write(toJson());
+            }
+            Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+    }
+
+    String toJson() {
+        StringBuilder json = new StringBuilder("{\n  \"latencyBucketBoundsMs\": [");
+        for (int i = 0; i < LATENCY_BUCKET_BOUNDS_MS.length; i++) {
+            json.append(i > 0 ? ", " : "").append(LATENCY_BUCKET_BOUNDS_MS[i]);
+        }
+        json.append("],\n  \"repositories\": [");
+        List<RepositoryStats> allStats = getAllStats();
+        for (int i = 0; i < allStats.size(); i++) {
+            RepositoryStats stats = allStats.get(i);
+            json.append(i > 0 ? "," : "").append("\n    {\n")
+                    .append("      \"id\": ").append(quote(stats.getRepositoryId())).append(",\n")
+                    .append("      \"url\": ").append(quote(stats.getUrl())).append(",\n")
+                    .append("      \"fromEnv\": ").append(stats.isFromEnv()).append(",\n")
+                    .append("      \"artifacts\": ").append(stats.getArtifacts().toJson()).append(",\n")
+                    .append("      \"metadata\": ").append(stats.getMetadata().toJson()).append("\n    }");
+        }
+        json.append(allStats.isEmpty() ? "" : "\n  ").append("]\n}\n");
+        return json.toString();
+    }
+
+    static String quote(String value) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    static class RepositoryStats {
+
+        private final String repositoryId;
+        private final String url;
+        private final boolean fromEnv;
+        private final TransferStats artifacts = new TransferStats();
+        private final TransferStats metadata = new TransferStats();
+
+        RepositoryStats(String repositoryId, String url, boolean fromEnv) {
+            this.repositoryId = repositoryId;
+            this.url = url;
+            this.fromEnv = fromEnv;
+        }
+
+        String getRepositoryId() {
+            return repositoryId;
+        }
+
+        String getUrl() {
+            return url;
+        }
+
+        boolean isFromEnv() {
+            return fromEnv;
+        }
+
+        TransferStats getArtifacts() {
+            return artifacts;
+        }
+
+        TransferStats getMetadata() {
+            return metadata;
+        }
+
+        String getSummary() {
+            return "artifacts " + artifacts.getSummary() + ", metadata " + metadata.getSummary();
+        }
+    }
+
+    static class TransferStats {
+
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong notFound = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLongArray latencyBuckets = new AtomicLongArray(LATENCY_BUCKET_BOUNDS_MS.length + 1);
+
+        void recordHit(long latencyMs, long transferredBytes) {
+            requests.incrementAndGet();
+            hits.incrementAndGet();
+            bytes.addAndGet(transferredBytes);
+            recordLatency(latencyMs);
+        }
+
+        void recordNotFound(long latencyMs) {
+            requests.incrementAndGet();
+            notFound.incrementAndGet();
+            recordLatency(latencyMs);
+        }
+
+        void recordError(long latencyMs) {
+            requests.incrementAndGet();
+            errors.incrementAndGet();
+            recordLatency(latencyMs);
+        }
+
+        private void recordLatency(long latencyMs) {
+            int bucket = 0;
+            while (bucket < LATENCY_BUCKET_BOUNDS_MS.length && latencyMs > LATENCY_BUCKET_BOUNDS_MS[bucket]) {
+                bucket++;
+            }
+            latencyBuckets.incrementAndGet(bucket);
+        }
+
+        long getRequests() {
+            return requests.get();
+        }
+
+        long getHits() {
+            return hits.get();
+        }
+
+        long getNotFound() {
+            return notFound.get();
+        }
+
+        long getErrors() {
+            return errors.get();
+        }
+
+        long getBytes() {
+            return bytes.get();
+        }
+
+        long getLatencyBucket(int bucket) {
+            return latencyBuckets.get(bucket);
+        }
+
+        /**
+         * @return the upper bound of the bucket containing the given percentile of all latencies, {@code -1} if the percentile falls
+         *         in the unbounded bucket (or {@code 0} if nothing was recorded)
+         */
+        long getLatencyPercentileBoundMs(int percentile) {
+            long total = 0;
+            for (int i = 0; i < latencyBuckets.length(); i++) {
+                total += latencyBuckets.get(i);
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long threshold = (long) Math.ceil(total * percentile / 100.0);
+            long count = 0;
+            for (int i = 0; i < LATENCY_BUCKET_BOUNDS_MS.length; i++) {
+                count += latencyBuckets.get(i);
+                if (count >= threshold) {
+                    return LATENCY_BUCKET_BOUNDS_MS[i];
+                }
+            }
+            return -1;
+        }
+
+        String getSummary() {
+            if (requests.get() == 0) {
+                return "0 requests";
+            }
+            return requests.get() + " requests (" + hits.get() + " hits, " + notFound.get() + " not found, " + errors.get() + " errors, "
+                    + bytes.get() / 1024 + " KB, p50 " + formatBound(getLatencyPercentileBoundMs(50)) + ", p90 "
+                    + formatBound(getLatencyPercentileBoundMs(90)) + ")";
+        }
+
+        private static String formatBound(long boundMs) {
+            return boundMs < 0 ? "> " + LATENCY_BUCKET_BOUNDS_MS[LATENCY_BUCKET_BOUNDS_MS.length - 1] + "ms" : "<= " + boundMs + "ms";
+        }
+
+        String toJson() {
+            StringBuilder json = new StringBuilder("{ \"requests\": ").append(requests.get())
+                    .append(", \"hits\": ").append(hits.get())
+                    .append(", \"notFound\": ").append(notFound.get())
+                    .append(", \"errors\": ").append(errors.get())
+                    .append(", \"bytes\": ").append(bytes.get())
+                    .append(", \"latencyHistogram\": [");
+            for (int i = 0; i < latencyBuckets.length(); i++) {
+                json.append(i > 0 ? ", " : "").append(latencyBuckets.get(i));
+            }
+            return json.append("] }").toString();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import java.util.Collection;
+
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.spi.connector.ArtifactDownload;
+import org.eclipse.aether.spi.connector.MetadataDownload;
+import org.eclipse.aether.spi.connector.RepositoryConnector;
+
+/**
+ * Only contacts the repository for artifacts and metadata whose groupId is accepted by the repository's {@link GroupIdFilter}, all
+ * other requests are answered with "not found" right away.
+ */
+class RoutingRepositoryConnector extends ForwardingRepositoryConnector {
+
+    private final GroupIdFilter groupIdFilter;
+
+    RoutingRepositoryConnector(RepositoryConnector delegate, RemoteRepository repository, GroupIdFilter groupIdFilter) {
+        super(delegate, repository);
+        this.groupIdFilter = groupIdFilter;
+    }
+
+    @Override
+    public void get(Collection<? extends ArtifactDownload> artifactDownloads, Collection<? extends MetadataDownload> metadataDownloads) {
+        delegate.get(
+                rejectArtifactsNotMatching(artifactDownloads, download -> groupIdFilter.accepts(download.getArtifact().getGroupId())),
+                rejectMetadataNotMatching(metadataDownloads, download -> groupIdFilter.accepts(download.getMetadata().getGroupId())));
+    }
+}
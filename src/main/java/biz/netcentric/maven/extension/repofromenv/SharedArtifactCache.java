@@ -0,0 +1,334 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.repository.RemoteRepository;
+
+/**
+ * Content-addressed on-disk store of release artifacts downloaded from remote repositories, to be shared by multiple builds and
+ * workspaces (e.g. on a volume mounted into ephemeral build agents).
+ *
+ * <ul>
+ * <li>{@code blobs/<sha1>}: the artifact files, named by the SHA-1 of their content (identical files from different repositories are
+ * stored once)</li>
+ * <li>{@code index/<sha1 of repository URL, auth identity and artifact path>}: the SHA-1 of the blob for an artifact of a repository
+ * as seen with the given credentials</li>
+ * </ul>
+ *
+ * Index entries of repositories with credentials are keyed by a hash of the user (or token), so a build only gets artifacts from the
+ * cache that it was allowed to download itself.
+ *
+ * All entries are immutable and written to a temporary file first that is then atomically moved in place, so concurrent builds never
+ * see partially written entries. Publishing entries and evicting the least recently used blobs once the cache exceeds its maximum size
+ * are serialized with a lock on {@code cache.lock} (and a lock per cache directory within the JVM, as file locks are held per process).
+ * Retrievals are not locked: a blob evicted during a retrieval is just downloaded again, and the content of blobs is verified on every
+ * retrieval.
+ */
+class SharedArtifactCache {
+
+    static final String BLOBS_DIR = "blobs";
+    static final String INDEX_DIR = "index";
+    static final String LOCK_FILE_NAME = "cache.lock";
+
+    private static final ConcurrentMap<Path, Object> JVM_LOCKS = new ConcurrentHashMap<>();
+
+    private final Path blobsDir;
+    private final Path indexDir;
+    private final Path lockFile;
+    private final long maxSizeBytes;
+
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger stores = new AtomicInteger();
+    private final AtomicInteger evictions = new AtomicInteger();
+
+    SharedArtifactCache(Path cacheDir, long maxSizeBytes) {
+        this.blobsDir = cacheDir.resolve(BLOBS_DIR);
+        this.indexDir = cacheDir.resolve(INDEX_DIR);
+        this.lockFile = cacheDir.resolve(LOCK_FILE_NAME).toAbsolutePath().normalize();
+        this.maxSizeBytes = maxSizeBytes;
+    }
+
+    static boolean isCacheable(Artifact artifact) {
+        // snapshots are mutable
+        return !artifact.isSnapshot();
+    }
+
+    boolean contains(RemoteRepository repository, String authIdentity, Artifact artifact) {
+        Path blob = getBlob(repository, authIdentity, artifact);
+        return blob != null && Files.isRegularFile(blob);
+    }
+
+    /**
+     * Copies the cached artifact to the given file.
+     *
+     * @return true if the artifact was retrieved from the cache, false if it is not cached (or the cached blob is corrupt)
+     */
+    boolean retrieve(RemoteRepository repository, String authIdentity, Artifact artifact, File target) throws IOException {
+        Path blob = getBlob(repository, authIdentity, artifact);
+        if (blob == null) {
+            return false;
+        }
+        Path targetPath = target.toPath();
+        Files.createDirectories(targetPath.toAbsolutePath().getParent());
+        Path tmpFile = getTmpFile(targetPath);
+        try {
+            String sha1;
+            try (OutputStream out = Files.newOutputStream(tmpFile)) {
+                sha1 = copyWithSha1(blob, out);
+            } catch (NoSuchFileException e) {
+                return false;
+            }
+            if (!sha1.equals(blob.getFileName().toString())) {
+                // corrupt blob, the next download will replace it
+                Files.deleteIfExists(blob);
+                return false;
+            }
+            Files.move(tmpFile, targetPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            touch(blob);
+            hits.incrementAndGet();
+            return true;
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+    }
+
+    void store(RemoteRepository repository, String authIdentity, Artifact artifact, File downloadedFile) throws IOException {
+        Files.createDirectories(blobsDir);
+        Path tmpBlob = getTmpFile(blobsDir.resolve("blob"));
+        try {
+            String sha1;
+            try (OutputStream out = Files.newOutputStream(tmpBlob)) {
+                sha1 = copyWithSha1(downloadedFile.toPath(), out);
+            }
+            Path indexEntry = indexDir.resolve(getIndexKey(repository, authIdentity, artifact));
+            Files.createDirectories(indexDir);
+            Path tmpIndexEntry = getTmpFile(indexEntry);
+            try {
+                Files.write(tmpIndexEntry, sha1.getBytes(StandardCharsets.US_ASCII));
+                // the blob must not be evicted before its index entry is in place
+                withLock(() -> {
+                    Path blob = blobsDir.resolve(sha1);
+                    if (Files.isRegularFile(blob)) {
+                        touch(blob);
+                    } else {
+                        moveInPlace(tmpBlob, blob);
+                    }
+                    moveInPlace(tmpIndexEntry, indexEntry);
+                });
+            } finally {
+                Files.deleteIfExists(tmpIndexEntry);
+            }
+            stores.incrementAndGet();
+        } finally {
+            Files.deleteIfExists(tmpBlob);
+        }
+    }
+
+    /**
+     * Deletes the least recently used blobs (and their index entries) until the size of all blobs is within the maximum size.
+     *
+     * @return the number of evicted blobs
+     */
+    int evict() throws IOException {
+        if (!Files.isDirectory(blobsDir)) {
+            return 0;
+        }
+        Set<String> evictedBlobs = new HashSet<>();
+        withLock(() -> {
+            List<Path> blobs;
+            try (Stream<Path> files = Files.list(blobsDir)) {
+                blobs = files.filter(file -> !file.getFileName().toString().endsWith(".tmp")).collect(Collectors.toList());
+            }
+            Map<Path, BasicFileAttributes> attributesByBlob = new HashMap<>();
+            long size = 0;
+            for (Path blob : blobs) {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(blob, BasicFileAttributes.class);
+                    attributesByBlob.put(blob, attributes);
+                    size += attributes.size();
+                } catch (NoSuchFileException e) {
+                    // deleted as corrupt in the meantime
+                }
+            }
+            List<Path> blobsInLruOrder = new ArrayList<>(attributesByBlob.keySet());
+            blobsInLruOrder.sort(Comparator.comparing(blob -> attributesByBlob.get(blob).lastModifiedTime()));
+            for (Path blob : blobsInLruOrder) {
+                if (size <= maxSizeBytes) {
+                    break;
+                }
+                try {
+                    Files.deleteIfExists(blob);
+                    size -= attributesByBlob.get(blob).size();
+                    evictedBlobs.add(blob.getFileName().toString());
+                } catch (IOException e) {
+                    // still in use (on Windows), evicted on a later occasion
+                }
+            }
+            deleteIndexEntries(evictedBlobs);
+        });
+        evictions.addAndGet(evictedBlobs.size());
+        return evictedBlobs.size();
+    }
+
+    private void deleteIndexEntries(Set<String> blobs) throws IOException {
+        if (blobs.isEmpty() || !Files.isDirectory(indexDir)) {
+            return;
+        }
+        List<Path> indexEntries;
+        try (Stream<Path> files = Files.list(indexDir)) {
+            indexEntries = files.filter(file -> !file.getFileName().toString().endsWith(".tmp")).collect(Collectors.toList());
+        }
+        for (Path indexEntry : indexEntries) {
+            try {
+                String sha1 = new String(Files.readAllBytes(indexEntry), StandardCharsets.US_ASCII).trim();
+                if (blobs.contains(sha1)) {
+                    Files.deleteIfExists(indexEntry);
+                }
+            } catch (NoSuchFileException e) {
+                // deleted concurrently
+            }
+        }
+    }
+
+    private void withLock(IOAction action) throws IOException {
+        Files.createDirectories(lockFile.getParent());
+        synchronized (JVM_LOCKS.computeIfAbsent(lockFile, file -> new Object())) {
+            try (FileChannel lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                    FileLock lock = lockChannel.lock()) {
+                action.run();
+            }
+        }
+    }
+
+    private interface IOAction {
+        void run() throws IOException;
+    }
+
+    /**
+     * Marks a blob as recently used for the eviction.
+     */
+    private static void touch(Path blob) {
+        try {
+            Files.setLastModifiedTime(blob, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // only affects the eviction order
+        }
+    }
+
+    int getHits() {
+        return hits.get();
+    }
+
+    int getStores() {
+        return stores.get();
+    }
+
+    int getEvictions() {
+        return evictions.get();
+    }
+
+    private Path getBlob(RemoteRepository repository, String authIdentity, Artifact artifact) {
+        try {
+            Path indexEntry = indexDir.resolve(getIndexKey(repository, authIdentity, artifact));
+            String sha1 = new String(Files.readAllBytes(indexEntry), StandardCharsets.US_ASCII).trim();
+            return sha1.isEmpty() ? null : blobsDir.resolve(sha1);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void moveInPlace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // stored concurrently by another build, the content is identical
+        }
+    }
+
+    private static Path getTmpFile(Path file) {
+        return file.resolveSibling(file.getFileName() + "." + UUID.randomUUID() + ".tmp");
+    }
+
+    static String getIndexKey(RemoteRepository repository, String authIdentity, Artifact artifact) {
+        String key = repository.getUrl() + "|" + (authIdentity != null ? authIdentity + "|" : "") + FileRepositoryIndex.getPath(artifact);
+        return toHex(newSha1().digest(key.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * @return the SHA-1 of the user (or token) the repository is accessed with or {@code null} for anonymous access
+     */
+    static String getAuthIdentity(RepoFromEnv repoFromEnv) {
+        if (!repoFromEnv.hasCredentials()) {
+            return null;
+        }
+        String identity = repoFromEnv.getToken() != null ? "token:" + repoFromEnv.getToken() : "user:" + repoFromEnv.getUsername();
+        return toHex(newSha1().digest(identity.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String copyWithSha1(Path source, OutputStream out) throws IOException {
+        MessageDigest sha1 = newSha1();
+        try (InputStream in = Files.newInputStream(source); DigestOutputStream digestOut = new DigestOutputStream(out, sha1)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digestOut.write(buffer, 0, read);
+            }
+        }
+        return toHex(sha1.digest());
+    }
+
+    private static MessageDigest newSha1() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not supported by JVM", e);
+        }
+    }
+
+    private static String toHex(byte[] digest) {
+        StringBuilder hex = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.codehaus.plexus.logging.Logger;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.spi.connector.ArtifactDownload;
+import org.eclipse.aether.spi.connector.MetadataDownload;
+import org.eclipse.aether.spi.connector.RepositoryConnector;
+import org.eclipse.aether.transfer.ArtifactTransferException;
+import org.eclipse.aether.transfer.TransferCancelledException;
+import org.eclipse.aether.transfer.TransferEvent;
+import org.eclipse.aether.transfer.TransferListener;
+import org.eclipse.aether.transfer.TransferResource;
+
+/**
+ * Serves release artifacts from the {@link SharedArtifactCache} and adds artifacts downloaded by the delegate to it. Metadata is
+ * always passed on to the delegate. Problems with the cache are logged and never fail the download. Artifacts served from the cache
+ * fire the transfer events of a download.
+ */
+class SharedCachingRepositoryConnector extends ForwardingRepositoryConnector {
+
+    private final RepositorySystemSession session;
+    private final String authIdentity;
+    private final SharedArtifactCache cache;
+    private final Logger logger;
+
+    /**
+     * @param authIdentity see {@link SharedArtifactCache#getAuthIdentity(RepoFromEnv)}
+     */
+    SharedCachingRepositoryConnector(RepositoryConnector delegate, RemoteRepository repository, RepositorySystemSession session,
+            String authIdentity, SharedArtifactCache cache, Logger logger) {
+        super(delegate, repository);
+        this.session = session;
+        this.authIdentity = authIdentity;
+        this.cache = cache;
+        this.logger = logger;
+    }
+
+    @Override
+    public void get(Collection<? extends ArtifactDownload> artifactDownloads, Collection<? extends MetadataDownload> metadataDownloads) {
+        List<ArtifactDownload> downloadsToPerform = new ArrayList<>();
+        for (ArtifactDownload download : nullToEmpty(artifactDownloads)) {
+            if (!SharedArtifactCache.isCacheable(download.getArtifact()) || !retrieve(download)) {
+                downloadsToPerform.add(download);
+            } else {
+                fireTransferEvents(download);
+            }
+        }
+
+        delegate.get(downloadsToPerform, metadataDownloads);
+
+        for (ArtifactDownload download : downloadsToPerform) {
+            if (download.getException() == null && !download.isExistenceCheck() && download.getFile() != null
+                    && SharedArtifactCache.isCacheable(download.getArtifact())) {
+                try {
+                    cache.store(repository, authIdentity, download.getArtifact(), download.getFile());
+                } catch (IOException e) {
+                    logger.warn("Could not add " + download.getArtifact() + " to shared artifact cache: " + e);
+                }
+            }
+        }
+    }
+
+    private boolean retrieve(ArtifactDownload download) {
+        if (download.isExistenceCheck()) {
+            return cache.contains(repository, authIdentity, download.getArtifact());
+        }
+        try {
+            return cache.retrieve(repository, authIdentity, download.getArtifact(), download.getFile());
+        } catch (IOException e) {
+            logger.warn("Could not retrieve " + download.getArtifact() + " from shared artifact cache: " + e);
+            return false;
+        }
+    }
+
+    private void fireTransferEvents(ArtifactDownload download) {
+        TransferListener listener = download.getListener();
+        if (listener == null) {
+            return;
+        }
+        TransferResource resource = new TransferResource(repository.getUrl(), FileRepositoryIndex.getPath(download.getArtifact()),
+                download.getFile(), download.getTrace());
+        long length = download.isExistenceCheck() ? 0 : download.getFile().length();
+        resource.setContentLength(length);
+        TransferEvent.Builder eventBuilder = new TransferEvent.Builder(session, resource);
+        try {
+            listener.transferInitiated(eventBuilder.resetType(TransferEvent.EventType.INITIATED).build());
+            listener.transferStarted(eventBuilder.resetType(TransferEvent.EventType.STARTED).build());
+            listener.transferSucceeded(eventBuilder.resetType(TransferEvent.EventType.SUCCEEDED).setTransferredBytes(length).build());
+        } catch (TransferCancelledException e) {
+            download.setException(new ArtifactTransferException(download.getArtifact(), repository, e));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.eclipse.aether.transfer.ArtifactTransferException;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void testAcquire() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 8);
+        assertEquals(3, limiter.acquire(3));
+        assertEquals(1, limiter.acquire(3));
+        limiter.release(3, 3, 0, 0);
+        assertEquals(3, limiter.acquire(10));
+    }
+
+    @Test
+    void testAcquireInterrupted() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1);
+        assertEquals(1, limiter.acquire(1));
+        Thread.currentThread().interrupt();
+        assertThrows(InterruptedException.class, () -> limiter.acquire(1));
+        // no permit beyond the limit was granted
+        assertEquals(0, limiter.tryAcquireAdditional(1));
+        limiter.releaseUnused(1);
+        assertEquals(1, limiter.acquire(1));
+    }
+
+    @Test
+    void testAdditiveIncreaseMultiplicativeDecrease() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 8);
+        assertEquals(4, limiter.getLimit());
+
+        // one full window of successful downloads increases the limit by one
+        limiter.release(limiter.acquire(4), 4, 0, 0);
+        assertEquals(5, limiter.getLimit());
+
+        // throttling halves the limit
+        limiter.release(limiter.acquire(5), 3, 2, 0);
+        assertEquals(2, limiter.getLimit());
+        // ... but only once for downloads in flight at the same time
+        limiter.release(limiter.acquire(2), 1, 1, 0);
+        assertEquals(2, limiter.getLimit());
+
+        // never beyond max
+        for (int i = 0; i < 100; i++) {
+            limiter.release(limiter.acquire(8), 8, 0, 0);
+        }
+        assertEquals(8, limiter.getLimit());
+    }
+
+    @Test
+    void testIsThrottled() {
+        assertTrue(AdaptiveConcurrencyLimiter.isThrottled(new ArtifactTransferException(null, null,
+                "Could not transfer artifact org.example:a:jar:1.0", new HttpResponseException(429, "Too Many Requests"))));
+        assertTrue(AdaptiveConcurrencyLimiter.isThrottled(new HttpResponseException(503, "Service Unavailable")));
+        assertFalse(AdaptiveConcurrencyLimiter.isThrottled(new ArtifactTransferException(null, null,
+                "Could not transfer artifact org.example:a:jar:4.0.503 from/to repo: Not Found (404)",
+                new HttpResponseException(404, "Not Found"))));
+        // the status code is only taken from the exception, never from the message
+        assertFalse(AdaptiveConcurrencyLimiter.isThrottled(new Exception("Too Many Requests (429)")));
+    }
+
+    /** Stand-in for the exception of the native http transport carrying the status code. */
+    static class HttpResponseException extends Exception {
+        private final int statusCode;
+
+        HttpResponseException(int statusCode, String reasonPhrase) {
+            super("status code: " + statusCode + ", reason phrase: " + reasonPhrase);
+            this.statusCode = statusCode;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+    }
+}
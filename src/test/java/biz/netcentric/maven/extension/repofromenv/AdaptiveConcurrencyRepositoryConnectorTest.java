@@ -0,0 +1,142 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.spi.connector.ArtifactDownload;
+import org.eclipse.aether.spi.connector.RepositoryConnector;
+import org.eclipse.aether.transfer.ArtifactTransferException;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+class AdaptiveConcurrencyRepositoryConnectorTest {
+
+    private final RepositoryConnector delegate = Mockito.mock(RepositoryConnector.class);
+    private final RemoteRepository repository = new RemoteRepository.Builder("sysEnvRepo", "default", "https://domain.org/repo").build();
+
+    @Test
+    void testGetWithRetries() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 8);
+        AdaptiveConcurrencyRepositoryConnector connector = new AdaptiveConcurrencyRepositoryConnector(delegate, repository, limiter, 1);
+
+        List<Integer> chunkSizes = new CopyOnWriteArrayList<>();
+        AtomicInteger throttledCount = new AtomicInteger();
+        doAnswer(invocation -> {
+            Collection<ArtifactDownload> downloads = invocation.getArgument(0);
+            chunkSizes.add(downloads.size());
+            for (ArtifactDownload download : downloads) {
+                // the "throttled" artifact is throttled twice, the "always-throttled" artifact on every attempt
+                if (download.getArtifact().getArtifactId().equals("always-throttled")
+                        || (download.getArtifact().getArtifactId().equals("throttled") && throttledCount.incrementAndGet() <= 2)) {
+                    download.setException(new ArtifactTransferException(download.getArtifact(), repository,
+                            new AdaptiveConcurrencyLimiterTest.HttpResponseException(429, "Too Many Requests")));
+                }
+            }
+            return null;
+        }).when(delegate).get(any(), any());
+
+        ArtifactDownload download1 = new ArtifactDownload(new DefaultArtifact("org.example:a:1.0"), "", new File("a.jar"), "warn");
+        ArtifactDownload download2 = new ArtifactDownload(new DefaultArtifact("org.example:b:1.0"), "", new File("b.jar"), "warn");
+        ArtifactDownload download3 = new ArtifactDownload(new DefaultArtifact("org.example:throttled:1.0"), "", new File("c.jar"), "warn");
+        ArtifactDownload download4 = new ArtifactDownload(new DefaultArtifact("org.example:always-throttled:1.0"), "", new File("d.jar"),
+                "warn");
+        connector.get(Arrays.asList(download1, download2, download3, download4), Collections.emptyList());
+
+        // 4 downloads, then 2 retries of the 2 throttled downloads, the last retry only for the always throttled
+        assertEquals(Collections.nCopies(9, 1), chunkSizes);
+        assertNull(download1.getException());
+        assertNull(download2.getException());
+        assertNull(download3.getException());
+        assertTrue(download4.getException() instanceof ArtifactTransferException);
+    }
+
+    @Test
+    void testGetConcurrently() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 4);
+        AdaptiveConcurrencyRepositoryConnector connector = new AdaptiveConcurrencyRepositoryConnector(delegate, repository, limiter, 1);
+
+        // every download waits until 4 downloads are in flight at the same time
+        CountDownLatch allInFlight = new CountDownLatch(4);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        doAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            allInFlight.countDown();
+            allInFlight.await(5, TimeUnit.SECONDS);
+            inFlight.decrementAndGet();
+            return null;
+        }).when(delegate).get(any(), any());
+
+        List<ArtifactDownload> downloads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            downloads.add(new ArtifactDownload(new DefaultArtifact("org.example:a" + i + ":1.0"), "", new File("a" + i + ".jar"), "warn"));
+        }
+        connector.get(downloads, Collections.emptyList());
+
+        assertEquals(0, allInFlight.getCount(), "a single get() must run the downloads concurrently");
+        assertEquals(4, maxInFlight.get(), "the limit must not be exceeded");
+        downloads.forEach(download -> assertNull(download.getException()));
+    }
+
+    @Test
+    void testGetInterrupted() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1);
+        AdaptiveConcurrencyRepositoryConnector connector = new AdaptiveConcurrencyRepositoryConnector(delegate, repository, limiter, 1);
+
+        // the first download blocks until interrupted, so all others wait for a permit
+        CountDownLatch started = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            try {
+                new CountDownLatch(1).await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Collection<ArtifactDownload> downloads = invocation.getArgument(0);
+                downloads.forEach(download -> download.setException(new ArtifactTransferException(download.getArtifact(), repository, e)));
+            }
+            return null;
+        }).when(delegate).get(any(), any());
+
+        List<ArtifactDownload> downloads = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            downloads.add(new ArtifactDownload(new DefaultArtifact("org.example:a" + i + ":1.0"), "", new File("a" + i + ".jar"), "warn"));
+        }
+        Thread thread = new Thread(() -> connector.get(downloads, Collections.emptyList()));
+        thread.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        thread.interrupt();
+        thread.join(5000);
+
+        assertFalse(thread.isAlive());
+        // the permit of the interrupted download is released, none was granted beyond the limit
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertEquals(1, limiter.acquire(1)));
+        downloads.forEach(download -> assertTrue(download.getException() instanceof ArtifactTransferException));
+        assertTrue(downloads.get(2).getException().getCause() instanceof InterruptedException);
+    }
+}
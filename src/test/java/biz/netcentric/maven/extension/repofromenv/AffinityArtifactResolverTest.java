@@ -0,0 +1,124 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.aether.DefaultSessionData;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.impl.ArtifactResolver;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.eclipse.aether.transfer.ArtifactNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+class AffinityArtifactResolverTest {
+
+    private final RemoteRepository central = new RemoteRepository.Builder("central", "default", "https://repo.maven.apache.org/maven2")
+            .build();
+    private final RemoteRepository repository1 = new RemoteRepository.Builder("sysEnvRepo1", "default", "https://domain.org/repo1").build();
+    private final RemoteRepository repository2 = new RemoteRepository.Builder("sysEnvRepo2", "default", "https://domain.org/repo2").build();
+
+    private final ArtifactResolver delegate = Mockito.mock(ArtifactResolver.class);
+    private final RepositorySystemSession session = Mockito.mock(RepositorySystemSession.class);
+    private final List<ArtifactRequest> delegatedRequests = new ArrayList<>();
+
+    private RepositoryAffinity affinity;
+
+    @TempDir
+    Path affinityDir;
+
+    @BeforeEach
+    void setup() throws Exception {
+        EnvReposContext context = new EnvReposContext(Arrays.asList(new RepoFromEnv("sysEnvRepo1", repository1.getUrl(), null, null),
+                new RepoFromEnv("sysEnvRepo2", repository2.getUrl(), null, null)));
+        affinity = new RepositoryAffinity(affinityDir, TimeUnit.HOURS.toMillis(1));
+        context.setRepositoryAffinity(affinity);
+        DefaultSessionData sessionData = new DefaultSessionData();
+        sessionData.set(EnvReposContext.class, context);
+        when(session.getData()).thenReturn(sessionData);
+
+        // repository2 only has com.vendor:lib, all other artifacts are served by the first other repository
+        doAnswer(invocation -> {
+            List<ArtifactResult> results = new ArrayList<>();
+            for (ArtifactRequest request : invocation.<Collection<ArtifactRequest>> getArgument(1)) {
+                delegatedRequests.add(request);
+                ArtifactResult result = new ArtifactResult(request);
+                for (RemoteRepository repository : request.getRepositories()) {
+                    if (repository != repository2 || request.getArtifact().getArtifactId().equals("lib")) {
+                        result.setArtifact(request.getArtifact().setFile(affinityDir.toFile()));
+                        result.setRepository(repository);
+                        break;
+                    }
+                    result.addException(new ArtifactNotFoundException(request.getArtifact(), repository));
+                }
+                results.add(result);
+            }
+            return results;
+        }).when(delegate).resolveArtifacts(any(), any());
+    }
+
+    @Test
+    void testResolveArtifacts() throws Exception {
+        affinity.recordServed("com.vendor", repository2);
+        // repositories not from env are never preferred
+        affinity.recordServed("org.example", central);
+        AffinityArtifactResolver resolver = new AffinityArtifactResolver(delegate);
+
+        ArtifactRequest vendorRequest = request("com.vendor:lib:1.0", central, repository1, repository2);
+        ArtifactRequest exampleRequest = request("org.example:lib:1.0", repository1, central);
+        ArtifactRequest snapshotRequest = request("com.vendor:lib:1.1-SNAPSHOT", central, repository2);
+        List<ArtifactResult> results = resolver.resolveArtifacts(session, Arrays.asList(vendorRequest, exampleRequest, snapshotRequest));
+
+        assertEquals(Arrays.asList(repository2, central, repository1), delegatedRequests.get(0).getRepositories());
+        assertEquals(Arrays.asList(central, repository1, repository2), vendorRequest.getRepositories(), "must not be modified");
+        assertSame(vendorRequest.getTrace(), delegatedRequests.get(0).getTrace());
+        assertSame(exampleRequest, delegatedRequests.get(1));
+        assertSame(snapshotRequest, delegatedRequests.get(2));
+        assertEquals(repository2, results.get(0).getRepository());
+        assertEquals(1, affinity.getHits());
+        // learned from the resolution
+        assertEquals(repository1, affinity.getPreferredRepository("org.example", Arrays.asList(repository1, repository2)));
+
+        // the preferred repository does not have the artifact, the resolver falls back to the normal order
+        delegatedRequests.clear();
+        ArtifactRequest movedRequest = request("com.vendor:moved:1.0", repository1, repository2);
+        assertEquals(repository1, resolver.resolveArtifact(session, movedRequest).getRepository());
+        assertEquals(Arrays.asList(repository2, repository1), delegatedRequests.get(0).getRepositories());
+        assertEquals(1, affinity.getMisses());
+        assertEquals(repository1, affinity.getPreferredRepository("com.vendor", Arrays.asList(repository1, repository2)));
+
+        // a repository not used by the request is not preferred
+        delegatedRequests.clear();
+        resolver.resolveArtifact(session, request("com.vendor:lib:2.0", central));
+        assertEquals(Arrays.asList(central), delegatedRequests.get(0).getRepositories());
+        assertNull(affinity.getPreferredRepository("com.vendor", Arrays.asList(central)));
+    }
+
+    private static ArtifactRequest request(String coordinates, RemoteRepository... repositories) {
+        return new ArtifactRequest(new DefaultArtifact(coordinates), Arrays.asList(repositories), null);
+    }
+}
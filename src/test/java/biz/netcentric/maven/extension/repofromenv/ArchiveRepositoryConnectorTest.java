@@ -0,0 +1,141 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.maven.artifact.repository.ArtifactRepositoryPolicy;
+import org.codehaus.plexus.logging.Logger;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.metadata.DefaultMetadata;
+import org.eclipse.aether.metadata.Metadata;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.spi.connector.ArtifactDownload;
+import org.eclipse.aether.spi.connector.ArtifactUpload;
+import org.eclipse.aether.spi.connector.MetadataDownload;
+import org.eclipse.aether.transfer.ArtifactNotFoundException;
+import org.eclipse.aether.transfer.ArtifactTransferException;
+import org.eclipse.aether.transfer.MetadataNotFoundException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+class ArchiveRepositoryConnectorTest {
+
+    private static final String LIB_CONTENT = "lib content";
+    // SHA-1 of "lib content"
+    private static final String LIB_SHA1 = "bc3016606e5f445249db67a5e037acf0ee850c66";
+
+    private final RemoteRepository repository = new RemoteRepository.Builder("sysEnvRepo", "default", "file:/vendor.zip").build();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testArchiveUrls() {
+        assertTrue(ArchiveRepository.isArchiveUrl("file:/path/to/vendor.zip"));
+        assertTrue(ArchiveRepository.isArchiveUrl("/path/to/vendor.JAR"));
+        assertTrue(ArchiveRepository.isArchiveUrl("vendor.zip!/maven-repository"));
+        assertFalse(ArchiveRepository.isArchiveUrl("https://domain.org/vendor.zip"));
+        assertFalse(ArchiveRepository.isArchiveUrl("file:/path/to/repository"));
+        assertEquals("vendor.zip", ArchiveRepository.getArchivePath("vendor.zip!/maven-repository"));
+        assertEquals("maven-repository", ArchiveRepository.getRootPath("vendor.zip!/maven-repository"));
+        assertEquals("", ArchiveRepository.getRootPath("vendor.zip"));
+    }
+
+    @Test
+    void testGet() throws IOException {
+        Path archiveFile = createArchive("maven-repository/", LIB_SHA1);
+        assertThrows(IOException.class, () -> ArchiveRepository.open(archiveFile, "other"));
+
+        try (ArchiveRepository archiveRepository = ArchiveRepository.open(archiveFile, "maven-repository")) {
+            assertEquals(3, archiveRepository.getIndex().size());
+            ArchiveRepositoryConnector connector = new ArchiveRepositoryConnector(repository, archiveRepository, Mockito.mock(Logger.class));
+
+            ArtifactDownload lib = download("org.example:lib:1.0", ArtifactRepositoryPolicy.CHECKSUM_POLICY_FAIL);
+            ArtifactDownload existenceCheck = new ArtifactDownload(new DefaultArtifact("org.example:lib:1.0"), "",
+                    tempDir.resolve("check/lib-1.0.jar").toFile(), ArtifactRepositoryPolicy.CHECKSUM_POLICY_FAIL);
+            existenceCheck.setExistenceCheck(true);
+            ArtifactDownload missing = download("org.example:missing:1.0", ArtifactRepositoryPolicy.CHECKSUM_POLICY_FAIL);
+            MetadataDownload metadata = new MetadataDownload(new DefaultMetadata("org.example", "lib", "maven-metadata.xml",
+                    Metadata.Nature.RELEASE), "", tempDir.resolve("local/maven-metadata.xml").toFile(), "warn");
+            MetadataDownload missingMetadata = new MetadataDownload(new DefaultMetadata("org.example", "missing", "maven-metadata.xml",
+                    Metadata.Nature.RELEASE), "", tempDir.resolve("local/missing-metadata.xml").toFile(), "warn");
+            connector.get(Arrays.asList(lib, existenceCheck, missing), Arrays.asList(metadata, missingMetadata));
+
+            assertNull(lib.getException());
+            assertEquals(LIB_CONTENT, new String(Files.readAllBytes(lib.getFile().toPath()), StandardCharsets.UTF_8));
+            assertNull(existenceCheck.getException());
+            assertFalse(existenceCheck.getFile().exists());
+            assertTrue(missing.getException() instanceof ArtifactNotFoundException);
+            assertNull(metadata.getException());
+            assertEquals("<metadata/>", new String(Files.readAllBytes(metadata.getFile().toPath()), StandardCharsets.UTF_8));
+            assertTrue(missingMetadata.getException() instanceof MetadataNotFoundException);
+
+            ArtifactUpload upload = new ArtifactUpload(new DefaultArtifact("org.example:lib:1.1"), lib.getFile());
+            connector.put(Collections.singletonList(upload), null);
+            assertTrue(upload.getException() instanceof ArtifactTransferException);
+        }
+    }
+
+    @Test
+    void testChecksumMismatch() throws IOException {
+        Path archiveFile = createArchive("", "0000000000000000000000000000000000000000");
+        try (ArchiveRepository archiveRepository = ArchiveRepository.open(archiveFile, "")) {
+            ArchiveRepositoryConnector connector = new ArchiveRepositoryConnector(repository, archiveRepository, Mockito.mock(Logger.class));
+
+            ArtifactDownload failing = download("org.example:lib:1.0", ArtifactRepositoryPolicy.CHECKSUM_POLICY_FAIL);
+            connector.get(Collections.singletonList(failing), null);
+            assertTrue(failing.getException() instanceof ArtifactTransferException);
+            assertFalse(failing.getFile().exists());
+
+            ArtifactDownload warning = download("org.example:lib:1.0", ArtifactRepositoryPolicy.CHECKSUM_POLICY_WARN);
+            connector.get(Collections.singletonList(warning), null);
+            assertNull(warning.getException());
+            assertTrue(warning.getFile().exists());
+        }
+    }
+
+    private Path createArchive(String rootPath, String libSha1) throws IOException {
+        Path archiveFile = tempDir.resolve("vendor.zip");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archiveFile))) {
+            addEntry(zip, rootPath + "org/example/lib/1.0/lib-1.0.jar", LIB_CONTENT);
+            addEntry(zip, rootPath + "org/example/lib/1.0/lib-1.0.jar.sha1", libSha1);
+            addEntry(zip, rootPath + "org/example/lib/maven-metadata.xml", "<metadata/>");
+        }
+        return archiveFile;
+    }
+
+    private static void addEntry(ZipOutputStream zip, String path, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(path));
+        zip.write(content.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+
+    private ArtifactDownload download(String coords, String checksumPolicy) {
+        DefaultArtifact artifact = new DefaultArtifact(coords);
+        File file = tempDir.resolve("local").resolve(FileRepositoryIndex.getPath(artifact)).toFile();
+        file.delete();
+        return new ArtifactDownload(artifact, "", file, checksumPolicy);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.plexus.logging.Logger;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+class ArtifactPrefetcherTest {
+
+    @Test
+    void testPrefetch() throws Exception {
+        RepositorySystem repositorySystem = Mockito.mock(RepositorySystem.class);
+        RepositorySystemSession session = Mockito.mock(RepositorySystemSession.class);
+        List<RemoteRepository> repositories = Collections.singletonList(
+                new RemoteRepository.Builder("sysEnvRepo", "default", "https://domain.org/repo").build());
+        Artifact found = new DefaultArtifact("org.example:found:1.0");
+        Artifact missing = new DefaultArtifact("org.example:missing:1.0");
+        when(repositorySystem.resolveArtifact(any(), any())).thenAnswer(invocation -> {
+            ArtifactRequest request = invocation.getArgument(1);
+            if (request.getArtifact().equals(missing)) {
+                throw new ArtifactResolutionException(Collections.singletonList(new ArtifactResult(request)));
+            }
+            return new ArtifactResult(request).setArtifact(request.getArtifact());
+        });
+
+        ArtifactPrefetcher prefetcher = new ArtifactPrefetcher(repositorySystem, 2, Mockito.mock(Logger.class));
+        prefetcher.start(session, repositories, Arrays.asList(found, missing));
+
+        assertTrue(prefetcher.awaitCompletion(5000));
+        verify(repositorySystem).resolveArtifact(Mockito.eq(session),
+                argThat(request -> request.getArtifact().equals(found) && request.getRepositories().equals(repositories)));
+        verify(repositorySystem).resolveArtifact(Mockito.eq(session), argThat(request -> request.getArtifact().equals(missing)));
+        prefetcher.stop();
+        assertEquals("1 of 2 artifacts prefetched, 1 failed", prefetcher.getSummary());
+    }
+
+    @Test
+    void testStopCancelsQueuedPrefetches() throws Exception {
+        RepositorySystem repositorySystem = Mockito.mock(RepositorySystem.class);
+        CountDownLatch started = new CountDownLatch(1);
+        when(repositorySystem.resolveArtifact(any(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            Thread.sleep(200);
+            ArtifactRequest request = invocation.getArgument(1);
+            return new ArtifactResult(request).setArtifact(request.getArtifact());
+        });
+
+        ArtifactPrefetcher prefetcher = new ArtifactPrefetcher(repositorySystem, 1, Mockito.mock(Logger.class));
+        prefetcher.start(Mockito.mock(RepositorySystemSession.class), Collections.emptyList(), Arrays.asList(
+                new DefaultArtifact("org.example:first:1.0"), new DefaultArtifact("org.example:second:1.0"),
+                new DefaultArtifact("org.example:third:1.0")));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        prefetcher.stop();
+
+        // the running prefetch is completed, queued ones are dropped
+        assertEquals("1 of 3 artifacts prefetched, 2 cancelled", prefetcher.getSummary());
+    }
+}
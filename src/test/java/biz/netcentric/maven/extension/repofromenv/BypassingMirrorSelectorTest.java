@@ -0,0 +1,39 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.util.repository.DefaultMirrorSelector;
+import org.junit.jupiter.api.Test;
+
+class BypassingMirrorSelectorTest {
+
+    @Test
+    void testGetMirror() {
+        DefaultMirrorSelector defaultMirrorSelector = new DefaultMirrorSelector();
+        defaultMirrorSelector.add("mirror", "https://domain.org/mirror", "default", false, "*", null);
+        BypassingMirrorSelector mirrorSelector = new BypassingMirrorSelector(new HashSet<>(Arrays.asList("sysEnvRepo", "sysEnvRepoNAME1")),
+                defaultMirrorSelector);
+
+        assertNull(mirrorSelector.getMirror(repository("sysEnvRepo")));
+        assertNull(mirrorSelector.getMirror(repository("sysEnvRepoNAME1")));
+        assertEquals("mirror", mirrorSelector.getMirror(repository("central")).getId());
+        assertNull(new BypassingMirrorSelector(new HashSet<>(Arrays.asList("sysEnvRepo")), null).getMirror(repository("central")));
+    }
+
+    private static RemoteRepository repository(String id) {
+        return new RemoteRepository.Builder(id, "default", "https://domain.org/" + id).build();
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.File;
+import java.net.ConnectException;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.codehaus.plexus.logging.Logger;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.metadata.DefaultMetadata;
+import org.eclipse.aether.metadata.Metadata;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.spi.connector.ArtifactDownload;
+import org.eclipse.aether.spi.connector.MetadataDownload;
+import org.eclipse.aether.spi.connector.RepositoryConnector;
+import org.eclipse.aether.transfer.ArtifactNotFoundException;
+import org.eclipse.aether.transfer.ArtifactTransferException;
+import org.eclipse.aether.transfer.MetadataTransferException;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+class CircuitBreakingRepositoryConnectorTest {
+
+    private final RepositoryConnector delegate = Mockito.mock(RepositoryConnector.class);
+    private final RemoteRepository repository = new RemoteRepository.Builder("sysEnvRepo", "default", "https://domain.org/repo").build();
+
+    @Test
+    void testGet() {
+        RepositoryCircuitBreaker circuitBreaker = new RepositoryCircuitBreaker("sysEnvRepo", 2, 60000, 60000, Mockito.mock(Logger.class));
+        CircuitBreakingRepositoryConnector connector = new CircuitBreakingRepositoryConnector(delegate, repository, circuitBreaker);
+        // the repository is down
+        doAnswer(invocation -> {
+            Collection<ArtifactDownload> downloads = invocation.getArgument(0);
+            downloads.forEach(download -> download.setException(
+                    new ArtifactTransferException(download.getArtifact(), repository, new ConnectException("Connection refused"))));
+            return null;
+        }).when(delegate).get(any(), any());
+
+        connector.get(Collections.singletonList(download("org.example:a:1.0")), null);
+        assertTrue(circuitBreaker.allowRequest());
+        connector.get(Collections.singletonList(download("org.example:b:1.0")), null);
+        assertFalse(circuitBreaker.allowRequest());
+
+        // further downloads are not passed on to the delegate
+        ArtifactDownload skippedArtifact = download("org.example:c:1.0");
+        MetadataDownload skippedMetadata = new MetadataDownload(
+                new DefaultMetadata("org.example", "maven-metadata.xml", Metadata.Nature.RELEASE), "", new File("metadata.xml"), "warn");
+        connector.get(Collections.singletonList(skippedArtifact), Collections.singletonList(skippedMetadata));
+        verify(delegate, times(2)).get(any(), any());
+        assertEquals(ArtifactTransferException.class, skippedArtifact.getException().getClass());
+        assertEquals(MetadataTransferException.class, skippedMetadata.getException().getClass());
+    }
+
+    @Test
+    void testNotFoundIsNoFailure() {
+        RepositoryCircuitBreaker circuitBreaker = new RepositoryCircuitBreaker("sysEnvRepo", 1, 60000, 60000, Mockito.mock(Logger.class));
+        CircuitBreakingRepositoryConnector connector = new CircuitBreakingRepositoryConnector(delegate, repository, circuitBreaker);
+        doAnswer(invocation -> {
+            Collection<ArtifactDownload> downloads = invocation.getArgument(0);
+            downloads.forEach(download -> download.setException(new ArtifactNotFoundException(download.getArtifact(), repository)));
+            return null;
+        }).when(delegate).get(any(), any());
+
+        connector.get(Collections.singletonList(download("org.example:a:1.0")), null);
+        assertEquals(RepositoryCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    private static ArtifactDownload download(String coords) {
+        return new ArtifactDownload(new DefaultArtifact(coords), "", new File(coords.replace(':', '-') + ".jar"), "warn");
+    }
+}
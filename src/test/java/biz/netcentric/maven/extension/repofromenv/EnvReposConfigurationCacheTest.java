@@ -0,0 +1,70 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class EnvReposConfigurationCacheTest {
+
+    private final AtomicInteger parseCount = new AtomicInteger();
+
+    private final BiFunction<Map<String, String>, File, List<RepoFromEnv>> parser = (configuration, dir) -> {
+        parseCount.incrementAndGet();
+        RepoFromEnv repoFromEnv = new RepoFromEnv.Builder("repo", configuration.get("MVN_SETTINGS_REPO_URL"), null, null)
+                .setChecksumPolicy("fail").build();
+        return Collections.singletonList(repoFromEnv);
+    };
+
+    @TempDir
+    Path repositoryDir;
+
+    @Test
+    void testGetRepos() {
+        EnvReposConfigurationCache cache = new EnvReposConfigurationCache();
+        Map<String, String> configuration = Collections.singletonMap("MVN_SETTINGS_REPO_URL", "https://domain.org/repo");
+        File projectDir = new File("project");
+
+        List<RepoFromEnv> repos = cache.getRepos(configuration, projectDir, parser);
+        // the list of one build may be modified (e.g. by adding the implicit file repository) without affecting other builds
+        repos.add(0, new RepoFromEnv("implicit", repositoryDir.toUri().toString(), null, null));
+        List<RepoFromEnv> cachedRepos = cache.getRepos(configuration, projectDir, parser);
+        assertEquals(1, parseCount.get());
+        assertEquals(1, cachedRepos.size());
+        // the repositories are immutable and shared
+        assertSame(repos.get(1), cachedRepos.get(0));
+        assertEquals("https://domain.org/repo", cachedRepos.get(0).getUrl());
+        assertEquals("fail", cachedRepos.get(0).getChecksumPolicy());
+
+        cache.getRepos(configuration, new File("other-project"), parser);
+        cache.getRepos(Collections.singletonMap("MVN_SETTINGS_REPO_URL", "https://domain.org/other"), projectDir, parser);
+        assertEquals(3, parseCount.get());
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    void testEviction() {
+        EnvReposConfigurationCache cache = new EnvReposConfigurationCache();
+        for (int i = 0; i <= EnvReposConfigurationCache.MAX_ENTRIES; i++) {
+            cache.getRepos(Collections.singletonMap("MVN_SETTINGS_REPO_URL", "https://domain.org/repo" + i), new File("project"), parser);
+        }
+        assertEquals(EnvReposConfigurationCache.MAX_ENTRIES, cache.size());
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.TreeSet;
+
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.metadata.DefaultMetadata;
+import org.eclipse.aether.metadata.Metadata;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileRepositoryIndexTest {
+
+    @TempDir
+    Path repositoryDir;
+
+    @Test
+    void testBuild() throws IOException {
+        createFile("com/vendor/lib/1.0/lib-1.0.jar");
+        createFile("com/vendor/lib/1.0/lib-1.0.pom");
+        createFile("com/vendor/lib/1.0/lib-1.0-sources.jar");
+        createFile("com/vendor/lib/maven-metadata.xml");
+        createFile("com/vendor/lib/2.0-SNAPSHOT/lib-2.0-20200101.101010-1.jar");
+
+        FileRepositoryIndex index = FileRepositoryIndex.build(repositoryDir);
+        assertEquals(5, index.size());
+
+        assertTrue(index.contains(new DefaultArtifact("com.vendor:lib:1.0")));
+        assertTrue(index.contains(new DefaultArtifact("com.vendor:lib:pom:1.0")));
+        assertTrue(index.contains(new DefaultArtifact("com.vendor:lib:jar:sources:1.0")));
+        assertTrue(index.contains(new DefaultArtifact("com.vendor:lib:2.0-20200101.101010-1")));
+        assertFalse(index.contains(new DefaultArtifact("com.vendor:lib:jar:javadoc:1.0")));
+        assertFalse(index.contains(new DefaultArtifact("com.vendor:lib:1.1")));
+        assertFalse(index.contains(new DefaultArtifact("org.apache:lib:1.0")));
+
+        assertTrue(index.contains(new DefaultMetadata("com.vendor", "lib", "maven-metadata.xml", Metadata.Nature.RELEASE)));
+        assertFalse(index.contains(new DefaultMetadata("com.vendor", "lib", "1.0", "maven-metadata.xml", Metadata.Nature.RELEASE)));
+        assertFalse(index.contains(new DefaultMetadata("com.vendor", "maven-metadata.xml", Metadata.Nature.RELEASE)));
+
+        assertEquals(new TreeSet<>(Arrays.asList("1.0", "2.0-SNAPSHOT")), index.getVersions("com.vendor", "lib"));
+        assertTrue(index.getVersions("com.vendor", "other").isEmpty());
+        // files directly in the artifact directory do not make it a version directory
+        assertTrue(index.getVersions("com.vendor.lib", "1.0").isEmpty());
+    }
+
+    private void createFile(String path) throws IOException {
+        Path file = repositoryDir.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.createFile(file);
+    }
+}
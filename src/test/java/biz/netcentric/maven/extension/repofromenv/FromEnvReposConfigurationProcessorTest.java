@@ -9,7 +9,11 @@
 package biz.netcentric.maven.extension.repofromenv;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
@@ -17,14 +21,21 @@ import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import org.apache.maven.cli.CliRequest;
 import org.apache.maven.execution.MavenExecutionRequest;
@@ -33,6 +44,10 @@ import org.apache.maven.model.Repository;
 import org.apache.maven.settings.Mirror;
 import org.apache.maven.settings.Server;
 import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -41,6 +56,7 @@ import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 
 class FromEnvReposConfigurationProcessorTest {
 
@@ -54,6 +70,12 @@ class FromEnvReposConfigurationProcessorTest {
     @Mock
     private Logger logger;
 
+    @Spy
+    private EnvReposContextRegistry contextRegistry = new EnvReposContextRegistry();
+
+    @Spy
+    private EnvReposConfigurationCache configurationCache = new EnvReposConfigurationCache();
+
     @Mock 
     private MavenExecutionRequest mavenExecutionRequest;
 
@@ -70,6 +92,13 @@ class FromEnvReposConfigurationProcessorTest {
         when(mavenExecutionRequest.getProfiles()).thenReturn(profiles);
     }
 
+    @AfterEach
+    void clearSystemProperties() {
+        for (String suffix : Arrays.asList("URL", "USERNAME", "PASSWORD", "RETRIES", "PREEMPTIVE_AUTH")) {
+            System.clearProperty("MVN_SETTINGS_REPO_SPECIAL1_" + suffix);
+        }
+    }
+
     @Test
     void testGetReposFromEnvOne() {
 
@@ -116,6 +145,93 @@ class FromEnvReposConfigurationProcessorTest {
 
     }
 
+    @Test
+    void testGetReposFromEnvWithGroupIdFilter() {
+
+        testEnv.put("MVN_SETTINGS_REPO_VENDOR_URL", "https://repodomain.com/path/to/vendor");
+        testEnv.put("MVN_SETTINGS_REPO_VENDOR_INCLUDES", "com.vendor, org.vendor*");
+        testEnv.put("MVN_SETTINGS_REPO_VENDOR_EXCLUDES", "com.vendor.internal");
+        testEnv.put("MVN_SETTINGS_REPO_URL", "https://repodomain.com/path/to/repo");
+
+        List<RepoFromEnv> reposFromEnv = fromEnvSettingsConfigurationProcessor.getReposFromConfiguration(testEnv, PATH_TO_REACTOR_ROOT.toFile());
+        assertEquals(2, reposFromEnv.size());
+        assertEquals(GroupIdFilter.ACCEPT_ALL, reposFromEnv.get(0).getGroupIdFilter());
+        GroupIdFilter vendorFilter = reposFromEnv.get(1).getGroupIdFilter();
+        assertTrue(vendorFilter.accepts("com.vendor.lib"));
+        assertTrue(vendorFilter.accepts("org.vendorlib"));
+        assertFalse(vendorFilter.accepts("com.vendor.internal"));
+        assertFalse(vendorFilter.accepts("org.apache.maven"));
+    }
+
+    @Test
+    void testGetReposFromEnvWithPolicies() {
+
+        testEnv.put("MVN_SETTINGS_REPO_PROXY_URL", "https://repodomain.com/path/to/proxy");
+        testEnv.put("MVN_SETTINGS_REPO_PROXY_SNAPSHOTS", "false");
+        testEnv.put("MVN_SETTINGS_REPO_PROXY_UPDATE_POLICY", "never");
+        testEnv.put("MVN_SETTINGS_REPO_PROXY_CHECKSUM_POLICY", "fail");
+        testEnv.put("MVN_SETTINGS_REPO_URL", "https://repodomain.com/path/to/repo");
+
+        List<RepoFromEnv> reposFromEnv = fromEnvSettingsConfigurationProcessor.getReposFromConfiguration(testEnv, PATH_TO_REACTOR_ROOT.toFile());
+        assertEquals(2, reposFromEnv.size());
+        RepoFromEnv defaultRepo = reposFromEnv.get(1);
+        assertTrue(defaultRepo.isReleasesEnabled());
+        assertTrue(defaultRepo.isSnapshotsEnabled());
+        assertEquals(null, defaultRepo.getUpdatePolicy());
+        assertEquals(null, defaultRepo.getChecksumPolicy());
+        RepoFromEnv releasesRepo = reposFromEnv.get(0);
+        assertTrue(releasesRepo.isReleasesEnabled());
+        assertFalse(releasesRepo.isSnapshotsEnabled());
+        assertEquals("never", releasesRepo.getUpdatePolicy());
+        assertEquals("fail", releasesRepo.getChecksumPolicy());
+    }
+
+    @Test
+    void testGetReposFromEnvWithScope() {
+        testEnv.put("MVN_SETTINGS_REPO_VENDOR_URL", "https://repodomain.com/path/to/vendor");
+        testEnv.put("MVN_SETTINGS_REPO_VENDOR_SCOPE", "dependencies");
+        testEnv.put("MVN_SETTINGS_REPO_TOOLS_URL", "https://repodomain.com/path/to/tools");
+        testEnv.put("MVN_SETTINGS_REPO_TOOLS_SCOPE", "plugins");
+        testEnv.put("MVN_SETTINGS_REPO_URL", "https://repodomain.com/path/to/repo");
+
+        List<RepoFromEnv> reposFromEnv = fromEnvSettingsConfigurationProcessor.getReposFromConfiguration(testEnv, PATH_TO_REACTOR_ROOT.toFile());
+        assertEquals(3, reposFromEnv.size());
+        // ordered by key
+        assertEquals(RepoFromEnv.Scope.PLUGINS, reposFromEnv.get(0).getScope());
+        assertEquals(RepoFromEnv.Scope.BOTH, reposFromEnv.get(1).getScope());
+        assertEquals(RepoFromEnv.Scope.DEPENDENCIES, reposFromEnv.get(2).getScope());
+
+        testEnv.put("MVN_SETTINGS_REPO_TOOLS_SCOPE", "extensions");
+        assertThrows(IllegalArgumentException.class,
+                () -> fromEnvSettingsConfigurationProcessor.getReposFromConfiguration(testEnv, PATH_TO_REACTOR_ROOT.toFile()));
+    }
+
+    @Test
+    void testGetReposFromEnvWithInvalidPolicies() {
+
+        testEnv.put("MVN_SETTINGS_REPO_URL", "https://repodomain.com/path/to/repo");
+
+        testEnv.put("MVN_SETTINGS_REPO_UPDATE_POLICY", "interval:abc");
+        assertThrows(IllegalArgumentException.class, () -> {
+            fromEnvSettingsConfigurationProcessor.getReposFromConfiguration(testEnv, PATH_TO_REACTOR_ROOT.toFile());
+        });
+        testEnv.put("MVN_SETTINGS_REPO_UPDATE_POLICY", "interval:60");
+        testEnv.put("MVN_SETTINGS_REPO_CHECKSUM_POLICY", "strict");
+        assertThrows(IllegalArgumentException.class, () -> {
+            fromEnvSettingsConfigurationProcessor.getReposFromConfiguration(testEnv, PATH_TO_REACTOR_ROOT.toFile());
+        });
+        testEnv.remove("MVN_SETTINGS_REPO_CHECKSUM_POLICY");
+        testEnv.put("MVN_SETTINGS_REPO_SNAPSHOTS", "no");
+        assertThrows(IllegalArgumentException.class, () -> {
+            fromEnvSettingsConfigurationProcessor.getReposFromConfiguration(testEnv, PATH_TO_REACTOR_ROOT.toFile());
+        });
+        testEnv.put("MVN_SETTINGS_REPO_SNAPSHOTS", "false");
+        testEnv.put("MVN_SETTINGS_REPO_RELEASES", "false");
+        assertThrows(IllegalArgumentException.class, () -> {
+            fromEnvSettingsConfigurationProcessor.getReposFromConfiguration(testEnv, PATH_TO_REACTOR_ROOT.toFile());
+        });
+    }
+
     @Test
     void testGetReposFromEnvNoUserPw() {
 
@@ -165,6 +281,34 @@ class FromEnvReposConfigurationProcessorTest {
         assertEquals(PATH_TO_REACTOR_ROOT.toUri()+"/.mvn/repository", reposFromEnv.get(0).getUrl());
     }
     
+    @Test
+    void testGetReposArchiveUrl() throws IOException {
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(projectRootDir.resolve("vendor.zip")))) {
+            zip.putNextEntry(new ZipEntry("repository/org/example/lib/1.0/lib-1.0.jar"));
+            zip.closeEntry();
+        }
+        testEnv.put("MVN_SETTINGS_REPO_URL", "file://${maven.multiModuleProjectDirectory}/vendor.zip!/repository");
+        testEnv.put("MVN_SETTINGS_REPO_RELATIVE_URL", "vendor.zip!/repository");
+
+        List<RepoFromEnv> reposFromEnv = fromEnvSettingsConfigurationProcessor.getReposFromConfiguration(testEnv, projectRootDir.toFile());
+        assertEquals(2, reposFromEnv.size());
+        Map<String, ArchiveRepository> archiveRepositories = fromEnvSettingsConfigurationProcessor.openArchiveRepositories(reposFromEnv,
+                projectRootDir.toFile());
+        assertEquals(2, archiveRepositories.size());
+        for (RepoFromEnv repoFromEnv : reposFromEnv) {
+            assertEquals(projectRootDir.resolve("vendor.zip").toUri() + "!/repository", repoFromEnv.getUrl());
+            ArchiveRepository archiveRepository = archiveRepositories.get(repoFromEnv.getId());
+            assertTrue(archiveRepository.getIndex().contains(new DefaultArtifact("org.example:lib:1.0")));
+            archiveRepository.close();
+        }
+
+        testEnv.put("MVN_SETTINGS_REPO_URL", "missing.zip");
+        List<RepoFromEnv> reposWithMissingArchive = fromEnvSettingsConfigurationProcessor.getReposFromConfiguration(testEnv,
+                projectRootDir.toFile());
+        assertThrows(IllegalArgumentException.class,
+                () -> fromEnvSettingsConfigurationProcessor.openArchiveRepositories(reposWithMissingArchive, projectRootDir.toFile()));
+    }
+
     @Test
     void testAddImplicitFileRepo() {
 
@@ -172,11 +316,42 @@ class FromEnvReposConfigurationProcessorTest {
         File reactorRootDir = new File(classLoader.getResource("mavenRootDirTest/.mvn/repository/dummy.txt").getFile()).getParentFile()
                 .getParentFile().getParentFile();
         List<RepoFromEnv> reposFromEnv = new ArrayList<RepoFromEnv>();
-        fromEnvSettingsConfigurationProcessor.addImplicitFileRepo(reposFromEnv, reactorRootDir);
+        FileRepositoryIndex fileIndex = fromEnvSettingsConfigurationProcessor.addImplicitFileRepo(reposFromEnv, reactorRootDir);
         assertEquals(1, reposFromEnv.size());
         assertEquals(reactorRootDir.toURI() + ".mvn/repository/", reposFromEnv.get(0).getUrl());
+        assertEquals(1, fileIndex.size());
     }
     
+    @Test
+    void testSetBaseLocalRepository() throws IOException {
+        Path baseLocalRepositoryDir = projectRootDir.resolve("base");
+        EnvReposContext context = new EnvReposContext(Collections.emptyList());
+        fromEnvSettingsConfigurationProcessor.setBaseLocalRepository(context, baseLocalRepositoryDir);
+        assertEquals(null, context.getBaseLocalRepositoryIndex());
+
+        Files.createDirectories(baseLocalRepositoryDir.resolve("org/example/lib/1.0"));
+        Files.createFile(baseLocalRepositoryDir.resolve("org/example/lib/1.0/lib-1.0.jar"));
+        fromEnvSettingsConfigurationProcessor.setBaseLocalRepository(context, baseLocalRepositoryDir);
+        assertEquals(baseLocalRepositoryDir, context.getBaseLocalRepositoryDir());
+        assertTrue(context.getBaseLocalRepositoryIndex().contains(new DefaultArtifact("org.example:lib:1.0")));
+    }
+
+    @Test
+    void testOrderByLatency() {
+        RepoFromEnv repo1 = new RepoFromEnv("repo1", "https://domain.org/repo1", null, null);
+        RepoFromEnv repo2 = new RepoFromEnv("repo2", "https://domain.org/repo2", null, null);
+        RepoFromEnv repo3 = new RepoFromEnv("repo3", "https://domain.org/repo3", null, null);
+        RepoFromEnv repo4 = new RepoFromEnv("repo4", "https://domain.org/repo4", null, null);
+        Map<RepoFromEnv, Long> latencies = new LinkedHashMap<>();
+        latencies.put(repo1, RepoLatencyProber.UNREACHABLE);
+        latencies.put(repo2, 120L);
+        latencies.put(repo3, 30L);
+        latencies.put(repo4, 120L);
+
+        assertEquals(Arrays.asList(repo3, repo2, repo4, repo1), fromEnvSettingsConfigurationProcessor.orderByLatency(latencies, false));
+        assertEquals(Arrays.asList(repo3, repo2, repo4), fromEnvSettingsConfigurationProcessor.orderByLatency(latencies, true));
+    }
+
     @Test
     void testOtherSettings() {
 
@@ -190,7 +365,7 @@ class FromEnvReposConfigurationProcessorTest {
 
     @Test
     void testConfigureMavenExecutionNoEnvVars() {
-        fromEnvSettingsConfigurationProcessor.configureMavenExecution(mavenExecutionRequest, Collections.emptyList(), false, false);
+        fromEnvSettingsConfigurationProcessor.configureMavenExecution(mavenExecutionRequest, Collections.emptyList(), false);
         verifyNoInteractions(mavenExecutionRequest);
     }
 
@@ -211,10 +386,12 @@ class FromEnvReposConfigurationProcessorTest {
         mirror2.setMirrorOf("*");
         when(mavenExecutionRequest.getMirrors()).thenReturn(Arrays.asList(mirror1, mirror2));
         
+        RepoFromEnv releasesRepoFromEnv = new RepoFromEnv.Builder(repo2Id, repo2Url, null, null)
+                .setSnapshotsEnabled(false).setUpdatePolicy("never").setChecksumPolicy("fail").build();
         fromEnvSettingsConfigurationProcessor.configureMavenExecution(mavenExecutionRequest, 
                 Arrays.asList(
                         new RepoFromEnv(repoId, repoUrl, repoUser, repoPw),
-                        new RepoFromEnv(repo2Id, repo2Url, null, null)), false, false);
+                        releasesRepoFromEnv), false);
         
         verify(mavenExecutionRequest, times(1)).addServer(serverCaptor.capture());
         
@@ -225,6 +402,9 @@ class FromEnvReposConfigurationProcessorTest {
         Repository repo1 = profile.getRepositories().get(0);
         assertEquals(repoId, repo1.getId());
         assertEquals(repoUrl, repo1.getUrl());
+        assertTrue(repo1.getReleases().isEnabled());
+        assertTrue(repo1.getSnapshots().isEnabled());
+        assertEquals(null, repo1.getReleases().getUpdatePolicy());
         Server server = serverCaptor.getValue();
         assertEquals(repoId, server.getId());
         assertEquals(repoUser, server.getUsername());
@@ -233,10 +413,181 @@ class FromEnvReposConfigurationProcessorTest {
         Repository repo2 = profile.getRepositories().get(1);
         assertEquals(repo2Id, repo2.getId());
         assertEquals(repo2Url, repo2.getUrl());
+        assertTrue(repo2.getReleases().isEnabled());
+        assertFalse(repo2.getSnapshots().isEnabled());
+        assertEquals("never", repo2.getReleases().getUpdatePolicy());
+        assertEquals("fail", repo2.getReleases().getChecksumPolicy());
         
-        assertEquals("test1,!repoId1,!repoId2", mirror1.getMirrorOf());
-        assertEquals("*,!repoId1,!repoId2", mirror2.getMirrorOf());
+        // mirrors are bypassed by BypassingMirrorSelector at resolution time, not by changing the mirror configuration
+        assertEquals("test1", mirror1.getMirrorOf());
+        assertEquals("*", mirror2.getMirrorOf());
+
+    }
+
+    @Test
+    void testGetRemoteRepository() throws Exception {
+        RepoFromEnv releasesRepoFromEnv = new RepoFromEnv.Builder("sysEnvRepoRELEASES", "https://domain.org/releases", null, null)
+                .setSnapshotsEnabled(false).setUpdatePolicy("never").setChecksumPolicy("fail").build();
+
+        RemoteRepository remoteRepository = FromEnvReposConfigurationProcessor.getRemoteRepository(releasesRepoFromEnv);
+        assertEquals("sysEnvRepoRELEASES", remoteRepository.getId());
+        assertEquals("https://domain.org/releases", remoteRepository.getUrl());
+        assertTrue(remoteRepository.getPolicy(false).isEnabled());
+        assertEquals("never", remoteRepository.getPolicy(false).getUpdatePolicy());
+        assertEquals("fail", remoteRepository.getPolicy(false).getChecksumPolicy());
+        assertFalse(remoteRepository.getPolicy(true).isEnabled());
+    }
+
+    @Test
+    void testConfigureMavenExecutionWithScope() {
+        RepoFromEnv dependenciesRepo = new RepoFromEnv.Builder("dependenciesRepo", "https://domain.org/dependencies", null, null)
+                .setScope(RepoFromEnv.Scope.DEPENDENCIES).build();
+        RepoFromEnv pluginsRepo = new RepoFromEnv.Builder("pluginsRepo", "https://domain.org/plugins", null, null)
+                .setScope(RepoFromEnv.Scope.PLUGINS).build();
+        RepoFromEnv bothRepo = new RepoFromEnv("bothRepo", "https://domain.org/both", null, null);
+        fromEnvSettingsConfigurationProcessor.configureMavenExecution(mavenExecutionRequest,
+                Arrays.asList(dependenciesRepo, pluginsRepo, bothRepo), false);
+
+        Profile profile = profiles.get(0);
+        assertEquals(Arrays.asList("dependenciesRepo", "bothRepo"),
+                profile.getRepositories().stream().map(Repository::getId).collect(Collectors.toList()));
+        assertEquals(Arrays.asList("pluginsRepo", "bothRepo"),
+                profile.getPluginRepositories().stream().map(Repository::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void testGetReposFromEnvWithTransportSettings() {
+
+        testEnv.put("MVN_SETTINGS_REPO_URL", "https://repodomain.com/path/to/repo");
+        testEnv.put("MVN_SETTINGS_REPO_CONNECT_TIMEOUT", "5000");
+        testEnv.put("MVN_SETTINGS_REPO_READ_TIMEOUT", "30000");
+        testEnv.put("MVN_SETTINGS_REPO_RETRIES", "2");
+        testEnv.put("MVN_SETTINGS_REPO_MAX_CONNECTIONS", "10");
+
+        List<RepoFromEnv> reposFromEnv = fromEnvSettingsConfigurationProcessor.getReposFromConfiguration(testEnv, PATH_TO_REACTOR_ROOT.toFile());
+        assertEquals(1, reposFromEnv.size());
+        assertEquals(Integer.valueOf(5000), reposFromEnv.get(0).getConnectTimeout());
+        assertEquals(Integer.valueOf(30000), reposFromEnv.get(0).getReadTimeout());
+        assertEquals(Integer.valueOf(2), reposFromEnv.get(0).getRetries());
+        assertEquals(Integer.valueOf(10), reposFromEnv.get(0).getMaxConnections());
+
+        testEnv.put("MVN_SETTINGS_REPO_RETRIES", "-1");
+        assertThrows(IllegalArgumentException.class, () -> {
+            fromEnvSettingsConfigurationProcessor.getReposFromConfiguration(testEnv, PATH_TO_REACTOR_ROOT.toFile());
+        });
+    }
+
+    @Test
+    void testConfigureMavenExecutionWithTransportSettings() {
+
+        Properties userProperties = new Properties();
+        userProperties.setProperty("aether.connector.http.maxConnectionsPerRoute.repoId1", "4");
+        when(mavenExecutionRequest.getUserProperties()).thenReturn(userProperties);
+        when(mavenExecutionRequest.getMirrors()).thenReturn(Collections.emptyList());
+
+        RepoFromEnv repoFromEnv = new RepoFromEnv.Builder("repoId1", "https://domain.org/test", null, null)
+                .setConnectTimeout(5000).setReadTimeout(30000).setRetries(2).setMaxConnections(10).build();
+        fromEnvSettingsConfigurationProcessor.configureMavenExecution(mavenExecutionRequest, Arrays.asList(repoFromEnv), false);
+
+        // server is created even without credentials
+        verify(mavenExecutionRequest, times(1)).addServer(serverCaptor.capture());
+        Server server = serverCaptor.getValue();
+        assertEquals("repoId1", server.getId());
+        assertEquals(null, server.getUsername());
+        Xpp3Dom configuration = (Xpp3Dom) server.getConfiguration();
+        assertEquals("5000", configuration.getChild("connectTimeout").getValue());
+        assertEquals("30000", configuration.getChild("requestTimeout").getValue());
+        Xpp3Dom all = configuration.getChild("httpConfiguration").getChild("all");
+        assertEquals("5000", all.getChild("connectionTimeout").getValue());
+        assertEquals("30000", all.getChild("readTimeout").getValue());
+
+        assertEquals("5000", userProperties.getProperty("aether.connector.connectTimeout.repoId1"));
+        assertEquals("30000", userProperties.getProperty("aether.connector.requestTimeout.repoId1"));
+        assertEquals("2", userProperties.getProperty("aether.connector.http.retryHandler.count.repoId1"));
+        // explicitly given user properties take precedence
+        assertEquals("4", userProperties.getProperty("aether.connector.http.maxConnectionsPerRoute.repoId1"));
+    }
+
+    @Test
+    void testGetReposFromEnvWithAuthentication() {
+
+        testEnv.put("MVN_SETTINGS_REPO_HTTPS_URL", "https://repodomain.com/path/to/repo");
+        testEnv.put("MVN_SETTINGS_REPO_HTTPS_USERNAME", "user");
+        testEnv.put("MVN_SETTINGS_REPO_HTTPS_PASSWORD", "pass");
+        testEnv.put("MVN_SETTINGS_REPO_PLAIN_URL", "http://repodomain.com/path/to/repo");
+        testEnv.put("MVN_SETTINGS_REPO_PLAIN_USERNAME", "user");
+        testEnv.put("MVN_SETTINGS_REPO_PLAIN_PASSWORD", "pass");
+        testEnv.put("MVN_SETTINGS_REPO_OPTOUT_URL", "https://repodomain.com/path/to/repo");
+        testEnv.put("MVN_SETTINGS_REPO_OPTOUT_USERNAME", "user");
+        testEnv.put("MVN_SETTINGS_REPO_OPTOUT_PASSWORD", "pass");
+        testEnv.put("MVN_SETTINGS_REPO_OPTOUT_PREEMPTIVE_AUTH", "false");
+        testEnv.put("MVN_SETTINGS_REPO_TOKEN_URL", "https://repodomain.com/path/to/repo");
+        testEnv.put("MVN_SETTINGS_REPO_TOKEN_TOKEN", "secret");
+
+        List<RepoFromEnv> reposFromEnv = fromEnvSettingsConfigurationProcessor.getReposFromConfiguration(testEnv, PATH_TO_REACTOR_ROOT.toFile());
+        assertEquals(Arrays.asList("sysEnvRepoHTTPS", "sysEnvRepoOPTOUT", "sysEnvRepoPLAIN", "sysEnvRepoTOKEN"),
+                reposFromEnv.stream().map(RepoFromEnv::getId).collect(Collectors.toList()));
+        assertTrue(reposFromEnv.get(0).isPreemptiveAuth());
+        assertEquals("Basic dXNlcjpwYXNz", reposFromEnv.get(0).getAuthorizationHeader());
+        assertFalse(reposFromEnv.get(1).isPreemptiveAuth());
+        // credentials are not sent preemptively over plain http by default
+        assertFalse(reposFromEnv.get(2).isPreemptiveAuth());
+        assertTrue(reposFromEnv.get(3).hasCredentials());
+        assertEquals(null, reposFromEnv.get(3).getUsername());
+        assertEquals("secret", reposFromEnv.get(3).getToken());
+        assertEquals("Bearer secret", reposFromEnv.get(3).getAuthorizationHeader());
+
+        testEnv.put("MVN_SETTINGS_REPO_TOKEN_USERNAME", "user");
+        testEnv.put("MVN_SETTINGS_REPO_TOKEN_PASSWORD", "pass");
+        assertThrows(IllegalArgumentException.class, () -> {
+            fromEnvSettingsConfigurationProcessor.getReposFromConfiguration(testEnv, PATH_TO_REACTOR_ROOT.toFile());
+        });
+    }
+
+    @Test
+    void testConfigureMavenExecutionWithAuthentication() {
+
+        Properties userProperties = new Properties();
+        when(mavenExecutionRequest.getUserProperties()).thenReturn(userProperties);
+        when(mavenExecutionRequest.getMirrors()).thenReturn(Collections.emptyList());
+
+        RepoFromEnv preemptiveRepo = new RepoFromEnv.Builder("repoId1", "https://domain.org/test", "user", "pw")
+                .setPreemptiveAuth(true).build();
+        RepoFromEnv tokenRepo = new RepoFromEnv.Builder("repoId2", "https://domain.org/test2", null, null).setToken("secret").build();
+        fromEnvSettingsConfigurationProcessor.configureMavenExecution(mavenExecutionRequest, Arrays.asList(preemptiveRepo, tokenRepo),
+                false);
+
+        verify(mavenExecutionRequest, times(2)).addServer(serverCaptor.capture());
+        Server preemptiveServer = serverCaptor.getAllValues().get(0);
+        assertEquals("user", preemptiveServer.getUsername());
+        Xpp3Dom all = ((Xpp3Dom) preemptiveServer.getConfiguration()).getChild("httpConfiguration").getChild("all");
+        assertEquals("true", all.getChild("usePreemptive").getValue());
+        assertEquals(null, all.getChild("connectionTimeout"));
+        assertEquals("true", userProperties.getProperty("aether.connector.http.preemptiveAuth.repoId1"));
+
+        Server tokenServer = serverCaptor.getAllValues().get(1);
+        assertEquals(null, tokenServer.getUsername());
+        Xpp3Dom header = ((Xpp3Dom) tokenServer.getConfiguration()).getChild("httpHeaders").getChild("property");
+        assertEquals("Authorization", header.getChild("name").getValue());
+        assertEquals("Bearer secret", header.getChild("value").getValue());
+        assertEquals(null, userProperties.getProperty("aether.connector.http.preemptiveAuth.repoId2"));
+    }
 
+    @Test
+    void testGetConfigurationProperties() {
+        testEnv.put("MVN_SETTINGS_REPO_URL", "https://domain.org/env");
+        testEnv.put("MVN_SETTINGS_REPO_LOG_VERBOSE", "true");
+        testEnv.put("PATH", "/usr/bin");
+        Properties systemProperties = new Properties();
+        systemProperties.setProperty("MVN_SETTINGS_REPO_URL", "https://domain.org/sysprop");
+        systemProperties.setProperty("user.home", "/home/user");
+
+        Map<String, String> configurationProperties = FromEnvReposConfigurationProcessor.getConfigurationProperties(testEnv,
+                systemProperties);
+        assertEquals(2, configurationProperties.size());
+        assertEquals("https://domain.org/sysprop", configurationProperties.get("MVN_SETTINGS_REPO_URL"));
+        assertEquals("true", configurationProperties.get("MVN_SETTINGS_REPO_LOG_VERBOSE"));
+        assertThrows(UnsupportedOperationException.class, () -> configurationProperties.put("MVN_SETTINGS_REPO_URL", "other"));
     }
 
     @Test
@@ -244,13 +595,18 @@ class FromEnvReposConfigurationProcessorTest {
         CliRequest request = Mockito.mock(CliRequest.class);
         when(request.getRequest()).thenReturn(mavenExecutionRequest);
         when(request.getMultiModuleProjectDirectory()).thenReturn(projectRootDir.toFile());
+        Properties cliUserProperties = new Properties();
+        when(request.getUserProperties()).thenReturn(cliUserProperties);
+        Properties userProperties = new Properties();
+        when(mavenExecutionRequest.getUserProperties()).thenReturn(userProperties);
         
         // configuration set up
         String testUrl = "file://${maven.multiModuleProjectDirectory}.mvn/repository";
         System.setProperty("MVN_SETTINGS_REPO_SPECIAL1_URL", testUrl);
         System.setProperty("MVN_SETTINGS_REPO_SPECIAL1_USERNAME", "user");
         System.setProperty("MVN_SETTINGS_REPO_SPECIAL1_PASSWORD", "password");
-        
+        System.setProperty("MVN_SETTINGS_REPO_SPECIAL1_RETRIES", "5");
+        System.setProperty("MVN_SETTINGS_REPO_SPECIAL1_PREEMPTIVE_AUTH", "true");
         fromEnvSettingsConfigurationProcessor.process(request);
         assertEquals(1, profiles.size());
         Profile profile = profiles.get(0);
@@ -259,5 +615,21 @@ class FromEnvReposConfigurationProcessorTest {
         Repository repo1 = profile.getRepositories().get(0);
         assertEquals("sysEnvRepoSPECIAL1", repo1.getId());
         assertEquals(projectRootDir.toUri() + ".mvn/repository", repo1.getUrl());
+
+        EnvReposContext context = contextRegistry.get(mavenExecutionRequest);
+        assertEquals(Collections.singleton("sysEnvRepoSPECIAL1"), context.getReposById().keySet());
+        assertTrue(context.isBypassMirrors());
+
+        // MavenCli replaces the user properties of the request with the ones of the CLI request afterwards
+        verify(mavenExecutionRequest).setUserProperties(cliUserProperties);
+        assertEquals("5", cliUserProperties.getProperty("aether.connector.http.retryHandler.count.sysEnvRepoSPECIAL1"));
+        assertEquals("true", cliUserProperties.getProperty("aether.connector.http.preemptiveAuth.sysEnvRepoSPECIAL1"));
+
+        // the parsed (immutable) repositories are reused, but each build gets its own context
+        fromEnvSettingsConfigurationProcessor.process(request);
+        assertEquals(1, configurationCache.size());
+        EnvReposContext secondContext = contextRegistry.get(mavenExecutionRequest);
+        assertNotSame(context, secondContext);
+        assertSame(context.getRepo("sysEnvRepoSPECIAL1"), secondContext.getRepo("sysEnvRepoSPECIAL1"));
     }
 }
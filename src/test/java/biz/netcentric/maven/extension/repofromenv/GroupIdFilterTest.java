@@ -0,0 +1,54 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class GroupIdFilterTest {
+
+    @Test
+    void testNoPatterns() {
+        assertSame(GroupIdFilter.ACCEPT_ALL, GroupIdFilter.parse(null, null));
+        assertSame(GroupIdFilter.ACCEPT_ALL, GroupIdFilter.parse(" , ", ""));
+        assertTrue(GroupIdFilter.ACCEPT_ALL.accepts("org.apache.maven"));
+    }
+
+    @Test
+    void testIncludes() {
+        GroupIdFilter filter = GroupIdFilter.parse("com.vendor,org.*.plugins", null);
+        assertTrue(filter.accepts("com.vendor"));
+        assertTrue(filter.accepts("com.vendor.lib"));
+        assertFalse(filter.accepts("com.vendorlib"));
+        assertFalse(filter.accepts("com"));
+        assertTrue(filter.accepts("org.apache.plugins"));
+        assertFalse(filter.accepts("org.apache.maven"));
+        // repository level metadata has no groupId
+        assertTrue(filter.accepts(""));
+    }
+
+    @Test
+    void testExcludes() {
+        GroupIdFilter filter = GroupIdFilter.parse(null, "org.apache");
+        assertFalse(filter.accepts("org.apache"));
+        assertFalse(filter.accepts("org.apache.maven"));
+        assertTrue(filter.accepts("org.apachex"));
+        assertTrue(filter.accepts("com.vendor"));
+    }
+
+    @Test
+    void testExcludesTakePrecedence() {
+        GroupIdFilter filter = GroupIdFilter.parse("com.vendor", "com.vendor.internal");
+        assertTrue(filter.accepts("com.vendor.lib"));
+        assertFalse(filter.accepts("com.vendor.internal.lib"));
+    }
+}
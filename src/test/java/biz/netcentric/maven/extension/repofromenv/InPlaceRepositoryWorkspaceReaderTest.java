@@ -0,0 +1,73 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.repository.WorkspaceReader;
+import org.eclipse.aether.repository.WorkspaceRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class InPlaceRepositoryWorkspaceReaderTest {
+
+    @TempDir
+    Path repositoryDir;
+
+    @Test
+    void testFindArtifact() throws IOException {
+        createFile("com/vendor/lib/1.0/lib-1.0.jar");
+        InPlaceRepositoryWorkspaceReader reader = new InPlaceRepositoryWorkspaceReader(null, repositoryDir,
+                FileRepositoryIndex.build(repositoryDir));
+
+        assertEquals(repositoryDir.resolve("com/vendor/lib/1.0/lib-1.0.jar").toFile(),
+                reader.findArtifact(new DefaultArtifact("com.vendor:lib:1.0")));
+        assertNull(reader.findArtifact(new DefaultArtifact("com.vendor:lib:pom:1.0")));
+        assertNull(reader.findArtifact(new DefaultArtifact("com.vendor:lib:1.1")));
+        assertEquals(1, reader.getHits());
+    }
+
+    @Test
+    void testDelegateTakesPrecedence() throws IOException {
+        createFile("com/vendor/lib/1.0/lib-1.0.jar");
+        createFile("com/vendor/lib/1.1/lib-1.1.jar");
+        createFile("com/vendor/lib/2.0/lib-2.0.pom");
+        File reactorFile = new File("target/classes");
+        WorkspaceReader delegate = mock(WorkspaceReader.class);
+        when(delegate.getRepository()).thenReturn(new WorkspaceRepository("reactor"));
+        when(delegate.findArtifact(any())).thenAnswer(
+                invocation -> "1.1".equals(invocation.<DefaultArtifact> getArgument(0).getVersion()) ? reactorFile : null);
+        when(delegate.findVersions(any())).thenReturn(Collections.singletonList("1.1"));
+        InPlaceRepositoryWorkspaceReader reader = new InPlaceRepositoryWorkspaceReader(delegate, repositoryDir,
+                FileRepositoryIndex.build(repositoryDir));
+
+        assertEquals(reactorFile, reader.findArtifact(new DefaultArtifact("com.vendor:lib:1.1")));
+        assertEquals(0, reader.getHits());
+        // version 2.0 has no jar
+        assertEquals(Arrays.asList("1.1", "1.0"), reader.findVersions(new DefaultArtifact("com.vendor:lib:1.1")));
+    }
+
+    private void createFile(String path) throws IOException {
+        Path file = repositoryDir.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.createFile(file);
+    }
+}
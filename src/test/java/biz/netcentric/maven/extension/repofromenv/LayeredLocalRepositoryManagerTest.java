@@ -0,0 +1,83 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.repository.LocalArtifactRequest;
+import org.eclipse.aether.repository.LocalArtifactResult;
+import org.eclipse.aether.repository.LocalRepositoryManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+class LayeredLocalRepositoryManagerTest {
+
+    private final LocalRepositoryManager delegate = Mockito.mock(LocalRepositoryManager.class);
+    private final RepositorySystemSession session = Mockito.mock(RepositorySystemSession.class);
+
+    @TempDir
+    Path baseRepositoryDir;
+
+    @Test
+    void testFind() throws IOException {
+        DefaultArtifact baseArtifact = new DefaultArtifact("org.example:base:1.0");
+        DefaultArtifact baseSnapshotArtifact = new DefaultArtifact("org.example:base:1.1-SNAPSHOT");
+        DefaultArtifact localArtifact = new DefaultArtifact("org.example:local:1.0");
+        DefaultArtifact missingArtifact = new DefaultArtifact("org.example:missing:1.0");
+        createFile(baseArtifact);
+        createFile(baseSnapshotArtifact);
+        createFile(localArtifact);
+        when(delegate.find(any(), any(LocalArtifactRequest.class))).thenAnswer(invocation -> {
+            LocalArtifactRequest request = invocation.getArgument(1);
+            return new LocalArtifactResult(request).setAvailable(request.getArtifact().getArtifactId().equals("local"));
+        });
+
+        LayeredLocalRepositoryManager layeredLocalRepositoryManager = new LayeredLocalRepositoryManager(delegate, baseRepositoryDir,
+                FileRepositoryIndex.build(baseRepositoryDir));
+
+        LocalArtifactResult baseResult = find(layeredLocalRepositoryManager, baseArtifact);
+        assertTrue(baseResult.isAvailable());
+        assertEquals(baseRepositoryDir.resolve("org/example/base/1.0/base-1.0.jar").toFile(), baseResult.getFile());
+
+        LocalArtifactRequest localRequest = new LocalArtifactRequest(localArtifact, Collections.emptyList(), null);
+        LocalArtifactResult localResult = layeredLocalRepositoryManager.find(session, localRequest);
+        assertTrue(localResult.isAvailable());
+        assertSame(localRequest, localResult.getRequest());
+        assertEquals(null, localResult.getFile());
+
+        assertFalse(find(layeredLocalRepositoryManager, baseSnapshotArtifact).isAvailable());
+        assertFalse(find(layeredLocalRepositoryManager, missingArtifact).isAvailable());
+        assertEquals(1, layeredLocalRepositoryManager.getBaseHits());
+    }
+
+    private LocalArtifactResult find(LocalRepositoryManager localRepositoryManager, Artifact artifact) {
+        return localRepositoryManager.find(session, new LocalArtifactRequest(artifact, Collections.emptyList(), null));
+    }
+
+    private void createFile(Artifact artifact) throws IOException {
+        File file = baseRepositoryDir.resolve(FileRepositoryIndex.getPath(artifact)).toFile();
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.createFile(file.toPath());
+    }
+}
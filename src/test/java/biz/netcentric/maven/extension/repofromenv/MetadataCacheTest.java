@@ -0,0 +1,64 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class MetadataCacheTest {
+
+    private final AtomicLong nanoTime = new AtomicLong();
+    private final MetadataCache metadataCache = new MetadataCache(1000, nanoTime::get);
+
+    @Test
+    void testReserveAndComplete() {
+        assertNull(metadataCache.reserve("key"));
+        CompletableFuture<MetadataCache.Entry> concurrentFetch = metadataCache.reserve("key");
+        assertNotNull(concurrentFetch);
+        assertFalse(concurrentFetch.isDone());
+
+        metadataCache.complete("key", metadataCache.newEntry(new byte[] { 1 }));
+        assertArrayEquals(new byte[] { 1 }, concurrentFetch.join().getContent());
+        assertArrayEquals(new byte[] { 1 }, metadataCache.reserve("key").join().getContent());
+        assertEquals(1, metadataCache.getFetches());
+        assertEquals(1, metadataCache.getCoalesced());
+        assertEquals(1, metadataCache.getHits());
+
+        // expired
+        nanoTime.set(1000);
+        assertNull(metadataCache.reserve("key"));
+        assertEquals(2, metadataCache.getFetches());
+    }
+
+    @Test
+    void testFailedFetchIsNotCached() {
+        assertNull(metadataCache.reserve("key"));
+        CompletableFuture<MetadataCache.Entry> concurrentFetch = metadataCache.reserve("key");
+        metadataCache.complete("key", null);
+        assertTrue(concurrentFetch.isDone());
+        assertNull(concurrentFetch.join());
+        assertNull(metadataCache.reserve("key"));
+    }
+
+    @Test
+    void testNotFoundIsCached() {
+        assertNull(metadataCache.reserve("key"));
+        metadataCache.complete("key", metadataCache.newEntry(null));
+        assertNull(metadataCache.reserve("key").join().getContent());
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.metadata.DefaultMetadata;
+import org.eclipse.aether.metadata.Metadata;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.repository.RepositoryPolicy;
+import org.eclipse.aether.spi.connector.MetadataDownload;
+import org.eclipse.aether.spi.connector.RepositoryConnector;
+import org.eclipse.aether.transfer.MetadataNotFoundException;
+import org.eclipse.aether.transfer.MetadataTransferException;
+import org.eclipse.aether.transfer.TransferEvent;
+import org.eclipse.aether.transfer.TransferListener;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+class MetadataCachingRepositoryConnectorTest {
+
+    private static final byte[] CONTENT = "<metadata/>".getBytes();
+
+    private final RepositoryConnector delegate = Mockito.mock(RepositoryConnector.class);
+    private final RemoteRepository repository = new RemoteRepository.Builder("sysEnvRepo", "default", "https://domain.org/repo").build();
+    private final RepositorySystemSession session = Mockito.mock(RepositorySystemSession.class);
+    private final MetadataCache metadataCache = new MetadataCache(TimeUnit.MINUTES.toNanos(5));
+
+    @TempDir
+    Path localRepositoryDir;
+
+    @Test
+    void testConcurrentDownloadsAreCoalesced() throws Exception {
+        CountDownLatch fetchStarted = new CountDownLatch(1);
+        CountDownLatch fetchMayFinish = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            Collection<MetadataDownload> downloads = invocation.getArgument(1);
+            fetchStarted.countDown();
+            fetchMayFinish.await();
+            for (MetadataDownload download : downloads) {
+                Files.write(download.getFile().toPath(), CONTENT);
+            }
+            return null;
+        }).when(delegate).get(any(), any());
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            MetadataDownload firstDownload = download("first.xml");
+            Future<?> first = executor.submit(() -> newConnector().get(null, Collections.singletonList(firstDownload)));
+            fetchStarted.await();
+            MetadataDownload secondDownload = download("second.xml");
+            Future<?> second = executor.submit(() -> newConnector().get(null, Collections.singletonList(secondDownload)));
+            // wait until the second download waits for the first one
+            while (metadataCache.getCoalesced() == 0) {
+                Thread.sleep(1);
+            }
+            fetchMayFinish.countDown();
+            first.get(10, TimeUnit.SECONDS);
+            second.get(10, TimeUnit.SECONDS);
+
+            assertArrayEquals(CONTENT, Files.readAllBytes(secondDownload.getFile().toPath()));
+            assertNull(secondDownload.getException());
+        } finally {
+            executor.shutdownNow();
+        }
+        // the second connector only passed on an empty list
+        verify(delegate, times(2)).get(any(), any());
+        assertEquals(1, metadataCache.getFetches());
+
+        // later downloads are served from the cache
+        MetadataDownload laterDownload = download("later.xml");
+        newConnector().get(null, Collections.singletonList(laterDownload));
+        assertArrayEquals(CONTENT, Files.readAllBytes(laterDownload.getFile().toPath()));
+        assertEquals(1, metadataCache.getHits());
+    }
+
+    @Test
+    void testNotFoundAndFailures() throws IOException {
+        doAnswer(invocation -> {
+            Collection<MetadataDownload> downloads = invocation.getArgument(1);
+            downloads.forEach(download -> download.setException(new MetadataNotFoundException(download.getMetadata(), repository)));
+            return null;
+        }).when(delegate).get(any(), any());
+        newConnector().get(null, Collections.singletonList(download("first.xml")));
+        MetadataDownload cachedNotFound = download("second.xml");
+        newConnector().get(null, Collections.singletonList(cachedNotFound));
+        assertEquals(MetadataNotFoundException.class, cachedNotFound.getException().getClass());
+        verify(delegate, times(2)).get(any(), any());
+
+        doAnswer(invocation -> {
+            Collection<MetadataDownload> downloads = invocation.getArgument(1);
+            downloads.forEach(download -> download.setException(
+                    new MetadataTransferException(download.getMetadata(), repository, "Connection reset")));
+            return null;
+        }).when(delegate).get(any(), any());
+        MetadataDownload otherMetadata = download("other.xml", "org.example.other");
+        newConnector().get(null, Collections.singletonList(otherMetadata));
+        newConnector().get(null, Collections.singletonList(download("other2.xml", "org.example.other")));
+        // failures are not cached, the second download is passed on again
+        assertEquals(3, metadataCache.getFetches());
+    }
+
+    @Test
+    void testCachedDownloadsFireTransferEvents() throws Exception {
+        doAnswer(invocation -> {
+            Collection<MetadataDownload> downloads = invocation.getArgument(1);
+            for (MetadataDownload download : downloads) {
+                if (download.getMetadata().getGroupId().equals("org.example")) {
+                    Files.write(download.getFile().toPath(), CONTENT);
+                } else {
+                    download.setException(new MetadataNotFoundException(download.getMetadata(), repository));
+                }
+            }
+            return null;
+        }).when(delegate).get(any(), any());
+        newConnector().get(null, Arrays.asList(download("first.xml"), download("first-missing.xml", "org.example.missing")));
+
+        TransferListener listener = Mockito.mock(TransferListener.class);
+        MetadataDownload cachedDownload = download("second.xml");
+        cachedDownload.setListener(listener);
+        MetadataDownload cachedNotFound = download("second-missing.xml", "org.example.missing");
+        cachedNotFound.setListener(listener);
+        newConnector().get(null, Arrays.asList(cachedDownload, cachedNotFound));
+
+        assertArrayEquals(CONTENT, Files.readAllBytes(cachedDownload.getFile().toPath()));
+        // written via a temp file which is not left behind
+        try (Stream<Path> files = Files.list(localRepositoryDir)) {
+            assertEquals(Arrays.asList("first.xml", "second.xml"),
+                    files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList()));
+        }
+        assertEquals(2, metadataCache.getHits());
+        verify(listener, times(2)).transferInitiated(any());
+        verify(listener).transferStarted(any());
+        ArgumentCaptor<TransferEvent> succeeded = ArgumentCaptor.forClass(TransferEvent.class);
+        verify(listener).transferSucceeded(succeeded.capture());
+        assertEquals(CONTENT.length, succeeded.getValue().getTransferredBytes());
+        assertEquals(cachedDownload.getFile(), succeeded.getValue().getResource().getFile());
+        ArgumentCaptor<TransferEvent> failed = ArgumentCaptor.forClass(TransferEvent.class);
+        verify(listener).transferFailed(failed.capture());
+        assertEquals(MetadataNotFoundException.class, failed.getValue().getException().getClass());
+    }
+
+    @Test
+    void testChecksumPolicyAndUpdatePolicyAlways() {
+        doAnswer(invocation -> {
+            Collection<MetadataDownload> downloads = invocation.getArgument(1);
+            downloads.forEach(download -> download.setException(new MetadataNotFoundException(download.getMetadata(), repository)));
+            return null;
+        }).when(delegate).get(any(), any());
+        MetadataDownload ignoreDownload = download("ignore.xml");
+        ignoreDownload.setChecksumPolicy("ignore");
+        newConnector().get(null, Collections.singletonList(ignoreDownload));
+        // a stricter checksum policy is not served by the cached fetch
+        newConnector().get(null, Collections.singletonList(download("warn.xml")));
+        assertEquals(2, metadataCache.getFetches());
+        assertEquals(0, metadataCache.getHits());
+
+        // -U bypasses the cache, the not found is not reused
+        Mockito.when(session.getUpdatePolicy()).thenReturn(RepositoryPolicy.UPDATE_POLICY_ALWAYS);
+        MetadataDownload updatedDownload = download("updated.xml");
+        newConnector().get(null, Collections.singletonList(updatedDownload));
+        verify(delegate).get(null, Collections.singletonList(updatedDownload));
+        assertEquals(0, metadataCache.getHits());
+        assertEquals(2, metadataCache.getFetches());
+    }
+
+    private MetadataCachingRepositoryConnector newConnector() {
+        return new MetadataCachingRepositoryConnector(delegate, repository, session, metadataCache);
+    }
+
+    private MetadataDownload download(String fileName) {
+        return download(fileName, "org.example");
+    }
+
+    private MetadataDownload download(String fileName, String groupId) {
+        return new MetadataDownload(new DefaultMetadata(groupId, "lib", "1.0-SNAPSHOT", "maven-metadata.xml", Metadata.Nature.SNAPSHOT),
+                "", localRepositoryDir.resolve(fileName).toFile(), "warn");
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.metadata.DefaultMetadata;
+import org.eclipse.aether.metadata.Metadata;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.spi.connector.ArtifactDownload;
+import org.eclipse.aether.spi.connector.MetadataDownload;
+import org.eclipse.aether.spi.connector.RepositoryConnector;
+import org.eclipse.aether.transfer.ArtifactNotFoundException;
+import org.eclipse.aether.transfer.ArtifactTransferException;
+import org.eclipse.aether.transfer.TransferEvent;
+import org.eclipse.aether.transfer.TransferListener;
+import org.eclipse.aether.transfer.TransferResource;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+class MetricsRepositoryConnectorTest {
+
+    private final RepositoryConnector delegate = Mockito.mock(RepositoryConnector.class);
+    private final RemoteRepository repository = new RemoteRepository.Builder("sysEnvRepo", "default", "https://domain.org/repo").build();
+
+    @Test
+    void testGet() throws Exception {
+        RepositoryMetrics.RepositoryStats stats = new RepositoryMetrics().getStats(repository, true);
+        MetricsRepositoryConnector connector = new MetricsRepositoryConnector(delegate, repository, stats);
+        TransferListener originalListener = Mockito.mock(TransferListener.class);
+
+        ArtifactDownload found = new ArtifactDownload(new DefaultArtifact("org.example:found:1.0"), "", new File("found.jar"), "warn");
+        found.setListener(originalListener);
+        ArtifactDownload missing = new ArtifactDownload(new DefaultArtifact("org.example:missing:1.0"), "", new File("missing.jar"), "warn");
+        ArtifactDownload broken = new ArtifactDownload(new DefaultArtifact("org.example:broken:1.0"), "", new File("broken.jar"), "warn");
+        MetadataDownload metadata = new MetadataDownload(
+                new DefaultMetadata("org.example", "maven-metadata.xml", Metadata.Nature.RELEASE), "", new File("metadata.xml"), "warn");
+
+        // the delegate acts as stand-in for the basic connector
+        RepositorySystemSession session = Mockito.mock(RepositorySystemSession.class);
+        doAnswer(invocation -> {
+            Collection<ArtifactDownload> artifactDownloads = invocation.getArgument(0);
+            for (ArtifactDownload download : artifactDownloads) {
+                TransferEvent.Builder event = new TransferEvent.Builder(session,
+                        new TransferResource(repository.getUrl(), download.getArtifact().getArtifactId(), download.getFile(), null));
+                download.getListener().transferInitiated(event.resetType(TransferEvent.EventType.INITIATED).build());
+                if (download == found) {
+                    download.getListener().transferSucceeded(
+                            event.resetType(TransferEvent.EventType.SUCCEEDED).setTransferredBytes(2048).build());
+                } else if (download == missing) {
+                    download.setException(new ArtifactNotFoundException(download.getArtifact(), repository));
+                    download.getListener().transferFailed(event.resetType(TransferEvent.EventType.FAILED).build());
+                } else {
+                    download.setException(new ArtifactTransferException(download.getArtifact(), repository, "Connection reset"));
+                    download.getListener().transferFailed(event.resetType(TransferEvent.EventType.FAILED).build());
+                }
+            }
+            Collection<MetadataDownload> metadataDownloads = invocation.getArgument(1);
+            for (MetadataDownload download : metadataDownloads) {
+                TransferEvent.Builder event = new TransferEvent.Builder(session,
+                        new TransferResource(repository.getUrl(), "maven-metadata.xml", download.getFile(), null));
+                download.getListener().transferInitiated(event.resetType(TransferEvent.EventType.INITIATED).build());
+                download.getListener().transferSucceeded(event.resetType(TransferEvent.EventType.SUCCEEDED).setTransferredBytes(300).build());
+            }
+            return null;
+        }).when(delegate).get(any(), any());
+
+        connector.get(Arrays.asList(found, missing, broken), Collections.singletonList(metadata));
+
+        verify(delegate).get(Arrays.asList(found, missing, broken), Collections.singletonList(metadata));
+        // events are forwarded and the original listeners are restored
+        verify(originalListener).transferInitiated(any());
+        verify(originalListener).transferSucceeded(any());
+        assertSame(originalListener, found.getListener());
+        assertNull(missing.getListener());
+
+        assertEquals(3, stats.getArtifacts().getRequests());
+        assertEquals(1, stats.getArtifacts().getHits());
+        assertEquals(1, stats.getArtifacts().getNotFound());
+        assertEquals(1, stats.getArtifacts().getErrors());
+        assertEquals(2048, stats.getArtifacts().getBytes());
+        assertEquals(1, stats.getMetadata().getRequests());
+        assertEquals(1, stats.getMetadata().getHits());
+        assertEquals(300, stats.getMetadata().getBytes());
+    }
+}
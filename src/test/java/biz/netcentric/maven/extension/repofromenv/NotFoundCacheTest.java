@@ -0,0 +1,143 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.repository.RepositoryPolicy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class NotFoundCacheTest {
+
+    private final RemoteRepository repository = new RemoteRepository.Builder("sysEnvRepo", "default", "https://domain.org/repo").build();
+    private final RemoteRepository otherUrlRepository = new RemoteRepository.Builder("sysEnvRepo", "default", "https://domain.org/other")
+            .build();
+    private final Artifact artifact1 = new DefaultArtifact("org.example:lib1:1.0");
+    private final Artifact artifact2 = new DefaultArtifact("org.example:lib2:1.0");
+    private final Artifact artifact3 = new DefaultArtifact("org.example:lib3:1.0");
+
+    @TempDir
+    Path cacheDir;
+
+    @Test
+    void testRecordSaveLoad() throws IOException {
+        NotFoundCache cache = new NotFoundCache(cacheDir, TimeUnit.HOURS.toMillis(1), 100);
+        cache.load();
+        assertFalse(cache.isNotFound(repository, artifact1));
+
+        cache.recordNotFound(repository, artifact1);
+        assertTrue(cache.isNotFound(repository, artifact1));
+        assertFalse(cache.isNotFound(otherUrlRepository, artifact1));
+        assertFalse(cache.isNotFound(repository, artifact2));
+        cache.save();
+
+        NotFoundCache reloadedCache = new NotFoundCache(cacheDir, TimeUnit.HOURS.toMillis(1), 100);
+        reloadedCache.load();
+        assertEquals(1, reloadedCache.size());
+        assertTrue(reloadedCache.isNotFound(repository, artifact1));
+    }
+
+    @Test
+    void testConcurrentBuildsAreMerged() throws IOException {
+        NotFoundCache cacheBuild1 = new NotFoundCache(cacheDir, TimeUnit.HOURS.toMillis(1), 100);
+        cacheBuild1.load();
+        NotFoundCache cacheBuild2 = new NotFoundCache(cacheDir, TimeUnit.HOURS.toMillis(1), 100);
+        cacheBuild2.load();
+
+        cacheBuild1.recordNotFound(repository, artifact1);
+        cacheBuild2.recordNotFound(repository, artifact2);
+        cacheBuild1.save();
+        cacheBuild2.save();
+
+        NotFoundCache reloadedCache = new NotFoundCache(cacheDir, TimeUnit.HOURS.toMillis(1), 100);
+        reloadedCache.load();
+        assertTrue(reloadedCache.isNotFound(repository, artifact1));
+        assertTrue(reloadedCache.isNotFound(repository, artifact2));
+    }
+
+    @Test
+    void testExpiry() throws IOException {
+        long now = System.currentTimeMillis();
+        long twoHoursAgo = now - TimeUnit.HOURS.toMillis(2);
+        Files.write(cacheDir.resolve(NotFoundCache.CACHE_FILE_NAME),
+                (twoHoursAgo + " " + now + " " + NotFoundCache.getKey(repository, artifact1) + "\n"
+                        + now + " " + now + " " + NotFoundCache.getKey(repository, artifact2) + "\n"
+                        + "corrupt line\n").getBytes());
+
+        NotFoundCache cache = new NotFoundCache(cacheDir, TimeUnit.HOURS.toMillis(1), 100);
+        cache.load();
+        assertEquals(1, cache.size());
+        assertFalse(cache.isNotFound(repository, artifact1));
+        assertTrue(cache.isNotFound(repository, artifact2));
+    }
+
+    @Test
+    void testLruEviction() throws IOException {
+        NotFoundCache cache = new NotFoundCache(cacheDir, TimeUnit.HOURS.toMillis(1), 2);
+        cache.load();
+        cache.recordNotFound(repository, artifact1);
+        cache.recordNotFound(repository, artifact2);
+        // access artifact1 to make artifact2 the least recently used entry
+        assertTrue(cache.isNotFound(repository, artifact1));
+        cache.recordNotFound(repository, artifact3);
+
+        assertEquals(2, cache.size());
+        assertTrue(cache.isNotFound(repository, artifact1));
+        assertFalse(cache.isNotFound(repository, artifact2));
+        assertTrue(cache.isNotFound(repository, artifact3));
+    }
+
+    @Test
+    void testRemovalIsMerged() throws IOException {
+        NotFoundCache cacheBuild1 = new NotFoundCache(cacheDir, TimeUnit.HOURS.toMillis(1), 100);
+        cacheBuild1.recordNotFound(repository, artifact1);
+        cacheBuild1.recordNotFound(repository, artifact2);
+        cacheBuild1.save();
+
+        NotFoundCache cacheBuild2 = new NotFoundCache(cacheDir, TimeUnit.HOURS.toMillis(1), 100);
+        cacheBuild2.load();
+        cacheBuild2.removeNotFound(repository, artifact1);
+        cacheBuild2.save();
+
+        NotFoundCache reloadedCache = new NotFoundCache(cacheDir, TimeUnit.HOURS.toMillis(1), 100);
+        reloadedCache.load();
+        assertFalse(reloadedCache.isNotFound(repository, artifact1));
+        assertTrue(reloadedCache.isNotFound(repository, artifact2));
+    }
+
+    @Test
+    void testUpdatePolicy() {
+        long now = System.currentTimeMillis();
+        long tenMinutesAgo = now - TimeUnit.MINUTES.toMillis(10);
+        assertFalse(NotFoundCache.isUpdateRequired(tenMinutesAgo, RepositoryPolicy.UPDATE_POLICY_NEVER, now));
+        assertTrue(NotFoundCache.isUpdateRequired(tenMinutesAgo, RepositoryPolicy.UPDATE_POLICY_ALWAYS, now));
+        assertTrue(NotFoundCache.isUpdateRequired(tenMinutesAgo, RepositoryPolicy.UPDATE_POLICY_INTERVAL + ":5", now));
+        assertFalse(NotFoundCache.isUpdateRequired(tenMinutesAgo, RepositoryPolicy.UPDATE_POLICY_INTERVAL + ":15", now));
+
+        Calendar midnight = Calendar.getInstance();
+        midnight.set(Calendar.HOUR_OF_DAY, 0);
+        midnight.set(Calendar.MINUTE, 0);
+        midnight.set(Calendar.SECOND, 0);
+        midnight.set(Calendar.MILLISECOND, 0);
+        assertTrue(NotFoundCache.isUpdateRequired(midnight.getTimeInMillis() - 1, RepositoryPolicy.UPDATE_POLICY_DAILY, now));
+        assertFalse(NotFoundCache.isUpdateRequired(midnight.getTimeInMillis(), RepositoryPolicy.UPDATE_POLICY_DAILY, now));
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.repository.RepositoryPolicy;
+import org.eclipse.aether.spi.connector.ArtifactDownload;
+import org.eclipse.aether.spi.connector.RepositoryConnector;
+import org.eclipse.aether.transfer.ArtifactNotFoundException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+class NotFoundCachingRepositoryConnectorTest {
+
+    private final RepositoryConnector delegate = Mockito.mock(RepositoryConnector.class);
+    private final RepositorySystemSession session = Mockito.mock(RepositorySystemSession.class);
+    private final RemoteRepository repository = new RemoteRepository.Builder("sysEnvRepo", "default", "https://domain.org/repo")
+            .setReleasePolicy(new RepositoryPolicy(true, RepositoryPolicy.UPDATE_POLICY_NEVER, RepositoryPolicy.CHECKSUM_POLICY_WARN))
+            .build();
+
+    @TempDir
+    Path cacheDir;
+
+    @Test
+    void testGet() throws IOException {
+        NotFoundCache notFoundCache = new NotFoundCache(cacheDir, TimeUnit.HOURS.toMillis(1), 100);
+        DefaultArtifact knownMissing = new DefaultArtifact("org.example:known-missing:1.0");
+        notFoundCache.recordNotFound(repository, knownMissing);
+        NotFoundCachingRepositoryConnector connector = new NotFoundCachingRepositoryConnector(delegate, repository, session,
+                notFoundCache);
+
+        ArtifactDownload knownMissingDownload = new ArtifactDownload(knownMissing, "", new File("a.jar"), "warn");
+        ArtifactDownload missingDownload = new ArtifactDownload(new DefaultArtifact("org.example:missing:1.0"), "", new File("b.jar"), "warn");
+        ArtifactDownload missingSnapshotDownload = new ArtifactDownload(new DefaultArtifact("org.example:missing:1.0-SNAPSHOT"), "",
+                new File("c.jar"), "warn");
+        ArtifactDownload foundDownload = new ArtifactDownload(new DefaultArtifact("org.example:found:1.0"), "", new File("d.jar"), "warn");
+        doAnswer(invocation -> {
+            Collection<ArtifactDownload> downloads = invocation.getArgument(0);
+            downloads.stream().filter(download -> download.getArtifact().getArtifactId().equals("missing"))
+                    .forEach(download -> download.setException(new ArtifactNotFoundException(download.getArtifact(), repository)));
+            return null;
+        }).when(delegate).get(any(), any());
+
+        connector.get(Arrays.asList(knownMissingDownload, missingDownload, missingSnapshotDownload, foundDownload), null);
+
+        verify(delegate).get(Arrays.asList(missingDownload, missingSnapshotDownload, foundDownload), null);
+        assertTrue(knownMissingDownload.getException() instanceof ArtifactNotFoundException);
+        assertNull(foundDownload.getException());
+        assertTrue(notFoundCache.isNotFound(repository, missingDownload.getArtifact()));
+        assertFalse(notFoundCache.isNotFound(repository, missingSnapshotDownload.getArtifact()));
+        assertFalse(notFoundCache.isNotFound(repository, foundDownload.getArtifact()));
+    }
+
+    @Test
+    void testUpdatePolicyAlwaysRefreshesEntries() throws IOException {
+        NotFoundCache notFoundCache = new NotFoundCache(cacheDir, TimeUnit.HOURS.toMillis(1), 100);
+        DefaultArtifact knownMissing = new DefaultArtifact("org.example:known-missing:1.0");
+        DefaultArtifact stillMissing = new DefaultArtifact("org.example:still-missing:1.0");
+        notFoundCache.recordNotFound(repository, knownMissing);
+        notFoundCache.recordNotFound(repository, stillMissing);
+        // -U
+        when(session.getUpdatePolicy()).thenReturn(RepositoryPolicy.UPDATE_POLICY_ALWAYS);
+        NotFoundCachingRepositoryConnector connector = new NotFoundCachingRepositoryConnector(delegate, repository, session,
+                notFoundCache);
+
+        ArtifactDownload nowAvailableDownload = new ArtifactDownload(knownMissing, "", new File("a.jar"), "warn");
+        ArtifactDownload stillMissingDownload = new ArtifactDownload(stillMissing, "", new File("b.jar"), "warn");
+        doAnswer(invocation -> {
+            Collection<ArtifactDownload> downloads = invocation.getArgument(0);
+            downloads.stream().filter(download -> download.getArtifact().getArtifactId().equals("still-missing"))
+                    .forEach(download -> download.setException(new ArtifactNotFoundException(download.getArtifact(), repository)));
+            return null;
+        }).when(delegate).get(any(), any());
+
+        connector.get(Arrays.asList(nowAvailableDownload, stillMissingDownload), null);
+
+        verify(delegate).get(Arrays.asList(nowAvailableDownload, stillMissingDownload), null);
+        assertNull(nowAvailableDownload.getException());
+        assertFalse(notFoundCache.isNotFound(repository, knownMissing));
+        assertTrue(notFoundCache.isNotFound(repository, stillMissing));
+        assertEquals(1, notFoundCache.size());
+    }
+
+    @Test
+    void testRepositoryUpdatePolicyIsHonoured() throws IOException {
+        NotFoundCache notFoundCache = new NotFoundCache(cacheDir, TimeUnit.HOURS.toMillis(1), 100);
+        DefaultArtifact knownMissing = new DefaultArtifact("org.example:known-missing:1.0");
+        RemoteRepository alwaysRepository = new RemoteRepository.Builder(repository)
+                .setReleasePolicy(new RepositoryPolicy(true, RepositoryPolicy.UPDATE_POLICY_ALWAYS, RepositoryPolicy.CHECKSUM_POLICY_WARN))
+                .build();
+        notFoundCache.recordNotFound(alwaysRepository, knownMissing);
+        NotFoundCachingRepositoryConnector connector = new NotFoundCachingRepositoryConnector(delegate, alwaysRepository, session,
+                notFoundCache);
+
+        ArtifactDownload download = new ArtifactDownload(knownMissing, "", new File("a.jar"), "warn");
+        connector.get(Collections.singletonList(download), null);
+
+        verify(delegate).get(Collections.singletonList(download), null);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Stream;
+
+import org.eclipse.aether.RepositoryEvent;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.repository.ArtifactRepository;
+import org.eclipse.aether.repository.LocalRepository;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+class PrefetchListTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testLoad() throws IOException {
+        Path file = tempDir.resolve("prefetch.txt");
+        Files.write(file, Arrays.asList("# comment", "org.example:lib:jar:1.0", "", "org.example:lib:jar:tests:1.0", "org.example:parent:pom:2"));
+
+        PrefetchList prefetchList = PrefetchList.load(file);
+        assertEquals(3, prefetchList.getArtifacts().size());
+        assertEquals("tests", prefetchList.getArtifacts().get(1).getClassifier());
+        assertEquals("pom", prefetchList.getArtifacts().get(2).getExtension());
+
+        assertTrue(PrefetchList.load(tempDir.resolve("missing.txt")).getArtifacts().isEmpty());
+
+        Files.write(file, Arrays.asList("invalid"));
+        assertThrows(IOException.class, () -> PrefetchList.load(file));
+    }
+
+    @Test
+    void testRecordAndSave() throws IOException {
+        Path file = tempDir.resolve(".mvn/prefetch.txt");
+        Files.createDirectories(file.getParent());
+        Files.write(file, Arrays.asList("org.example:lib:jar:1.0", "org.example:prefetched:jar:1.0", "org.example:stale:jar:1.0"));
+        PrefetchList prefetchList = PrefetchList.load(file);
+
+        // recorded via the listener
+        RecordingRepositoryListener listener = new RecordingRepositoryListener(prefetchList, Collections.singleton("sysEnvRepo"));
+        RemoteRepository repository = new RemoteRepository.Builder("sysEnvRepo", "default", "https://domain.org/repo").build();
+        RemoteRepository otherRepository = new RemoteRepository.Builder("central", "default", "https://repo.maven.apache.org/maven2")
+                .build();
+        listener.artifactResolved(resolved("org.example:missing:1.0", null, repository));
+        listener.artifactResolved(resolved("org.example:other:jar:sources:1.0", "target.jar", repository));
+        listener.artifactResolved(resolved("org.example:lib:jar:1.0", "target.jar", repository));
+        listener.artifactResolved(resolved("org.example:lib:jar:1.1-SNAPSHOT", "target.jar", repository));
+        listener.artifactResolved(resolved("org.example:central:jar:1.0", "target.jar", otherRepository));
+        // prefetched into the local repository
+        listener.artifactResolved(resolved("org.example:prefetched:jar:1.0", "target.jar", new LocalRepository(tempDir.toFile())));
+        assertEquals(2, prefetchList.getRecordedCount());
+
+        assertEquals(1, prefetchList.save());
+        assertEquals(Arrays.asList(
+                "# artifacts prefetched from the repositories from env, generated by maven-ext-repos-from-env",
+                "org.example:lib:jar:1.0",
+                "org.example:other:jar:sources:1.0",
+                "org.example:prefetched:jar:1.0"),
+                Files.readAllLines(file, StandardCharsets.UTF_8));
+        try (Stream<Path> files = Files.list(file.getParent())) {
+            assertEquals(1, files.count(), "temporary file must be removed");
+        }
+    }
+
+    private static RepositoryEvent resolved(String coordinates, String file, ArtifactRepository repository) {
+        Artifact artifact = new DefaultArtifact(coordinates);
+        if (file != null) {
+            artifact = artifact.setFile(new File(file));
+        }
+        return new RepositoryEvent.Builder(Mockito.mock(RepositorySystemSession.class), RepositoryEvent.EventType.ARTIFACT_RESOLVED)
+                .setArtifact(artifact).setRepository(repository).build();
+    }
+}
@@ -0,0 +1,338 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.maven.artifact.repository.ArtifactRepositoryPolicy;
+import org.codehaus.plexus.logging.Logger;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.spi.connector.ArtifactDownload;
+import org.eclipse.aether.spi.connector.RepositoryConnector;
+import org.eclipse.aether.transfer.ArtifactTransferException;
+import org.eclipse.aether.transfer.TransferCancelledException;
+import org.eclipse.aether.transfer.TransferEvent;
+import org.eclipse.aether.transfer.TransferListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+class RangedDownloadRepositoryConnectorTest {
+
+    private static final String LIB_PATH = "org/example/lib/1.0/lib-1.0.jar";
+    private static final Pattern RANGE_PATTERN = Pattern.compile("bytes=(\\d+)-(\\d+)");
+
+    private final byte[] libContent = new byte[100 * 1024 + 7];
+
+    private HttpServer server;
+    private String serverUrl;
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+
+    private RepositoryConnector delegate;
+    private RangedDownloader downloader;
+
+    @TempDir
+    Path localRepoDir;
+
+    @BeforeEach
+    void setup() throws Exception {
+        new Random(42).nextBytes(libContent);
+        String libSha1 = ArchiveRepository.toHex(MessageDigest.getInstance("SHA-1").digest(libContent));
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        // serves ranges
+        server.createContext("/ranges/", exchange -> {
+            if (exchange.getRequestURI().getPath().endsWith(".sha1")) {
+                send(exchange, 200, (libSha1 + "  lib-1.0.jar").getBytes(StandardCharsets.US_ASCII));
+            } else {
+                sendRanged(exchange, libContent, true);
+            }
+        });
+        // announces ranges but serves content not matching its checksum
+        server.createContext("/corrupt/", exchange -> {
+            if (exchange.getRequestURI().getPath().endsWith(".sha1")) {
+                send(exchange, 200, "0000000000000000000000000000000000000000".getBytes(StandardCharsets.US_ASCII));
+            } else {
+                sendRanged(exchange, libContent, true);
+            }
+        });
+        // requires authentication
+        server.createContext("/auth/", exchange -> {
+            if (!"Basic dXNlcjpwdw==".equals(exchange.getRequestHeaders().getFirst("Authorization"))) {
+                requests.add(exchange.getRequestMethod() + " unauthorized");
+                exchange.getResponseHeaders().add("WWW-Authenticate", "Basic realm=\"repo\"");
+                send(exchange, 401, new byte[0]);
+            } else if (exchange.getRequestURI().getPath().endsWith(".sha1")) {
+                send(exchange, 200, libSha1.getBytes(StandardCharsets.US_ASCII));
+            } else {
+                sendRanged(exchange, libContent, true);
+            }
+        });
+        // does not support ranges
+        server.createContext("/noranges/", exchange -> sendRanged(exchange, libContent, false));
+        // announces ranges but answers range requests with the full content
+        server.createContext("/ignoresranges/", exchange -> {
+            exchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+            sendRanged(exchange, libContent, false);
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        serverUrl = "http://localhost:" + server.getAddress().getPort();
+
+        delegate = mock(RepositoryConnector.class);
+        downloader = new RangedDownloader(64 * 1024, 4, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        downloader.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void testRangedDownload() throws Exception {
+        TransferListener listener = mock(TransferListener.class);
+        ArtifactDownload download = download(ArtifactRepositoryPolicy.CHECKSUM_POLICY_FAIL);
+        download.setListener(listener);
+
+        RepoFromEnv repoFromEnv = new RepoFromEnv.Builder("sysEnvRepo", serverUrl + "/ranges", "user", "pw")
+                .setPreemptiveAuth(true).build();
+        connector("ranges", repoFromEnv).get(Collections.singletonList(download), null);
+
+        assertNull(download.getException());
+        assertArrayEquals(libContent, Files.readAllBytes(download.getFile().toPath()));
+        assertEquals(1, downloader.getDownloads());
+        assertEquals(libContent.length, downloader.getDownloadedBytes());
+        assertEquals(0, downloader.getFallbacks());
+        assertEquals(4, requests.stream().filter(request -> request.startsWith("GET bytes=")).count());
+        assertTrue(requests.stream().allMatch(request -> request.endsWith("Basic dXNlcjpwdw==")));
+        try (Stream<Path> files = Files.list(download.getFile().toPath().getParent())) {
+            assertEquals(1, files.count(), "temporary file must be removed");
+        }
+        ArgumentCaptor<TransferEvent> succeeded = ArgumentCaptor.forClass(TransferEvent.class);
+        verify(listener).transferInitiated(any());
+        verify(listener).transferSucceeded(succeeded.capture());
+        assertEquals(libContent.length, succeeded.getValue().getTransferredBytes());
+        // one progress event per completed range
+        ArgumentCaptor<TransferEvent> progressed = ArgumentCaptor.forClass(TransferEvent.class);
+        verify(listener, times(4)).transferProgressed(progressed.capture());
+        List<Long> transferredBytes = progressed.getAllValues().stream().map(TransferEvent::getTransferredBytes)
+                .collect(Collectors.toList());
+        assertEquals((libContent.length + 3) / 4, transferredBytes.get(0).longValue());
+        assertEquals(transferredBytes.stream().sorted().collect(Collectors.toList()), transferredBytes);
+        assertEquals(libContent.length, transferredBytes.get(3).longValue());
+        verify(delegate).get(eq(Collections.emptyList()), eq(null));
+    }
+
+    @Test
+    void testCancelledByListener() throws Exception {
+        TransferListener listener = mock(TransferListener.class);
+        doThrow(new TransferCancelledException("cancelled")).when(listener).transferProgressed(any());
+        ArtifactDownload download = download(ArtifactRepositoryPolicy.CHECKSUM_POLICY_FAIL);
+        download.setListener(listener);
+
+        connector("ranges", new RepoFromEnv("sysEnvRepo", serverUrl + "/ranges", null, null))
+                .get(Collections.singletonList(download), null);
+
+        assertTrue(download.getException().getCause() instanceof TransferCancelledException);
+        assertFalse(download.getFile().exists());
+        verify(delegate).get(eq(Collections.emptyList()), eq(null));
+    }
+
+    @Test
+    void testAuthenticationOnChallenge() throws IOException {
+        ArtifactDownload download = download(ArtifactRepositoryPolicy.CHECKSUM_POLICY_FAIL);
+        connector("auth", new RepoFromEnv("sysEnvRepo", serverUrl + "/auth", "user", "pw"))
+                .get(Collections.singletonList(download), null);
+
+        assertNull(download.getException());
+        assertArrayEquals(libContent, Files.readAllBytes(download.getFile().toPath()));
+        // the credentials are only sent after the anonymous HEAD (and checksum) request was challenged
+        assertEquals("HEAD unauthorized", requests.get(0));
+        assertEquals(2, requests.stream().filter(request -> request.endsWith(" unauthorized")).count());
+        assertEquals(4, countRangeRequests());
+        assertTrue(requests.stream().filter(request -> !request.endsWith(" unauthorized"))
+                .allMatch(request -> request.endsWith("Basic dXNlcjpwdw==")));
+
+        // without credentials the regular transport reports the challenge
+        ArtifactDownload anonymousDownload = download(ArtifactRepositoryPolicy.CHECKSUM_POLICY_FAIL);
+        connector("auth", new RepoFromEnv("sysEnvRepo", serverUrl + "/auth", null, null))
+                .get(Collections.singletonList(anonymousDownload), null);
+        verify(delegate).get(eq(Collections.singletonList(anonymousDownload)), eq(null));
+    }
+
+    @Test
+    void testChecksumFailure() {
+        ArtifactDownload failDownload = download(ArtifactRepositoryPolicy.CHECKSUM_POLICY_FAIL);
+        connector("corrupt", new RepoFromEnv("sysEnvRepo", serverUrl + "/corrupt", null, null))
+                .get(Collections.singletonList(failDownload), null);
+        assertTrue(failDownload.getException() instanceof ArtifactTransferException);
+        assertFalse(failDownload.getFile().exists());
+
+        ArtifactDownload warnDownload = download(ArtifactRepositoryPolicy.CHECKSUM_POLICY_WARN);
+        connector("corrupt", new RepoFromEnv("sysEnvRepo", serverUrl + "/corrupt", null, null))
+                .get(Collections.singletonList(warnDownload), null);
+        assertNull(warnDownload.getException());
+        assertTrue(warnDownload.getFile().exists());
+    }
+
+    @Test
+    void testFallbackToSingleStream() {
+        ArtifactDownload noRanges = download(ArtifactRepositoryPolicy.CHECKSUM_POLICY_FAIL);
+        connector("noranges", new RepoFromEnv("sysEnvRepo", serverUrl + "/noranges", null, null))
+                .get(Collections.singletonList(noRanges), null);
+        verify(delegate).get(eq(Collections.singletonList(noRanges)), eq(null));
+        assertFalse(noRanges.getFile().exists());
+
+        ArtifactDownload ignoredRanges = download(ArtifactRepositoryPolicy.CHECKSUM_POLICY_FAIL);
+        connector("ignoresranges", new RepoFromEnv("sysEnvRepo", serverUrl + "/ignoresranges", null, null))
+                .get(Collections.singletonList(ignoredRanges), null);
+        verify(delegate).get(eq(Collections.singletonList(ignoredRanges)), eq(null));
+        assertFalse(ignoredRanges.getFile().exists());
+
+        assertEquals(0, downloader.getDownloads());
+        assertEquals(2, downloader.getFallbacks());
+    }
+
+    @Test
+    void testSmallArtifactsAndExistenceChecksAreLeftToDelegate() {
+        RangedDownloader largeOnlyDownloader = new RangedDownloader(1024 * 1024, 4, 2);
+        try {
+            ArtifactDownload small = download(ArtifactRepositoryPolicy.CHECKSUM_POLICY_FAIL);
+            ArtifactDownload existenceCheck = download(ArtifactRepositoryPolicy.CHECKSUM_POLICY_FAIL);
+            existenceCheck.setExistenceCheck(true);
+            RemoteRepository repository = new RemoteRepository.Builder("sysEnvRepo", "default", serverUrl + "/ranges").build();
+            new RangedDownloadRepositoryConnector(delegate, repository, mock(RepositorySystemSession.class),
+                    new RepoFromEnv("sysEnvRepo", serverUrl + "/ranges", null, null), largeOnlyDownloader, null, mock(Logger.class))
+                            .get(Arrays.asList(small, existenceCheck), null);
+
+            verify(delegate, times(1)).get(eq(Arrays.asList(small, existenceCheck)), eq(null));
+            assertEquals(0, largeOnlyDownloader.getDownloads());
+            assertEquals(0, largeOnlyDownloader.getFallbacks());
+            assertEquals(1, requests.size(), "only the HEAD request for the small artifact is expected");
+        } finally {
+            largeOnlyDownloader.shutdown();
+        }
+    }
+
+    @Test
+    void testAdditionalConnectionsAreLimited() throws IOException, InterruptedException {
+        RepoFromEnv repoFromEnv = new RepoFromEnv.Builder("sysEnvRepo", serverUrl + "/ranges", null, null).setMaxConnections(3).build();
+        ArtifactDownload maxConnectionsDownload = download(ArtifactRepositoryPolicy.CHECKSUM_POLICY_FAIL);
+        connector("ranges", repoFromEnv).get(Collections.singletonList(maxConnectionsDownload), null);
+        assertArrayEquals(libContent, Files.readAllBytes(maxConnectionsDownload.getFile().toPath()));
+        assertEquals(3, countRangeRequests());
+
+        // the adaptive concurrency connector holds one permit per download
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 2);
+        assertEquals(1, limiter.acquire(1));
+        requests.clear();
+        ArtifactDownload limitedDownload = download(ArtifactRepositoryPolicy.CHECKSUM_POLICY_FAIL);
+        connector("ranges", new RepoFromEnv("sysEnvRepo", serverUrl + "/ranges", null, null), limiter)
+                .get(Collections.singletonList(limitedDownload), null);
+        assertArrayEquals(libContent, Files.readAllBytes(limitedDownload.getFile().toPath()));
+        assertEquals(2, countRangeRequests());
+        assertEquals(2, downloader.getDownloads());
+
+        // the additional permit is released again and no permit is left for another download
+        assertEquals(1, limiter.acquire(1));
+        ArtifactDownload singleStreamDownload = download(ArtifactRepositoryPolicy.CHECKSUM_POLICY_FAIL);
+        connector("ranges", new RepoFromEnv("sysEnvRepo", serverUrl + "/ranges", null, null), limiter)
+                .get(Collections.singletonList(singleStreamDownload), null);
+        verify(delegate).get(eq(Collections.singletonList(singleStreamDownload)), eq(null));
+        assertEquals(2, downloader.getDownloads());
+        assertEquals(0, downloader.getFallbacks());
+    }
+
+    private long countRangeRequests() {
+        return requests.stream().filter(request -> request.startsWith("GET bytes=")).count();
+    }
+
+    private RangedDownloadRepositoryConnector connector(String path, RepoFromEnv repoFromEnv) {
+        return connector(path, repoFromEnv, null);
+    }
+
+    private RangedDownloadRepositoryConnector connector(String path, RepoFromEnv repoFromEnv, AdaptiveConcurrencyLimiter limiter) {
+        RemoteRepository repository = new RemoteRepository.Builder("sysEnvRepo", "default", serverUrl + "/" + path).build();
+        return new RangedDownloadRepositoryConnector(delegate, repository, mock(RepositorySystemSession.class), repoFromEnv, downloader,
+                limiter, mock(Logger.class));
+    }
+
+    private ArtifactDownload download(String checksumPolicy) {
+        Path file = localRepoDir.resolve(checksumPolicy + requests.size() + "-" + System.nanoTime()).resolve(LIB_PATH);
+        return new ArtifactDownload(new DefaultArtifact("org.example:lib:1.0"), "", file.toFile(), checksumPolicy);
+    }
+
+    private void sendRanged(HttpExchange exchange, byte[] content, boolean supportsRanges) throws IOException {
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        requests.add(exchange.getRequestMethod() + " " + range + " " + exchange.getRequestHeaders().getFirst("Authorization"));
+        if (supportsRanges) {
+            exchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+        }
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().add("Content-Length", String.valueOf(content.length));
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+            return;
+        }
+        Matcher rangeMatcher = range != null && supportsRanges ? RANGE_PATTERN.matcher(range) : null;
+        if (rangeMatcher != null && rangeMatcher.matches()) {
+            int start = Integer.parseInt(rangeMatcher.group(1));
+            int end = Integer.parseInt(rangeMatcher.group(2));
+            exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + end + "/" + content.length);
+            byte[] chunk = new byte[end - start + 1];
+            System.arraycopy(content, start, chunk, 0, chunk.length);
+            send(exchange, 206, chunk);
+        } else {
+            send(exchange, 200, content);
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
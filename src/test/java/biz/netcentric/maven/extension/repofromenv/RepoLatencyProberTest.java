@@ -0,0 +1,136 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sun.net.httpserver.HttpServer;
+
+class RepoLatencyProberTest {
+
+    private HttpServer server;
+    private String serverUrl;
+    private final List<String> authorizationHeaders = new CopyOnWriteArrayList<>();
+
+    @TempDir
+    Path repoDir;
+
+    @BeforeEach
+    void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/fast", exchange -> {
+            authorizationHeaders.add(String.valueOf(exchange.getRequestHeaders().getFirst("Authorization")));
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+        server.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.createContext("/broken", exchange -> {
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        serverUrl = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void testProbe() throws IOException {
+        RepoFromEnv fast = new RepoFromEnv("fast", serverUrl + "/fast", "user", "pw");
+        RepoFromEnv slow = new RepoFromEnv("slow", serverUrl + "/slow", null, null);
+        RepoFromEnv broken = new RepoFromEnv("broken", serverUrl + "/broken", null, null);
+        RepoFromEnv closedPort = new RepoFromEnv("closedPort", "http://localhost:" + getUnusedPort() + "/repo", null, null);
+        RepoFromEnv file = new RepoFromEnv("file", repoDir.toUri().toString(), null, null);
+        RepoFromEnv missingFile = new RepoFromEnv("missingFile", repoDir.resolve("missing").toUri().toString(), null, null);
+
+        Map<RepoFromEnv, Long> latencies = new RepoLatencyProber(500, null)
+                .probe(Arrays.asList(fast, slow, broken, closedPort, file, missingFile));
+
+        assertEquals(Arrays.asList(fast, slow, broken, closedPort, file, missingFile), Arrays.asList(latencies.keySet().toArray()));
+        assertNotEquals(RepoLatencyProber.UNREACHABLE, latencies.get(fast));
+        assertEquals(RepoLatencyProber.UNREACHABLE, latencies.get(slow));
+        assertEquals(RepoLatencyProber.UNREACHABLE, latencies.get(broken));
+        assertEquals(RepoLatencyProber.UNREACHABLE, latencies.get(closedPort));
+        assertNotEquals(RepoLatencyProber.UNREACHABLE, latencies.get(file));
+        assertEquals(RepoLatencyProber.UNREACHABLE, latencies.get(missingFile));
+
+        // credentials are only sent preemptively
+        RepoFromEnv preemptive = new RepoFromEnv.Builder("fast", serverUrl + "/fast", "user", "pw").setPreemptiveAuth(true).build();
+        assertNotEquals(RepoLatencyProber.UNREACHABLE, new RepoLatencyProber(500, null).probe(preemptive));
+        assertEquals(Arrays.asList("null", "Basic dXNlcjpwdw=="), authorizationHeaders);
+    }
+
+    @Test
+    void testProbeCanaryPath() throws IOException {
+        Files.createDirectories(repoDir.resolve("org/example"));
+        RepoFromEnv file = new RepoFromEnv("file", repoDir.toUri().toString(), null, null);
+
+        assertNotEquals(RepoLatencyProber.UNREACHABLE, new RepoLatencyProber(500, "/org/example").probe(file));
+        assertEquals(RepoLatencyProber.UNREACHABLE, new RepoLatencyProber(500, "org/other").probe(file));
+    }
+
+    @Test
+    void testProbeArchive() throws IOException {
+        Path archiveFile = repoDir.resolve("vendor.zip");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(archiveFile))) {
+            out.putNextEntry(new ZipEntry("maven-repository/org/example/lib/1.0/lib-1.0.jar"));
+            out.closeEntry();
+        }
+        RepoFromEnv archive = new RepoFromEnv("archive", "vendor.zip!/maven-repository", null, null);
+        RepoFromEnv unopenedArchive = new RepoFromEnv("unopenedArchive", archiveFile.toUri().toString(), null, null);
+        try (ArchiveRepository archiveRepository = ArchiveRepository.open(archiveFile, "maven-repository")) {
+            Map<String, ArchiveRepository> archives = Collections.singletonMap("archive", archiveRepository);
+
+            assertNotEquals(RepoLatencyProber.UNREACHABLE, new RepoLatencyProber(500, null, archives).probe(archive));
+            assertNotEquals(RepoLatencyProber.UNREACHABLE, new RepoLatencyProber(500, "/org/example/", archives).probe(archive));
+            assertNotEquals(RepoLatencyProber.UNREACHABLE,
+                    new RepoLatencyProber(500, "org/example/lib/1.0/lib-1.0.jar", archives).probe(archive));
+            assertEquals(RepoLatencyProber.UNREACHABLE, new RepoLatencyProber(500, "org/ex", archives).probe(archive));
+            assertEquals(RepoLatencyProber.UNREACHABLE, new RepoLatencyProber(500, null, archives).probe(unopenedArchive));
+        }
+    }
+
+    private int getUnusedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.aether.repository.RemoteRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RepositoryAffinityTest {
+
+    private final RemoteRepository repository1 = new RemoteRepository.Builder("sysEnvRepo1", "default", "https://domain.org/repo1").build();
+    private final RemoteRepository repository2 = new RemoteRepository.Builder("sysEnvRepo2", "default", "https://domain.org/repo2").build();
+
+    @TempDir
+    Path affinityDir;
+
+    @Test
+    void testRecordSaveLoad() throws IOException {
+        RepositoryAffinity affinity = new RepositoryAffinity(affinityDir, TimeUnit.HOURS.toMillis(1));
+        affinity.load();
+        affinity.recordServed("org.example", repository1);
+        affinity.recordServed("org.other", repository2);
+        List<RemoteRepository> requestRepositories = Collections.singletonList(repository1);
+        assertEquals(repository1, affinity.getPreferredRepository("org.example", requestRepositories));
+        // repository2 is not used by the request
+        assertNull(affinity.getPreferredRepository("org.other", requestRepositories));
+        assertNull(affinity.getPreferredRepository("org.unknown", requestRepositories));
+        affinity.save();
+
+        RepositoryAffinity reloadedAffinity = new RepositoryAffinity(affinityDir, TimeUnit.HOURS.toMillis(1));
+        reloadedAffinity.load();
+        assertEquals(2, reloadedAffinity.size());
+        assertEquals(repository1, reloadedAffinity.getPreferredRepository("org.example", Arrays.asList(repository1, repository2)));
+        assertEquals(repository2, reloadedAffinity.getPreferredRepository("org.other", Arrays.asList(repository1, repository2)));
+
+        // same id but different URL
+        RepositoryAffinity otherProjectAffinity = new RepositoryAffinity(affinityDir, TimeUnit.HOURS.toMillis(1));
+        otherProjectAffinity.load();
+        assertNull(otherProjectAffinity.getPreferredRepository("org.example",
+                Collections.singletonList(new RemoteRepository.Builder("sysEnvRepo1", "default", "https://domain.org/other").build())));
+    }
+
+    @Test
+    void testStaleEntriesAreNotResurrected() throws IOException {
+        RepositoryAffinity affinity = new RepositoryAffinity(affinityDir, TimeUnit.HOURS.toMillis(1));
+        affinity.recordServed("org.example", repository1);
+        affinity.save();
+
+        RepositoryAffinity affinityBuild1 = new RepositoryAffinity(affinityDir, TimeUnit.HOURS.toMillis(1));
+        affinityBuild1.load();
+        RepositoryAffinity affinityBuild2 = new RepositoryAffinity(affinityDir, TimeUnit.HOURS.toMillis(1));
+        affinityBuild2.load();
+        // only entries pointing to the given repository are removed
+        affinityBuild1.recordStale("org.example", repository2);
+        assertEquals(1, affinityBuild1.size());
+        affinityBuild1.recordStale("org.example", repository1);
+        assertEquals(0, affinityBuild1.size());
+        affinityBuild2.recordServed("org.other", repository2);
+        affinityBuild2.save();
+        affinityBuild1.save();
+
+        RepositoryAffinity reloadedAffinity = new RepositoryAffinity(affinityDir, TimeUnit.HOURS.toMillis(1));
+        reloadedAffinity.load();
+        assertNull(reloadedAffinity.getPreferredRepository("org.example", Arrays.asList(repository1, repository2)));
+        assertEquals(repository2, reloadedAffinity.getPreferredRepository("org.other", Arrays.asList(repository1, repository2)));
+    }
+
+    @Test
+    void testExpiry() throws IOException {
+        long now = System.currentTimeMillis();
+        long twoHoursAgo = now - TimeUnit.HOURS.toMillis(2);
+        Files.write(affinityDir.resolve(RepositoryAffinity.AFFINITY_FILE_NAME),
+                (twoHoursAgo + " org.example sysEnvRepo1 https://domain.org/repo1\n"
+                        + now + " org.other sysEnvRepo1 https://domain.org/repo1\n"
+                        + "corrupt line\n").getBytes(StandardCharsets.UTF_8));
+
+        RepositoryAffinity affinity = new RepositoryAffinity(affinityDir, TimeUnit.HOURS.toMillis(1));
+        affinity.load();
+        assertEquals(1, affinity.size());
+        assertNull(affinity.getPreferredRepository("org.example", Collections.singletonList(repository1)));
+        assertEquals(repository1, affinity.getPreferredRepository("org.other", Collections.singletonList(repository1)));
+    }
+}
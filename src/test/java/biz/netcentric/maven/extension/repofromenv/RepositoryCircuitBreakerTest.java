@@ -0,0 +1,105 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.codehaus.plexus.logging.Logger;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.transfer.ArtifactNotFoundException;
+import org.eclipse.aether.transfer.ArtifactTransferException;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+class RepositoryCircuitBreakerTest {
+
+    private final AtomicLong nanoTime = new AtomicLong();
+
+    private final RepositoryCircuitBreaker circuitBreaker = new RepositoryCircuitBreaker("sysEnvRepo", 3, 60000, 30000,
+            Mockito.mock(Logger.class), nanoTime::get);
+
+    @Test
+    void testOpenAfterConsecutiveFailures() {
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+        // a response in between resets the count
+        circuitBreaker.recordSuccess();
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+        assertEquals(RepositoryCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.allowRequest());
+
+        circuitBreaker.recordFailure();
+        assertEquals(RepositoryCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.allowRequest());
+        assertEquals("OPEN, opened 1 times, 1 requests skipped", circuitBreaker.getSummary());
+    }
+
+    @Test
+    void testFailuresOutsideWindowDoNotOpen() {
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+        advance(61);
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+        assertEquals(RepositoryCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void testHalfOpenProbe() {
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+
+        advance(29);
+        assertFalse(circuitBreaker.allowRequest());
+        advance(1);
+        // only one probe at a time
+        assertTrue(circuitBreaker.allowRequest());
+        assertEquals(RepositoryCircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.allowRequest());
+
+        circuitBreaker.recordFailure();
+        assertEquals(RepositoryCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.allowRequest());
+
+        advance(30);
+        assertTrue(circuitBreaker.allowRequest());
+        circuitBreaker.recordSuccess();
+        assertEquals(RepositoryCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.allowRequest());
+        assertEquals(2, circuitBreaker.getTimesOpened());
+    }
+
+    @Test
+    void testIsConnectionFailure() {
+        DefaultArtifact artifact = new DefaultArtifact("org.example:lib:1.0");
+        RemoteRepository repository = new RemoteRepository.Builder("sysEnvRepo", "default", "https://domain.org/repo").build();
+        assertTrue(RepositoryCircuitBreaker.isConnectionFailure(
+                new ArtifactTransferException(artifact, repository, new ConnectException("Connection refused"))));
+        assertTrue(RepositoryCircuitBreaker.isConnectionFailure(
+                new ArtifactTransferException(artifact, repository, new SocketTimeoutException("Read timed out"))));
+        assertFalse(RepositoryCircuitBreaker.isConnectionFailure(
+                new ArtifactTransferException(artifact, repository, new IOException("Internal Server Error (500)"))));
+        assertFalse(RepositoryCircuitBreaker.isConnectionFailure(new ArtifactNotFoundException(artifact, repository)));
+    }
+
+    private void advance(long seconds) {
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.eclipse.aether.repository.RemoteRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RepositoryMetricsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testTransferStats() {
+        RepositoryMetrics.TransferStats stats = new RepositoryMetrics.TransferStats();
+        assertEquals("0 requests", stats.getSummary());
+        assertEquals(0, stats.getLatencyPercentileBoundMs(50));
+
+        stats.recordHit(5, 1024);
+        stats.recordHit(80, 2048);
+        stats.recordNotFound(90);
+        stats.recordError(20000);
+
+        assertEquals(4, stats.getRequests());
+        assertEquals(2, stats.getHits());
+        assertEquals(1, stats.getNotFound());
+        assertEquals(1, stats.getErrors());
+        assertEquals(3072, stats.getBytes());
+        assertEquals(1, stats.getLatencyBucket(0));
+        assertEquals(2, stats.getLatencyBucket(2));
+        assertEquals(1, stats.getLatencyBucket(RepositoryMetrics.LATENCY_BUCKET_BOUNDS_MS.length));
+        assertEquals(100, stats.getLatencyPercentileBoundMs(50));
+        assertEquals(-1, stats.getLatencyPercentileBoundMs(90));
+        assertEquals("4 requests (2 hits, 1 not found, 1 errors, 3 KB, p50 <= 100ms, p90 > 10000ms)", stats.getSummary());
+    }
+
+    @Test
+    void testWriteReport() throws Exception {
+        RepositoryMetrics metrics = new RepositoryMetrics();
+        RemoteRepository envRepo = new RemoteRepository.Builder("sysEnvRepoVENDOR", "default", "https://domain.org/\"repo\"").build();
+        RepositoryMetrics.RepositoryStats envRepoStats = metrics.getStats(envRepo, true);
+        assertSame(envRepoStats, metrics.getStats(envRepo, true));
+        envRepoStats.getArtifacts().recordHit(30, 100);
+        metrics.getStats(new RemoteRepository.Builder("central", "default", "https://repo.maven.apache.org/maven2").build(), false)
+                .getMetadata().recordNotFound(600);
+
+        Path reportFile = tempDir.resolve("target/metrics.json");
+        metrics.writeReport(reportFile);
+
+        assertEquals("{\n"
+                + "  \"latencyBucketBoundsMs\": [10, 50, 100, 250, 500, 1000, 2500, 5000, 10000],\n"
+                + "  \"repositories\": [\n"
+                + "    {\n"
+                + "      \"id\": \"central\",\n"
+                + "      \"url\": \"https://repo.maven.apache.org/maven2\",\n"
+                + "      \"fromEnv\": false,\n"
+                + "      \"artifacts\": { \"requests\": 0, \"hits\": 0, \"notFound\": 0, \"errors\": 0, \"bytes\": 0, \"latencyHistogram\": [0, 0, 0, 0, 0, 0, 0, 0, 0, 0] },\n"
+                + "      \"metadata\": { \"requests\": 1, \"hits\": 0, \"notFound\": 1, \"errors\": 0, \"bytes\": 0, \"latencyHistogram\": [0, 0, 0, 0, 0, 1, 0, 0, 0, 0] }\n"
+                + "    },\n"
+                + "    {\n"
+                + "      \"id\": \"sysEnvRepoVENDOR\",\n"
+                + "      \"url\": \"https://domain.org/\\\"repo\\\"\",\n"
+                + "      \"fromEnv\": true,\n"
+                + "      \"artifacts\": { \"requests\": 1, \"hits\": 1, \"notFound\": 0, \"errors\": 0, \"bytes\": 100, \"latencyHistogram\": [0, 1, 0, 0, 0, 0, 0, 0, 0, 0] },\n"
+                + "      \"metadata\": { \"requests\": 0, \"hits\": 0, \"notFound\": 0, \"errors\": 0, \"bytes\": 0, \"latencyHistogram\": [0, 0, 0, 0, 0, 0, 0, 0, 0, 0] }\n"
+                + "    }\n"
+                + "  ]\n"
+                + "}\n", new String(Files.readAllBytes(reportFile), StandardCharsets.UTF_8));
+
+        // overwritten via a temp file which is not left behind
+        metrics.writeReport(reportFile);
+        try (Stream<Path> files = Files.list(reportFile.getParent())) {
+            assertEquals(Collections.singletonList(reportFile), files.collect(Collectors.toList()));
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verify;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.metadata.DefaultMetadata;
+import org.eclipse.aether.metadata.Metadata;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.spi.connector.ArtifactDownload;
+import org.eclipse.aether.spi.connector.MetadataDownload;
+import org.eclipse.aether.spi.connector.RepositoryConnector;
+import org.eclipse.aether.transfer.ArtifactNotFoundException;
+import org.eclipse.aether.transfer.MetadataNotFoundException;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+class RoutingRepositoryConnectorTest {
+
+    private final RepositoryConnector delegate = Mockito.mock(RepositoryConnector.class);
+    private final RemoteRepository repository = new RemoteRepository.Builder("sysEnvRepoVENDOR", "default", "https://domain.org/vendor").build();
+
+    @Test
+    void testGet() {
+        RoutingRepositoryConnector connector = new RoutingRepositoryConnector(delegate, repository, GroupIdFilter.parse("com.vendor", null));
+
+        ArtifactDownload vendorArtifact = new ArtifactDownload(new DefaultArtifact("com.vendor:lib:1.0"), "", new File("lib.jar"), "warn");
+        ArtifactDownload otherArtifact = new ArtifactDownload(new DefaultArtifact("org.apache:other:1.0"), "", new File("other.jar"), "warn");
+        MetadataDownload vendorMetadata = new MetadataDownload(
+                new DefaultMetadata("com.vendor", "lib", "maven-metadata.xml", Metadata.Nature.RELEASE), "", new File("m1.xml"), "warn");
+        MetadataDownload otherMetadata = new MetadataDownload(
+                new DefaultMetadata("org.apache", "other", "maven-metadata.xml", Metadata.Nature.RELEASE), "", new File("m2.xml"), "warn");
+
+        connector.get(Arrays.asList(vendorArtifact, otherArtifact), Arrays.asList(vendorMetadata, otherMetadata));
+
+        verify(delegate).get(Collections.singletonList(vendorArtifact), Collections.singletonList(vendorMetadata));
+        assertNull(vendorArtifact.getException());
+        assertTrue(otherArtifact.getException() instanceof ArtifactNotFoundException);
+        assertEquals(repository, ((ArtifactNotFoundException) otherArtifact.getException()).getRepository());
+        assertNull(vendorMetadata.getException());
+        assertTrue(otherMetadata.getException() instanceof MetadataNotFoundException);
+    }
+
+    @Test
+    void testGetNull() {
+        new RoutingRepositoryConnector(delegate, repository, GroupIdFilter.parse("com.vendor", null)).get(null, null);
+        verify(delegate).get(Collections.emptyList(), Collections.emptyList());
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SharedArtifactCacheTest {
+
+    private final RemoteRepository repository = new RemoteRepository.Builder("sysEnvRepo", "default", "https://domain.org/repo").build();
+    private final RemoteRepository otherRepository = new RemoteRepository.Builder("sysEnvRepo", "default", "https://domain.org/other")
+            .build();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testStoreAndRetrieve() throws IOException {
+        SharedArtifactCache cache = new SharedArtifactCache(tempDir.resolve("cache"), Long.MAX_VALUE);
+        DefaultArtifact artifact = new DefaultArtifact("org.example:lib:1.0");
+        DefaultArtifact otherArtifact = new DefaultArtifact("org.example:other:1.0");
+        File target = tempDir.resolve("local/lib-1.0.jar").toFile();
+
+        assertFalse(cache.contains(repository, null, artifact));
+        assertFalse(cache.retrieve(repository, null, artifact, target));
+
+        cache.store(repository, null, artifact, write("downloaded/lib-1.0.jar", "content"));
+        cache.store(repository, null, otherArtifact, write("downloaded/other-1.0.jar", "content"));
+        assertTrue(cache.contains(repository, null, artifact));
+        assertFalse(cache.contains(otherRepository, null, artifact));
+        // artifacts downloaded anonymously or with other credentials are not shared
+        String authIdentity = SharedArtifactCache.getAuthIdentity(new RepoFromEnv("sysEnvRepo", repository.getUrl(), "user", "pw"));
+        assertFalse(cache.contains(repository, authIdentity, artifact));
+        cache.store(repository, authIdentity, artifact, write("downloaded/lib-1.0.jar", "content"));
+        assertTrue(cache.contains(repository, authIdentity, artifact));
+        assertFalse(cache.contains(repository,
+                SharedArtifactCache.getAuthIdentity(new RepoFromEnv("sysEnvRepo", repository.getUrl(), "other", "pw")), artifact));
+        assertEquals(authIdentity,
+                SharedArtifactCache.getAuthIdentity(new RepoFromEnv("sysEnvRepo", repository.getUrl(), "user", "changed")));
+        assertNull(SharedArtifactCache.getAuthIdentity(new RepoFromEnv("sysEnvRepo", repository.getUrl(), null, null)));
+        assertTrue(cache.retrieve(repository, null, artifact, target));
+        assertEquals("content", new String(Files.readAllBytes(target.toPath()), StandardCharsets.UTF_8));
+        assertEquals(1, cache.getHits());
+        assertEquals(3, cache.getStores());
+        // content addressed: identical files are stored once
+        try (Stream<Path> blobs = Files.list(tempDir.resolve("cache").resolve(SharedArtifactCache.BLOBS_DIR))) {
+            assertEquals(1, blobs.count());
+        }
+    }
+
+    @Test
+    void testRetrieveCorruptBlob() throws IOException {
+        SharedArtifactCache cache = new SharedArtifactCache(tempDir.resolve("cache"), Long.MAX_VALUE);
+        DefaultArtifact artifact = new DefaultArtifact("org.example:lib:1.0");
+        cache.store(repository, null, artifact, write("downloaded/lib-1.0.jar", "content"));
+        try (Stream<Path> blobs = Files.list(tempDir.resolve("cache").resolve(SharedArtifactCache.BLOBS_DIR))) {
+            Files.write(blobs.findFirst().get(), "corrupt".getBytes(StandardCharsets.UTF_8));
+        }
+
+        File target = tempDir.resolve("local/lib-1.0.jar").toFile();
+        assertFalse(cache.retrieve(repository, null, artifact, target));
+        assertFalse(target.exists());
+        assertFalse(cache.contains(repository, null, artifact));
+    }
+
+    @Test
+    void testConcurrentStore() throws Exception {
+        DefaultArtifact artifact = new DefaultArtifact("org.example:lib:1.0");
+        File downloaded = write("downloaded/lib-1.0.jar", "content");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Void>> results = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                // separate instances as used by separate builds
+                SharedArtifactCache cache = new SharedArtifactCache(tempDir.resolve("cache"), Long.MAX_VALUE);
+                results.add(executor.submit(() -> {
+                    cache.store(repository, null, artifact, downloaded);
+                    return null;
+                }));
+            }
+            for (Future<Void> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(new SharedArtifactCache(tempDir.resolve("cache"), Long.MAX_VALUE).retrieve(repository, null, artifact,
+                tempDir.resolve("target.jar").toFile()));
+        try (Stream<Path> blobs = Files.list(tempDir.resolve("cache").resolve(SharedArtifactCache.BLOBS_DIR))) {
+            assertEquals(1, blobs.count());
+        }
+    }
+
+    @Test
+    void testEvictLeastRecentlyUsed() throws IOException {
+        // room for two of the three artifacts
+        SharedArtifactCache cache = new SharedArtifactCache(tempDir.resolve("cache"), 20);
+        DefaultArtifact artifact1 = new DefaultArtifact("org.example:lib1:1.0");
+        DefaultArtifact artifact2 = new DefaultArtifact("org.example:lib2:1.0");
+        DefaultArtifact artifact3 = new DefaultArtifact("org.example:lib3:1.0");
+        cache.store(repository, null, artifact1, write("downloaded/lib1-1.0.jar", "content 1"));
+        cache.store(repository, null, artifact2, write("downloaded/lib2-1.0.jar", "content 2"));
+        assertEquals(0, cache.evict());
+        cache.store(repository, null, artifact3, write("downloaded/lib3-1.0.jar", "content 3"));
+        setLastModified(artifact1, 3000);
+        setLastModified(artifact2, 1000);
+        setLastModified(artifact3, 2000);
+
+        assertEquals(1, cache.evict());
+        assertEquals(1, cache.getEvictions());
+        assertTrue(cache.contains(repository, null, artifact1));
+        assertFalse(cache.contains(repository, null, artifact2));
+        assertTrue(cache.contains(repository, null, artifact3));
+        try (Stream<Path> indexEntries = Files.list(tempDir.resolve("cache").resolve(SharedArtifactCache.INDEX_DIR))) {
+            assertEquals(2, indexEntries.count(), "the index entry of the evicted blob must be deleted");
+        }
+
+        // retrieving marks the artifact as recently used
+        assertTrue(cache.retrieve(repository, null, artifact3, tempDir.resolve("local/lib3-1.0.jar").toFile()));
+        cache.store(repository, null, artifact2, write("downloaded/lib2-1.0.jar", "content 2"));
+        setLastModified(artifact2, 4000);
+        assertEquals(1, cache.evict());
+        assertFalse(cache.contains(repository, null, artifact1));
+        assertTrue(cache.contains(repository, null, artifact2));
+        assertTrue(cache.contains(repository, null, artifact3));
+    }
+
+    private void setLastModified(DefaultArtifact artifact, long millis) throws IOException {
+        String sha1 = new String(Files.readAllBytes(tempDir.resolve("cache").resolve(SharedArtifactCache.INDEX_DIR)
+                .resolve(SharedArtifactCache.getIndexKey(repository, null, artifact))), StandardCharsets.US_ASCII);
+        Files.setLastModifiedTime(tempDir.resolve("cache").resolve(SharedArtifactCache.BLOBS_DIR).resolve(sha1), FileTime.fromMillis(millis));
+    }
+
+    private File write(String path, String content) throws IOException {
+        Path file = tempDir.resolve(path);
+        Files.createDirectories(file.getParent());
+        return Files.write(file, content.getBytes(StandardCharsets.UTF_8)).toFile();
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * (C) Copyright 2020 Netcentric, A Cognizant Digital Business
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ */
+package biz.netcentric.maven.extension.repofromenv;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.codehaus.plexus.logging.Logger;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.connector.basic.BasicRepositoryConnectorFactory;
+import org.eclipse.aether.internal.impl.DefaultChecksumPolicyProvider;
+import org.eclipse.aether.internal.impl.DefaultFileProcessor;
+import org.eclipse.aether.internal.impl.DefaultRepositoryLayoutProvider;
+import org.eclipse.aether.internal.impl.DefaultTransporterProvider;
+import org.eclipse.aether.internal.impl.Maven2RepositoryLayoutFactory;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.repository.RepositoryPolicy;
+import org.eclipse.aether.spi.connector.ArtifactDownload;
+import org.eclipse.aether.spi.connector.RepositoryConnector;
+import org.eclipse.aether.transfer.AbstractTransferListener;
+import org.eclipse.aether.transfer.ChecksumFailureException;
+import org.eclipse.aether.transfer.TransferEvent;
+import org.eclipse.aether.transport.http.HttpTransporterFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import com.sun.net.httpserver.HttpServer;
+
+class SharedCachingRepositoryConnectorTest {
+
+    private final RepositoryConnector delegate = Mockito.mock(RepositoryConnector.class);
+    private final RemoteRepository repository = new RemoteRepository.Builder("sysEnvRepo", "default", "https://domain.org/repo").build();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testGet() throws IOException {
+        SharedArtifactCache cache = new SharedArtifactCache(tempDir.resolve("cache"), Long.MAX_VALUE);
+        SharedCachingRepositoryConnector connector = new SharedCachingRepositoryConnector(delegate, repository,
+                new DefaultRepositorySystemSession(), null, cache, Mockito.mock(Logger.class));
+        // the delegate acts as stand-in for the remote repository
+        doAnswer(invocation -> {
+            Collection<ArtifactDownload> downloads = invocation.getArgument(0);
+            for (ArtifactDownload download : downloads) {
+                download.getFile().getParentFile().mkdirs();
+                Files.write(download.getFile().toPath(), download.getArtifact().toString().getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        }).when(delegate).get(any(), any());
+
+        // first build downloads
+        ArtifactDownload release = download("org.example:lib:1.0", "build1");
+        ArtifactDownload snapshot = download("org.example:lib:1.1-SNAPSHOT", "build1");
+        connector.get(Arrays.asList(release, snapshot), null);
+        verify(delegate).get(Arrays.asList(release, snapshot), null);
+
+        // second build (with a different local repository) only downloads the snapshot
+        ArtifactDownload cachedRelease = download("org.example:lib:1.0", "build2");
+        ArtifactDownload snapshotAgain = download("org.example:lib:1.1-SNAPSHOT", "build2");
+        List<TransferEvent> events = new ArrayList<>();
+        cachedRelease.setListener(new AbstractTransferListener() {
+            @Override
+            public void transferInitiated(TransferEvent event) {
+                events.add(event);
+            }
+
+            @Override
+            public void transferStarted(TransferEvent event) {
+                events.add(event);
+            }
+
+            @Override
+            public void transferSucceeded(TransferEvent event) {
+                events.add(event);
+            }
+        });
+        connector.get(Arrays.asList(cachedRelease, snapshotAgain), null);
+        verify(delegate).get(Collections.singletonList(snapshotAgain), null);
+        assertTrue(cachedRelease.getFile().exists());
+        assertEquals("org.example:lib:jar:1.0", new String(Files.readAllBytes(cachedRelease.getFile().toPath()), StandardCharsets.UTF_8));
+        // served from the cache like a download
+        assertEquals(Arrays.asList(TransferEvent.EventType.INITIATED, TransferEvent.EventType.STARTED, TransferEvent.EventType.SUCCEEDED),
+                events.stream().map(TransferEvent::getType).collect(Collectors.toList()));
+        assertEquals(cachedRelease.getFile(), events.get(2).getResource().getFile());
+        assertEquals("org.example:lib:jar:1.0".length(), events.get(2).getTransferredBytes());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getStores());
+    }
+
+    @Test
+    void testWithBasicConnectorAgainstHttpRepository() throws Exception {
+        byte[] libContent = new byte[64 * 1024];
+        new Random(42).nextBytes(libContent);
+        String libSha1 = ArchiveRepository.toHex(MessageDigest.getInstance("SHA-1").digest(libContent));
+        String libPath = "/repo/org/example/lib/1.0/lib-1.0.jar";
+        String corruptPath = "/repo/org/example/corrupt/1.0/corrupt-1.0.jar";
+        Map<String, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        // stand-in remote repository serving one artifact and one artifact not matching its checksum
+        server.createContext("/repo/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            requestCounts.computeIfAbsent(path, key -> new AtomicInteger()).incrementAndGet();
+            byte[] body;
+            if (path.equals(libPath) || path.equals(corruptPath)) {
+                body = libContent;
+            } else if (path.equals(libPath + ".sha1")) {
+                body = libSha1.getBytes(StandardCharsets.US_ASCII);
+            } else if (path.equals(corruptPath + ".sha1")) {
+                body = "0000000000000000000000000000000000000000".getBytes(StandardCharsets.US_ASCII);
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+                return;
+            }
+            exchange.sendResponseHeaders(200, "HEAD".equals(exchange.getRequestMethod()) ? -1 : body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                if (!"HEAD".equals(exchange.getRequestMethod())) {
+                    out.write(body);
+                }
+            }
+        });
+        server.start();
+        try {
+            RemoteRepository httpRepository = new RemoteRepository.Builder("sysEnvRepo", "default",
+                    "http://localhost:" + server.getAddress().getPort() + "/repo").build();
+            BasicRepositoryConnectorFactory basicConnectorFactory = new BasicRepositoryConnectorFactory()
+                    .setTransporterProvider(new DefaultTransporterProvider().addTransporterFactory(new HttpTransporterFactory()))
+                    .setRepositoryLayoutProvider(new DefaultRepositoryLayoutProvider()
+                            .addRepositoryLayoutFactory(new Maven2RepositoryLayoutFactory()))
+                    .setChecksumPolicyProvider(new DefaultChecksumPolicyProvider())
+                    .setFileProcessor(new DefaultFileProcessor());
+            DefaultRepositorySystemSession session = new DefaultRepositorySystemSession();
+            Path cacheDir = tempDir.resolve("cache");
+
+            // first build downloads over HTTP and adds the artifact, the corrupt artifact is not added
+            SharedArtifactCache cacheBuild1 = new SharedArtifactCache(cacheDir, 1024 * 1024);
+            ArtifactDownload lib = download("org.example:lib:1.0", "build1", RepositoryPolicy.CHECKSUM_POLICY_FAIL);
+            ArtifactDownload corrupt = download("org.example:corrupt:1.0", "build1", RepositoryPolicy.CHECKSUM_POLICY_FAIL);
+            getWithSharedCache(basicConnectorFactory, session, httpRepository, cacheBuild1, Arrays.asList(lib, corrupt));
+            assertNull(lib.getException());
+            assertArrayEquals(libContent, Files.readAllBytes(lib.getFile().toPath()));
+            assertTrue(corrupt.getException().getCause() instanceof ChecksumFailureException);
+            assertEquals(1, cacheBuild1.getStores());
+            assertEquals(1, requestCounts.get(libPath).get());
+
+            // a concurrent build with its own local repository gets it from the cache without any request
+            SharedArtifactCache cacheBuild2 = new SharedArtifactCache(cacheDir, 1024 * 1024);
+            ArtifactDownload cachedLib = download("org.example:lib:1.0", "build2", RepositoryPolicy.CHECKSUM_POLICY_FAIL);
+            getWithSharedCache(basicConnectorFactory, session, httpRepository, cacheBuild2, Collections.singletonList(cachedLib));
+            assertNull(cachedLib.getException());
+            assertArrayEquals(libContent, Files.readAllBytes(cachedLib.getFile().toPath()));
+            assertEquals(1, cacheBuild2.getHits());
+            assertEquals(1, requestCounts.get(libPath).get());
+
+            // a corrupted blob is detected and replaced by downloading again
+            try (Stream<Path> blobs = Files.list(cacheDir.resolve(SharedArtifactCache.BLOBS_DIR))) {
+                Files.write(blobs.findFirst().get(), "corrupt".getBytes(StandardCharsets.US_ASCII));
+            }
+            SharedArtifactCache cacheBuild3 = new SharedArtifactCache(cacheDir, 1024 * 1024);
+            ArtifactDownload redownloadedLib = download("org.example:lib:1.0", "build3", RepositoryPolicy.CHECKSUM_POLICY_FAIL);
+            getWithSharedCache(basicConnectorFactory, session, httpRepository, cacheBuild3, Collections.singletonList(redownloadedLib));
+            assertArrayEquals(libContent, Files.readAllBytes(redownloadedLib.getFile().toPath()));
+            assertEquals(0, cacheBuild3.getHits());
+            assertEquals(1, cacheBuild3.getStores());
+            assertEquals(2, requestCounts.get(libPath).get());
+
+            // a cache too small for the artifact evicts it at the end of the build
+            SharedArtifactCache smallCache = new SharedArtifactCache(cacheDir, libContent.length - 1);
+            assertEquals(1, smallCache.evict());
+            ArtifactDownload evictedLib = download("org.example:lib:1.0", "build4", RepositoryPolicy.CHECKSUM_POLICY_FAIL);
+            assertFalse(smallCache.contains(httpRepository, null, evictedLib.getArtifact()));
+            getWithSharedCache(basicConnectorFactory, session, httpRepository, smallCache, Collections.singletonList(evictedLib));
+            assertArrayEquals(libContent, Files.readAllBytes(evictedLib.getFile().toPath()));
+            assertEquals(3, requestCounts.get(libPath).get());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static void getWithSharedCache(BasicRepositoryConnectorFactory basicConnectorFactory, DefaultRepositorySystemSession session,
+            RemoteRepository repository, SharedArtifactCache cache, List<ArtifactDownload> downloads) throws Exception {
+        try (RepositoryConnector connector = new SharedCachingRepositoryConnector(basicConnectorFactory.newInstance(session, repository),
+                repository, session, null, cache, Mockito.mock(Logger.class))) {
+            connector.get(downloads, null);
+        }
+    }
+
+    private ArtifactDownload download(String coords, String localRepo) {
+        return download(coords, localRepo, "warn");
+    }
+
+    private ArtifactDownload download(String coords, String localRepo, String checksumPolicy) {
+        DefaultArtifact artifact = new DefaultArtifact(coords);
+        File file = tempDir.resolve(localRepo).resolve(FileRepositoryIndex.getPath(artifact)).toFile();
+        return new ArtifactDownload(artifact, "", file, checksumPolicy);
+    }
+}